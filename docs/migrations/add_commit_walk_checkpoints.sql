@@ -0,0 +1,12 @@
+-- ============================================
+-- CHECKPOINTS DEL RECORRIDO DE COMMITS
+-- ============================================
+
+-- La sincronización de branches recorre /commits?sha=<cabeza> hasta llegar a commits ya
+-- guardados y deja un checkpoint por branch (resource = 'commits:<branch>') con la cabeza
+-- que está recorriendo, para retomar un backfill largo donde se quedó.
+ALTER TABLE sync_checkpoints DROP CONSTRAINT IF EXISTS sync_checkpoints_resource_check;
+ALTER TABLE sync_checkpoints ADD CONSTRAINT sync_checkpoints_resource_check
+    CHECK (resource IN ('pull_requests', 'issues') OR resource LIKE 'commits:%');
+
+ALTER TABLE sync_checkpoints ADD COLUMN IF NOT EXISTS head_sha TEXT;
@@ -0,0 +1,22 @@
+-- ============================================
+-- RECONCILIACIÓN POR DIGESTS
+-- ============================================
+
+-- updated_at de GitHub de cada PR e issue (el updated_at propio es la hora de escritura).
+-- El digest local de un repo y recurso (cuántos hay y el más reciente, en total y por
+-- ventana de tiempo) se calcula sobre esta columna y se compara con el que devuelve GitHub.
+ALTER TABLE pull_requests ADD COLUMN IF NOT EXISTS github_updated_at TIMESTAMPTZ;
+ALTER TABLE github_issues ADD COLUMN IF NOT EXISTS github_updated_at TIMESTAMPTZ;
+
+-- Cubre los digests por ventana y el listado (number, updated_at) de una ventana sin ir a la tabla
+CREATE INDEX IF NOT EXISTS pull_requests_repo_github_updated_idx
+    ON pull_requests(repo_id, github_updated_at) INCLUDE (number);
+CREATE INDEX IF NOT EXISTS github_issues_repo_github_updated_idx
+    ON github_issues(repo_id, github_updated_at) INCLUDE (number);
+
+COMMENT ON COLUMN pull_requests.github_updated_at IS 'updated_at del PR en GitHub, base del digest de reconciliación';
+COMMENT ON COLUMN github_issues.github_updated_at IS 'updated_at del issue en GitHub, base del digest de reconciliación';
+
+-- Modo de cada sincronización del historial: full o reconcile
+ALTER TABLE sync_history ADD COLUMN IF NOT EXISTS mode TEXT DEFAULT 'full'
+    CHECK (mode IN ('full', 'reconcile'));
@@ -0,0 +1,12 @@
+-- ============================================
+-- BACKOFF DEL SCHEDULER DE SINCRONIZACIÓN
+-- ============================================
+
+-- Último intento del scheduler sobre cada repositorio y cuántos fallaron seguidos.
+-- last_synced_at de sync_cursors solo avanza con éxito: sin esto un repo que siempre
+-- falla (acceso retirado, 404) quedaría el más retrasado y acapararía cada tick.
+ALTER TABLE repositories ADD COLUMN IF NOT EXISTS sync_attempted_at TIMESTAMPTZ;
+ALTER TABLE repositories ADD COLUMN IF NOT EXISTS sync_failures INTEGER DEFAULT 0;
+
+COMMENT ON COLUMN repositories.sync_attempted_at IS 'Último intento de sincronización del scheduler';
+COMMENT ON COLUMN repositories.sync_failures IS 'Intentos fallidos seguidos; el scheduler espera más entre ellos';
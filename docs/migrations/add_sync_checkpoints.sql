@@ -0,0 +1,24 @@
+-- ============================================
+-- CHECKPOINTS DE SINCRONIZACIÓN
+-- ============================================
+
+-- Tabla: sync_checkpoints
+-- Progreso de una sincronización en curso por repositorio y recurso. Se escribe en la
+-- misma transacción que cada página aplicada y se borra al terminar; si la sync se
+-- interrumpe, la siguiente retoma desde next_url con la misma marca de partida.
+CREATE TABLE IF NOT EXISTS sync_checkpoints (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    repo_id UUID NOT NULL REFERENCES repositories(id) ON DELETE CASCADE,
+    resource TEXT NOT NULL CHECK (resource IN ('pull_requests', 'issues')),
+    since_mark TIMESTAMPTZ,
+    high_water_mark TIMESTAMPTZ,
+    next_url TEXT,
+    pages_done INT DEFAULT 0,
+    started_at TIMESTAMPTZ DEFAULT NOW(),
+    updated_at TIMESTAMPTZ DEFAULT NOW(),
+    UNIQUE(repo_id, resource)
+);
+
+CREATE INDEX IF NOT EXISTS sync_checkpoints_repo_id_idx ON sync_checkpoints(repo_id);
+
+COMMENT ON TABLE sync_checkpoints IS 'Progreso de sincronizaciones en curso, para retomarlas tras una interrupción';
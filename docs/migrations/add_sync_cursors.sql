@@ -0,0 +1,24 @@
+-- ============================================
+-- CURSORES DE SINCRONIZACIÓN INCREMENTAL
+-- ============================================
+
+-- Tabla: sync_cursors
+-- Marca de agua por repositorio y recurso (pull_requests, issues): el updated_at más alto
+-- ya sincronizado, el ETag de la primera página del último listado y cuánto tardó.
+-- La sincronización pide solo lo actualizado desde high_water_mark.
+CREATE TABLE IF NOT EXISTS sync_cursors (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    repo_id UUID NOT NULL REFERENCES repositories(id) ON DELETE CASCADE,
+    resource TEXT NOT NULL CHECK (resource IN ('pull_requests', 'issues')),
+    high_water_mark TIMESTAMPTZ,
+    etag TEXT,
+    last_run_ms BIGINT,
+    last_synced_at TIMESTAMPTZ,
+    created_at TIMESTAMPTZ DEFAULT NOW(),
+    updated_at TIMESTAMPTZ DEFAULT NOW(),
+    UNIQUE(repo_id, resource)
+);
+
+CREATE INDEX IF NOT EXISTS sync_cursors_repo_id_idx ON sync_cursors(repo_id);
+
+COMMENT ON TABLE sync_cursors IS 'Marca de agua de la sincronización incremental por repositorio y recurso';
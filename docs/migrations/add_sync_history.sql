@@ -0,0 +1,40 @@
+-- ============================================
+-- HISTORIAL DE SINCRONIZACIONES
+-- ============================================
+
+-- Tabla: sync_history
+-- Un registro por sincronización terminada de una instalación (job manual o scheduler):
+-- contadores del SyncSummary, errores por contexto y milisegundos por fase.
+-- GET /api/sync/summary lee de aquí la última y el total.
+CREATE TABLE IF NOT EXISTS sync_history (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    installation_id BIGINT NOT NULL,
+    job_id UUID,
+    origin TEXT NOT NULL CHECK (origin IN ('manual', 'scheduled')),
+    success BOOLEAN NOT NULL,
+    started_at TIMESTAMPTZ NOT NULL,
+    finished_at TIMESTAMPTZ,
+    duration_ms BIGINT,
+    repositories_total INTEGER,
+    repositories_done INTEGER,
+    pull_requests_synced INTEGER,
+    pull_requests_created INTEGER,
+    pull_requests_updated INTEGER,
+    issues_synced INTEGER,
+    issues_created INTEGER,
+    issues_updated INTEGER,
+    branches_synced INTEGER,
+    commits_synced INTEGER,
+    errors JSONB,
+    phase_timings JSONB,
+    created_at TIMESTAMPTZ DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS sync_history_installation_started_idx
+    ON sync_history(installation_id, started_at DESC);
+
+-- El resumen se pide por origen (las del scheduler son lotes parciales y frecuentes)
+CREATE INDEX IF NOT EXISTS sync_history_installation_origin_started_idx
+    ON sync_history(installation_id, origin, started_at DESC);
+
+COMMENT ON TABLE sync_history IS 'Resultados de las sincronizaciones terminadas por instalación';
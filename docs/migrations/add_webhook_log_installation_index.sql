@@ -0,0 +1,15 @@
+-- ============================================
+-- BÚSQUEDA DE PAYLOADS DE INSTALACIÓN EN WEBHOOK_LOGS
+-- ============================================
+
+-- Índice de expresión sobre installation.id de los webhooks "installation" con
+-- action = created, ordenado por llegada. La resincronización desde los logs pide el
+-- payload más reciente de cada instalación con estos mismos predicados jsonb, así que
+-- es un recorrido del índice (LIMIT 1 / DISTINCT ON) sin leer el resto del historial.
+-- El id se indexa como texto: un cast a bigint en el índice haría fallar el INSERT de
+-- cualquier payload malformado.
+CREATE INDEX IF NOT EXISTS webhook_logs_installation_created_idx
+    ON webhook_logs ((request_payload -> 'installation' ->> 'id'), created_at DESC)
+    WHERE event_type = 'installation' AND request_payload ->> 'action' = 'created';
+
+COMMENT ON INDEX webhook_logs_installation_created_idx IS 'Último payload installation/created por instalación';
@@ -2,8 +2,10 @@ package com.paradox.service_java;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ServiceJavaApplication {
 
 	public static void main(String[] args) {
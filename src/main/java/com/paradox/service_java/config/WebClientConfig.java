@@ -1,15 +1,113 @@
 package com.paradox.service_java.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+
+/**
+ * Clientes HTTP compartidos.
+ *
+ * Un pool de conexiones con nombre por upstream (api.github.com y el servicio C#), con
+ * keep-alive, límites de conexiones y de cola de espera, timeouts y tamaño máximo de
+ * cuerpo. Los pools exportan métricas reactor.netty.connection.provider.* etiquetadas
+ * con su nombre. Los servicios inyectan githubWebClient o csharpWebClient en vez de
+ * construir su propio WebClient.
+ */
 @Configuration
 public class WebClientConfig {
 
+    public static final String GITHUB_API = "https://api.github.com";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider githubConnectionProvider(
+            @Value("${http.github.max-connections:50}") int maxConnections,
+            @Value("${http.github.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${http.github.pending-acquire-timeout-ms:10000}") long pendingAcquireTimeoutMs,
+            @Value("${http.github.max-idle-time-seconds:30}") long maxIdleSeconds,
+            @Value("${http.github.max-life-time-seconds:300}") long maxLifeSeconds) {
+        return pool("github", maxConnections, pendingAcquireMaxCount, pendingAcquireTimeoutMs,
+                maxIdleSeconds, maxLifeSeconds);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider csharpConnectionProvider(
+            @Value("${http.csharp.max-connections:20}") int maxConnections,
+            @Value("${http.csharp.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+            @Value("${http.csharp.pending-acquire-timeout-ms:5000}") long pendingAcquireTimeoutMs,
+            @Value("${http.csharp.max-idle-time-seconds:30}") long maxIdleSeconds,
+            @Value("${http.csharp.max-life-time-seconds:300}") long maxLifeSeconds) {
+        return pool("csharp", maxConnections, pendingAcquireMaxCount, pendingAcquireTimeoutMs,
+                maxIdleSeconds, maxLifeSeconds);
+    }
+
+    /**
+     * Cliente para api.github.com (también válido para github.com/login/oauth con URI absoluta)
+     */
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    @Primary
+    public WebClient githubWebClient(WebClient.Builder builder,
+                                     @Qualifier("githubConnectionProvider") ConnectionProvider provider,
+                                     @Value("${http.github.connect-timeout-ms:5000}") int connectTimeoutMs,
+                                     @Value("${http.github.response-timeout-seconds:30}") long responseTimeoutSeconds,
+                                     @Value("${http.github.max-in-memory-size-bytes:16777216}") int maxInMemorySize,
+                                     @Value("${http.github.http2:true}") boolean http2) {
+        HttpClient httpClient = httpClient(provider, connectTimeoutMs, responseTimeoutSeconds);
+        if (http2) {
+            // ALPN sobre TLS: h2 si GitHub lo ofrece, HTTP/1.1 si no
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return builder
+                .baseUrl(GITHUB_API)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySize))
+                .build();
     }
-}
 
+    @Bean
+    public WebClient csharpWebClient(WebClient.Builder builder,
+                                     @Qualifier("csharpConnectionProvider") ConnectionProvider provider,
+                                     @Value("${csharp.service.url:http://localhost:4001}") String csharpServiceUrl,
+                                     @Value("${http.csharp.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                     @Value("${http.csharp.response-timeout-seconds:10}") long responseTimeoutSeconds,
+                                     @Value("${http.csharp.max-in-memory-size-bytes:1048576}") int maxInMemorySize) {
+        return builder
+                .baseUrl(csharpServiceUrl)
+                .clientConnector(new ReactorClientHttpConnector(
+                        httpClient(provider, connectTimeoutMs, responseTimeoutSeconds)))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySize))
+                .build();
+    }
+
+    private static ConnectionProvider pool(String name, int maxConnections, int pendingAcquireMaxCount,
+                                           long pendingAcquireTimeoutMs, long maxIdleSeconds, long maxLifeSeconds) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                // Cerrar antes que el keep-alive del servidor evita reusar sockets ya cerrados
+                .maxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeSeconds))
+                .evictInBackground(Duration.ofSeconds(30))
+                .lifo()
+                .metrics(true)
+                .build();
+    }
+
+    private static HttpClient httpClient(ConnectionProvider provider, int connectTimeoutMs, long responseTimeoutSeconds) {
+        return HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofSeconds(responseTimeoutSeconds))
+                .keepAlive(true);
+    }
+}
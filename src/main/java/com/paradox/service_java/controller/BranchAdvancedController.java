@@ -12,6 +12,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.UUID;
@@ -56,13 +57,13 @@ public class BranchAdvancedController {
         @ApiResponse(responseCode = "404", description = "Branch not found")
     })
     @GetMapping("/{branchId}/protection")
-    public ResponseEntity<BranchProtectionResponse> getBranchProtection(
+    public Mono<ResponseEntity<BranchProtectionResponse>> getBranchProtection(
             @Parameter(description = "Branch ID", required = true)
             @PathVariable UUID branchId,
             @Parameter(description = "GitHub Installation ID", required = true)
             @RequestParam Long installationId) {
-        BranchProtectionResponse protection = branchAdvancedService.getBranchProtection(branchId, installationId);
-        return ResponseEntity.ok(protection);
+        return branchAdvancedService.getBranchProtection(branchId, installationId)
+                .map(ResponseEntity::ok);
     }
 }
 
@@ -3,6 +3,7 @@ package com.paradox.service_java.controller;
 import com.paradox.service_java.dto.CommitFileResponse;
 import com.paradox.service_java.model.Commit;
 import com.paradox.service_java.service.CommitAdvancedService;
+import com.paradox.service_java.service.CommitFilesCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -10,9 +11,12 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
 
@@ -60,7 +64,7 @@ public class CommitAdvancedController {
         @ApiResponse(responseCode = "404", description = "Commit not found")
     })
     @GetMapping("/{sha}/files")
-    public ResponseEntity<List<CommitFileResponse>> getCommitFiles(
+    public Mono<ResponseEntity<List<CommitFileResponse>>> getCommitFiles(
             @Parameter(description = "Commit SHA", required = true)
             @PathVariable String sha,
             @Parameter(description = "GitHub Installation ID", required = true)
@@ -69,8 +73,16 @@ public class CommitAdvancedController {
             @RequestParam String owner,
             @Parameter(description = "Repository name", required = true)
             @RequestParam String repoName) {
-        List<CommitFileResponse> files = commitAdvancedService.getCommitFiles(sha, installationId, owner, repoName);
-        return ResponseEntity.ok(files);
+        return commitAdvancedService.getCommitFiles(sha, installationId, owner, repoName)
+                .map(files -> {
+                    if (CommitFilesCache.isImmutableRef(sha)) {
+                        // El contenido de un SHA completo no cambia nunca
+                        return ResponseEntity.ok()
+                                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable())
+                                .body(files);
+                    }
+                    return ResponseEntity.ok(files);
+                });
     }
 }
 
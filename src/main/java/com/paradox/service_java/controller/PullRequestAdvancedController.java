@@ -12,6 +12,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.UUID;
@@ -56,17 +57,15 @@ public class PullRequestAdvancedController {
         @ApiResponse(responseCode = "404", description = "Pull request not found")
     })
     @GetMapping("/{number}/reviews")
-    public ResponseEntity<List<PullRequestReviewResponse>> getPullRequestReviews(
+    public Mono<ResponseEntity<List<PullRequestReviewResponse>>> getPullRequestReviews(
             @Parameter(description = "Pull request number", required = true)
             @PathVariable Integer number,
             @Parameter(description = "Repository ID", required = true)
             @RequestParam UUID repoId,
             @Parameter(description = "GitHub Installation ID", required = true)
             @RequestParam Long installationId) {
-        List<PullRequestReviewResponse> reviews = pullRequestAdvancedService.getPullRequestReviews(
-                repoId, number, installationId
-        );
-        return ResponseEntity.ok(reviews);
+        return pullRequestAdvancedService.getPullRequestReviews(repoId, number, installationId)
+                .map(ResponseEntity::ok);
     }
 }
 
@@ -1,6 +1,8 @@
 package com.paradox.service_java.controller;
 
-import com.paradox.service_java.service.IncrementalSyncService;
+import com.paradox.service_java.model.SyncHistory;
+import com.paradox.service_java.repository.SyncHistoryRepository;
+import com.paradox.service_java.service.SyncJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -9,8 +11,14 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.util.UUID;
 
 /**
  * Controlador para sincronización incremental
@@ -24,81 +32,167 @@ import org.springframework.web.bind.annotation.*;
 @SecurityRequirement(name = "bearer-jwt")
 public class SyncController {
 
-    private final IncrementalSyncService incrementalSyncService;
+    private final SyncJobService syncJobService;
+    private final SyncHistoryRepository syncHistoryRepository;
 
     /**
      * Endpoint para sincronización completa de una instalación
      * POST /api/sync/full?installationId={id}
+     * Encola un job y responde enseguida; el progreso se sigue en /api/sync/jobs/{jobId}.
      */
     @Operation(
         summary = "Full synchronization",
-        description = "Performs a full incremental sync for a GitHub installation. " +
-                     "Syncs all Pull Requests, Issues, and detects changes since last sync. " +
-                     "Returns a detailed summary of synced items."
+        description = "Queues a full incremental sync job for a GitHub installation and returns it immediately. " +
+                     "Syncs all Pull Requests, Issues, branches and commits changed since the last sync. " +
+                     "If the installation already has a queued or running job, that job is returned. " +
+                     "Progress is available at /api/sync/jobs/{jobId} and as Server-Sent Events at /api/sync/jobs/{jobId}/events."
     )
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Sync completed successfully"),
+        @ApiResponse(responseCode = "202", description = "Sync job queued"),
         @ApiResponse(responseCode = "400", description = "Invalid installation ID"),
-        @ApiResponse(responseCode = "404", description = "Installation not found"),
-        @ApiResponse(responseCode = "500", description = "Sync failed")
+        @ApiResponse(responseCode = "404", description = "Installation not found")
     })
     @PostMapping("/full")
-    public ResponseEntity<IncrementalSyncService.SyncSummary> syncFull(
+    public ResponseEntity<SyncJobService.SyncJobProgress> syncFull(
             @Parameter(description = "GitHub Installation ID", required = true)
             @RequestParam Long installationId) {
 
         log.info("Received request for full sync of installation: {}", installationId);
 
-        try {
-            IncrementalSyncService.SyncSummary summary = incrementalSyncService.syncFull(installationId);
+        return syncJobService.submit(installationId)
+                .map(job -> ResponseEntity.accepted()
+                        .location(URI.create("/api/sync/jobs/" + job.jobId()))
+                        .body(job))
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-            if (summary.isSuccess()) {
-                log.info("Full sync completed successfully for installation {}: {}", installationId, summary);
-                return ResponseEntity.ok(summary);
-            } else {
-                log.error("Full sync failed for installation {}: {}", installationId, summary.getErrors());
-                return ResponseEntity.status(500).body(summary);
-            }
+    /**
+     * Reconciliación por digests de una instalación
+     * POST /api/sync/reconcile?installationId={id}
+     * Como /full, pero solo sincroniza los repositorios cuyo digest difiere del de GitHub.
+     */
+    @Operation(
+        summary = "Digest reconciliation",
+        description = "Queues a reconciliation job: compares per-repository digests (PR and issue counts and " +
+                     "latest update, branch heads) with a cheap batched GitHub probe and only syncs repositories " +
+                     "whose digests differ. Where a digest still differs after the incremental sync, it narrows " +
+                     "down by update-time windows and compares items only in the mismatching ones, re-fetching " +
+                     "stale items and deleting those gone from GitHub. Returns the job immediately."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Reconciliation job queued"),
+        @ApiResponse(responseCode = "400", description = "Invalid installation ID"),
+        @ApiResponse(responseCode = "404", description = "Installation not found")
+    })
+    @PostMapping("/reconcile")
+    public ResponseEntity<SyncJobService.SyncJobProgress> reconcile(
+            @Parameter(description = "GitHub Installation ID", required = true)
+            @RequestParam Long installationId) {
 
-        } catch (Exception e) {
-            log.error("Error in full sync for installation {}: {}", installationId, e.getMessage(), e);
+        log.info("Received request for digest reconciliation of installation: {}", installationId);
 
-            IncrementalSyncService.SyncSummary errorSummary = new IncrementalSyncService.SyncSummary();
-            errorSummary.setInstallationId(installationId);
-            errorSummary.setSuccess(false);
-            errorSummary.addError("GLOBAL", e.getMessage());
+        return syncJobService.submit(installationId, SyncJobService.Mode.RECONCILE)
+                .map(job -> ResponseEntity.accepted()
+                        .location(URI.create("/api/sync/jobs/" + job.jobId()))
+                        .body(job))
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-            return ResponseEntity.status(500).body(errorSummary);
+    /**
+     * Estado actual de un job de sincronización
+     * GET /api/sync/jobs/{jobId}
+     */
+    @Operation(
+        summary = "Get sync job",
+        description = "Returns the current progress of a sync job: repositories done, items per second, errors and ETA."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Job found"),
+        @ApiResponse(responseCode = "404", description = "Unknown or expired job")
+    })
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<SyncJobService.SyncJobProgress> getJob(
+            @Parameter(description = "Sync job ID", required = true)
+            @PathVariable UUID jobId) {
+        return syncJobService.getProgress(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Progreso de un job como Server-Sent Events: un evento "progress" por intervalo y
+     * uno "done" con el estado final, tras el que se cierra el stream
+     * GET /api/sync/jobs/{jobId}/events
+     */
+    @Operation(
+        summary = "Stream sync job progress",
+        description = "Streams the progress of a sync job as Server-Sent Events until it finishes. " +
+                     "Emits 'progress' events periodically and a final 'done' event."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Event stream opened"),
+        @ApiResponse(responseCode = "404", description = "Unknown or expired job")
+    })
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<SyncJobService.SyncJobProgress>>> streamJob(
+            @Parameter(description = "Sync job ID", required = true)
+            @PathVariable UUID jobId) {
+        if (syncJobService.getProgress(jobId).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+        Flux<ServerSentEvent<SyncJobService.SyncJobProgress>> events = syncJobService.streamProgress(jobId)
+                .map(progress -> ServerSentEvent.builder(progress)
+                        .id(jobId.toString())
+                        .event(progress.finished() ? "done" : "progress")
+                        .build());
+        return ResponseEntity.ok(events);
     }
 
     /**
      * Endpoint para obtener resumen de sincronización
-     * GET /api/sync/summary?installationId={id}
+     * GET /api/sync/summary?installationId={id}&origin={manual|scheduled}
      */
     @Operation(
         summary = "Get sync summary",
-        description = "Returns a summary of the last synchronization for an installation. " +
-                     "Useful for monitoring sync status and detecting issues."
+        description = "Returns a summary of the last synchronization of the given origin for an installation, read from " +
+                     "the sync history, including per-phase timings. origin=manual (default) covers full and reconcile " +
+                     "jobs; origin=scheduled covers the partial batches of the background scheduler."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Summary retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Unknown origin"),
         @ApiResponse(responseCode = "404", description = "No sync history found")
     })
     @GetMapping("/summary")
     public ResponseEntity<SyncSummaryResponse> getSyncSummary(
             @Parameter(description = "GitHub Installation ID", required = true)
-            @RequestParam Long installationId) {
+            @RequestParam Long installationId,
+            @Parameter(description = "Sync origin: manual or scheduled")
+            @RequestParam(defaultValue = SyncHistory.MANUAL) String origin) {
 
-        log.info("Received request for sync summary of installation: {}", installationId);
+        log.info("Received request for {} sync summary of installation: {}", origin, installationId);
 
-        // TODO: Implementar almacenamiento de historial de sincronizaciones
-        // Por ahora retornamos un placeholder
-        SyncSummaryResponse response = new SyncSummaryResponse();
-        response.setInstallationId(installationId);
-        response.setMessage("Sync summary not yet implemented. Use /api/sync/full to perform a sync.");
+        if (!SyncHistory.MANUAL.equals(origin) && !SyncHistory.SCHEDULED.equals(origin)) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        return ResponseEntity.ok(response);
+        return syncHistoryRepository.findFirstByInstallationIdAndOriginOrderByStartedAtDesc(installationId, origin)
+                .map(last -> {
+                    SyncSummaryResponse response = new SyncSummaryResponse();
+                    response.setInstallationId(installationId);
+                    response.setOrigin(origin);
+                    response.setMessage(Boolean.TRUE.equals(last.getSuccess())
+                            ? "Last sync completed successfully"
+                            : "Last sync finished with errors");
+                    response.setTotalSyncs((int) syncHistoryRepository
+                            .countByInstallationIdAndOrigin(installationId, origin));
+                    response.setFailedSyncs((int) syncHistoryRepository
+                            .countByInstallationIdAndOriginAndSuccessFalse(installationId, origin));
+                    response.setLastSyncDate(last.getStartedAt().toString());
+                    response.setLastSync(last);
+                    return ResponseEntity.ok(response);
+                })
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -106,21 +200,33 @@ public class SyncController {
      */
     public static class SyncSummaryResponse {
         private Long installationId;
+        private String origin;
         private String message;
         private Integer totalSyncs;
+        private Integer failedSyncs;
         private String lastSyncDate;
+        private SyncHistory lastSync;
 
         public Long getInstallationId() { return installationId; }
         public void setInstallationId(Long installationId) { this.installationId = installationId; }
 
+        public String getOrigin() { return origin; }
+        public void setOrigin(String origin) { this.origin = origin; }
+
         public String getMessage() { return message; }
         public void setMessage(String message) { this.message = message; }
 
         public Integer getTotalSyncs() { return totalSyncs; }
         public void setTotalSyncs(Integer totalSyncs) { this.totalSyncs = totalSyncs; }
 
+        public Integer getFailedSyncs() { return failedSyncs; }
+        public void setFailedSyncs(Integer failedSyncs) { this.failedSyncs = failedSyncs; }
+
         public String getLastSyncDate() { return lastSyncDate; }
         public void setLastSyncDate(String lastSyncDate) { this.lastSyncDate = lastSyncDate; }
+
+        public SyncHistory getLastSync() { return lastSync; }
+        public void setLastSync(SyncHistory lastSync) { this.lastSync = lastSync; }
     }
 }
 
@@ -1,5 +1,7 @@
 package com.paradox.service_java.controller;
 
+import com.paradox.service_java.model.WebhookLog;
+import com.paradox.service_java.service.WebhookIngestionService;
 import com.paradox.service_java.service.WebhookService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -27,6 +29,7 @@ import java.util.Map;
 public class WebhookController {
 
     private final WebhookService webhookService;
+    private final WebhookIngestionService webhookIngestionService;
 
     /**
      * Endpoint to receive GitHub webhook events
@@ -34,10 +37,14 @@ public class WebhookController {
      */
     @Operation(summary = "Receive GitHub webhook events",
                description = "Handles GitHub webhook events with HMAC SHA-256 signature validation. " +
-                           "Processes events like installation, push, pull_request, issues, etc.")
+                           "Processes events like installation, push, pull_request, issues, etc. " +
+                           "In async ingestion mode the delivery is stored and acknowledged with 202, " +
+                           "then processed by a background worker pool.")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Webhook processed successfully",
+        @ApiResponse(responseCode = "200", description = "Webhook processed successfully (sync mode)",
                     content = @Content(examples = @ExampleObject(value = "{\"status\": \"success\"}"))),
+        @ApiResponse(responseCode = "202", description = "Webhook stored and queued for processing (async mode)",
+                    content = @Content(examples = @ExampleObject(value = "{\"status\": \"accepted\"}"))),
         @ApiResponse(responseCode = "401", description = "Invalid webhook signature",
                     content = @Content(examples = @ExampleObject(value = "{\"error\": \"invalid signature\"}"))),
         @ApiResponse(responseCode = "500", description = "Internal server error")
@@ -51,10 +58,10 @@ public class WebhookController {
             @Parameter(description = "GitHub delivery ID for tracking")
             @RequestHeader(value = "X-GitHub-Delivery", required = false) String deliveryId,
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
-                description = "GitHub webhook payload (JSON)",
+                description = "GitHub webhook payload (JSON, raw bytes as signed by GitHub)",
                 required = true
             )
-            @RequestBody String payload
+            @RequestBody byte[] payload
     ) {
         log.info("Received GitHub webhook - Event: {}, Delivery: {}", eventType, deliveryId);
 
@@ -67,7 +74,19 @@ public class WebhookController {
                         .body(Map.of("error", "invalid signature"));
             }
 
+            if (webhookIngestionService.isAsync()) {
+                // Persistir y responder enseguida; los workers procesan en segundo plano
+                WebhookLog stored = webhookService.recordDelivery(eventType, payload, signature, deliveryId);
+                boolean queued = webhookIngestionService.enqueue(stored, payload);
+
+                log.info("Accepted webhook - Event: {}, Delivery: {}, Queued: {}", eventType, deliveryId, queued);
+                return ResponseEntity
+                        .status(HttpStatus.ACCEPTED)
+                        .body(Map.of("status", "accepted"));
+            }
+
             // Process webhook event
+            webhookIngestionService.recordActivity(eventType, payload);
             webhookService.processWebhook(eventType, payload, signature, deliveryId);
 
             log.info("Successfully processed webhook - Event: {}, Delivery: {}", eventType, deliveryId);
@@ -0,0 +1,23 @@
+package com.paradox.service_java.dto.github;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Branch de GET /repos/{owner}/{repo}/branches: nombre y SHA de la cabeza
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GitHubBranch(
+        String name,
+        HeadRef commit,
+        @JsonProperty("protected") Boolean protectedBranch
+) {
+
+    public String headSha() {
+        return commit != null ? commit.sha() : null;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record HeadRef(String sha) {
+    }
+}
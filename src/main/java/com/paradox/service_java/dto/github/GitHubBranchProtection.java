@@ -0,0 +1,39 @@
+package com.paradox.service_java.dto.github;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Protección de branch de GET /repos/{owner}/{repo}/branches/{branch}/protection.
+ * Cada regla viene a null cuando no está activa.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GitHubBranchProtection(
+        @JsonProperty("required_pull_request_reviews") RequiredReviews requiredPullRequestReviews,
+        @JsonProperty("required_status_checks") RequiredStatusChecks requiredStatusChecks,
+        Restrictions restrictions,
+        @JsonProperty("allow_force_pushes") Toggle allowForcePushes,
+        @JsonProperty("allow_deletions") Toggle allowDeletions
+) {
+
+    /**
+     * Respuesta para un branch sin protección (GitHub responde 404)
+     */
+    public static final GitHubBranchProtection NONE = new GitHubBranchProtection(null, null, null, null, null);
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record RequiredReviews(@JsonProperty("required_approving_review_count") Integer requiredApprovingReviewCount) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record RequiredStatusChecks(Boolean strict) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Restrictions(String url) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Toggle(Boolean enabled) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.paradox.service_java.dto.github;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Commit de GET /repos/{owner}/{repo}/commits/{sha}, con sus archivos modificados.
+ * El listado GET /repos/{owner}/{repo}/commits devuelve la misma forma sin stats ni files.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GitHubCommit(
+        String sha,
+        @JsonProperty("html_url") String htmlUrl,
+        Detail commit,
+        GitHubUser author,
+        List<ParentRef> parents,
+        Stats stats,
+        List<File> files
+) {
+
+    public GitHubCommit {
+        parents = parents != null ? parents : List.of();
+        files = files != null ? files : List.of();
+    }
+
+    /**
+     * Datos git del commit (autor/committer según git, no cuentas de GitHub)
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Detail(String message, Signature author, Signature committer, TreeRef tree) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Signature(String name, String email, OffsetDateTime date) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record TreeRef(String sha) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record ParentRef(String sha) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Stats(Integer additions, Integer deletions, Integer total) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record File(
+            String filename,
+            String status,
+            Integer additions,
+            Integer deletions,
+            Integer changes,
+            @JsonProperty("blob_url") String blobUrl,
+            @JsonProperty("raw_url") String rawUrl,
+            String patch
+    ) {
+    }
+}
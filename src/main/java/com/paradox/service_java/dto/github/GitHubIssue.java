@@ -0,0 +1,47 @@
+package com.paradox.service_java.dto.github;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Issue de GET /repos/{owner}/{repo}/issues.
+ * GitHub devuelve también los PRs en este endpoint; se distinguen por pull_request.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GitHubIssue(
+        Long id,
+        Integer number,
+        String state,
+        String title,
+        String body,
+        @JsonProperty("html_url") String htmlUrl,
+        Integer comments,
+        @JsonProperty("closed_at") OffsetDateTime closedAt,
+        @JsonProperty("created_at") OffsetDateTime createdAt,
+        @JsonProperty("updated_at") OffsetDateTime updatedAt,
+        GitHubUser user,
+        List<Label> labels,
+        List<GitHubUser> assignees,
+        @JsonProperty("pull_request") PullRequestLink pullRequest
+) {
+
+    public GitHubIssue {
+        labels = labels != null ? labels : List.of();
+        assignees = assignees != null ? assignees : List.of();
+    }
+
+    public boolean isPullRequest() {
+        return pullRequest != null;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Label(String name) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PullRequestLink(String url) {
+    }
+}
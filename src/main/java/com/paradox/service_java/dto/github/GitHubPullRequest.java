@@ -0,0 +1,33 @@
+package com.paradox.service_java.dto.github;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Pull Request de GET /repos/{owner}/{repo}/pulls (solo los campos que persistimos)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GitHubPullRequest(
+        Long id,
+        Integer number,
+        String state,
+        String title,
+        String body,
+        @JsonProperty("html_url") String htmlUrl,
+        Boolean draft,
+        Boolean merged,
+        @JsonProperty("merged_at") OffsetDateTime mergedAt,
+        @JsonProperty("closed_at") OffsetDateTime closedAt,
+        @JsonProperty("created_at") OffsetDateTime createdAt,
+        @JsonProperty("updated_at") OffsetDateTime updatedAt,
+        GitHubUser user,
+        BranchRef head,
+        BranchRef base
+) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record BranchRef(String ref, String sha) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.paradox.service_java.dto.github;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Repositorio de la API REST (campos que persistimos en Repository)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GitHubRepository(
+        Long id,
+        @JsonProperty("node_id") String nodeId,
+        String name,
+        @JsonProperty("full_name") String fullName,
+        String description,
+        @JsonProperty("private") Boolean privateRepo,
+        Boolean fork,
+        Boolean archived,
+        Boolean disabled,
+        GitHubUser owner,
+        @JsonProperty("html_url") String htmlUrl,
+        @JsonProperty("clone_url") String cloneUrl,
+        @JsonProperty("ssh_url") String sshUrl,
+        @JsonProperty("default_branch") String defaultBranch,
+        String language,
+        List<String> topics,
+        @JsonProperty("pushed_at") OffsetDateTime pushedAt
+) {
+
+    /**
+     * Respuesta de GET /installation/repositories
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record InstallationPage(
+            @JsonProperty("total_count") Integer totalCount,
+            List<GitHubRepository> repositories
+    ) {
+
+        public InstallationPage {
+            repositories = repositories != null ? repositories : List.of();
+        }
+    }
+}
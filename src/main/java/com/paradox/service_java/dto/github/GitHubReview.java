@@ -0,0 +1,20 @@
+package com.paradox.service_java.dto.github;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Review de GET /repos/{owner}/{repo}/pulls/{number}/reviews
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GitHubReview(
+        Long id,
+        GitHubUser user,
+        String state,
+        String body,
+        @JsonProperty("submitted_at") OffsetDateTime submittedAt,
+        @JsonProperty("html_url") String htmlUrl
+) {
+}
@@ -0,0 +1,10 @@
+package com.paradox.service_java.dto.github;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Usuario/cuenta tal como aparece embebido en las respuestas de la API REST
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GitHubUser(Long id, String login, String type) {
+}
@@ -0,0 +1,16 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Evento installation de GitHub Webhooks (created/deleted/suspend)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record InstallationEvent(
+        String action,
+        InstallationRef installation,
+        List<RepositoryRef> repositories
+) {
+}
@@ -0,0 +1,23 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instalación de la GitHub App embebida en los payloads de webhook
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record InstallationRef(
+        Long id,
+        UserRef account,
+        @JsonProperty("target_type") String targetType,
+        @JsonProperty("repository_selection") String repositorySelection,
+        @JsonProperty("app_id") Long appId,
+        @JsonProperty("app_slug") String appSlug,
+        Map<String, Object> permissions,
+        List<String> events
+) {
+}
@@ -0,0 +1,19 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Evento installation_repositories de GitHub Webhooks (added/removed)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record InstallationRepositoriesEvent(
+        String action,
+        InstallationRef installation,
+        @JsonProperty("repository_selection") String repositorySelection,
+        @JsonProperty("repositories_added") List<RepositoryRef> repositoriesAdded,
+        @JsonProperty("repositories_removed") List<RepositoryRef> repositoriesRemoved
+) {
+}
@@ -0,0 +1,48 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Evento issues de GitHub Webhooks
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record IssuesEvent(
+        String action, // opened, closed, reopened, edited, labeled, etc.
+        Issue issue,
+        RepositoryRef repository,
+        InstallationRef installation
+) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Issue(
+            Long id,
+            @JsonProperty("node_id") String nodeId,
+            Integer number,
+            String state,
+            String title,
+            String body,
+            @JsonProperty("html_url") String htmlUrl,
+            Boolean locked,
+            Integer comments,
+            @JsonProperty("closed_at") OffsetDateTime closedAt,
+            @JsonProperty("created_at") OffsetDateTime createdAt,
+            @JsonProperty("updated_at") OffsetDateTime updatedAt,
+            UserRef user,
+            List<Label> labels,
+            List<UserRef> assignees,
+            Milestone milestone
+    ) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Label(String name) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Milestone(String title) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Evento ping (GitHub lo envía al crear el webhook)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record PingEvent(
+        String zen,
+        @JsonProperty("hook_id") Long hookId
+) {
+}
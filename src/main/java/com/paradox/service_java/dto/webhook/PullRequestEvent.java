@@ -0,0 +1,46 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Evento pull_request de GitHub Webhooks
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record PullRequestEvent(
+        String action,
+        Integer number,
+        @JsonProperty("pull_request") PullRequest pullRequest,
+        RepositoryRef repository,
+        InstallationRef installation
+) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PullRequest(
+            Long id,
+            @JsonProperty("node_id") String nodeId,
+            Integer number,
+            String state,
+            String title,
+            String body,
+            @JsonProperty("html_url") String htmlUrl,
+            Boolean draft,
+            Boolean merged,
+            Boolean mergeable,
+            @JsonProperty("merged_by") UserRef mergedBy,
+            @JsonProperty("merged_at") OffsetDateTime mergedAt,
+            @JsonProperty("closed_at") OffsetDateTime closedAt,
+            @JsonProperty("created_at") OffsetDateTime createdAt,
+            @JsonProperty("updated_at") OffsetDateTime updatedAt,
+            UserRef user,
+            BranchRef head,
+            BranchRef base
+    ) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record BranchRef(String ref, String sha) {
+    }
+}
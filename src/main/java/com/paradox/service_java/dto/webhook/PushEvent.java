@@ -0,0 +1,42 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Evento push de GitHub Webhooks
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record PushEvent(
+        String ref, // refs/heads/main
+        String before,
+        String after,
+        Boolean forced,
+        RepositoryRef repository,
+        @JsonProperty("head_commit") Commit headCommit,
+        List<Commit> commits,
+        InstallationRef installation
+) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Commit(
+            String id,
+            @JsonProperty("tree_id") String treeId,
+            String message,
+            OffsetDateTime timestamp,
+            String url,
+            Author author,
+            List<String> added,
+            List<String> removed,
+            List<String> modified,
+            List<String> parents
+    ) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Author(String name, String email, String username) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Eventos create/delete de GitHub Webhooks (creación o borrado de branch/tag)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record RefEvent(
+        String ref, // branch/tag name
+        @JsonProperty("ref_type") String refType, // "branch" or "tag"
+        @JsonProperty("master_branch") String masterBranch,
+        RepositoryRef repository,
+        UserRef sender,
+        InstallationRef installation
+) {
+}
@@ -0,0 +1,22 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Repositorio embebido en los payloads de webhook (campos que persistimos)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record RepositoryRef(
+        Long id,
+        @JsonProperty("node_id") String nodeId,
+        String name,
+        @JsonProperty("full_name") String fullName,
+        @JsonProperty("private") Boolean privateRepo,
+        UserRef owner,
+        // En push llega como epoch en segundos, en el resto de eventos como ISO-8601
+        @JsonProperty("pushed_at") OffsetDateTime pushedAt
+) {
+}
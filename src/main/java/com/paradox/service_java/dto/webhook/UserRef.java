@@ -0,0 +1,10 @@
+package com.paradox.service_java.dto.webhook;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Usuario/cuenta de GitHub tal como aparece embebido en los payloads de webhook
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record UserRef(Long id, String login, String type) {
+}
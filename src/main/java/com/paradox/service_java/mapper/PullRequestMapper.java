@@ -1,14 +1,10 @@
 package com.paradox.service_java.mapper;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.paradox.service_java.dto.webhook.PullRequestEventDTO;
+import com.paradox.service_java.dto.webhook.PullRequestEvent;
 import com.paradox.service_java.model.PullRequest;
 import com.paradox.service_java.model.Repository;
 import org.springframework.stereotype.Component;
 
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
-
 /**
  * Mapper para convertir eventos de Pull Request de GitHub a entidades
  * Creado por DEV B (Isabella)
@@ -17,91 +13,65 @@ import java.time.format.DateTimeFormatter;
 public class PullRequestMapper {
 
     /**
-     * Convierte un JsonNode de webhook a entidad PullRequest
+     * Convierte el pull_request de un evento de webhook a entidad PullRequest nueva
      */
-    public PullRequest fromJsonNode(JsonNode json, Repository repository) {
-        JsonNode prNode = json.path("pull_request");
-
-        return PullRequest.builder()
+    public PullRequest fromEvent(PullRequestEvent.PullRequest prData, Repository repository) {
+        PullRequest entity = PullRequest.builder()
                 .repo(repository)
-                .githubPrId(prNode.path("id").asLong())
-                .number(prNode.path("number").asInt())
-                .nodeId(prNode.path("node_id").asText(null))
-                .state(prNode.path("state").asText(null))
-                .title(prNode.path("title").asText())
-                .body(prNode.path("body").asText(null))
-                .userLogin(prNode.path("user").path("login").asText(null))
-                .userId(prNode.path("user").path("id").asLong(0L))
-                .headRef(prNode.path("head").path("ref").asText(null))
-                .headSha(prNode.path("head").path("sha").asText(null))
-                .baseRef(prNode.path("base").path("ref").asText(null))
-                .baseSha(prNode.path("base").path("sha").asText(null))
-                .draft(prNode.path("draft").asBoolean(false))
-                .merged(prNode.path("merged").asBoolean(false))
-                .mergeable(prNode.path("mergeable").isMissingNode() ? null : prNode.path("mergeable").asBoolean())
-                .mergedBy(prNode.path("merged_by").path("login").asText(null))
-                .mergedAt(parseDateTime(prNode.path("merged_at").asText(null)))
-                .closedAt(parseDateTime(prNode.path("closed_at").asText(null)))
-                .htmlUrl(prNode.path("html_url").asText(null))
-                .createdAt(parseDateTime(prNode.path("created_at").asText(null)))
-                .updatedAt(parseDateTime(prNode.path("updated_at").asText(null)))
+                .number(prData.number())
+                .createdAt(prData.createdAt())
+                .updatedAt(prData.updatedAt())
                 .build();
+
+        updateEntity(entity, prData);
+
+        if (entity.getDraft() == null) {
+            entity.setDraft(false);
+        }
+        if (entity.getMerged() == null) {
+            entity.setMerged(false);
+        }
+        return entity;
     }
 
     /**
-     * Actualiza una entidad PullRequest existente con datos del DTO
+     * Actualiza una entidad PullRequest existente con datos del evento
      */
-    public void updateEntity(PullRequest entity, PullRequestEventDTO dto) {
-        PullRequestEventDTO.PullRequestData prData = dto.getPullRequest();
-
+    public void updateEntity(PullRequest entity, PullRequestEvent.PullRequest prData) {
         if (prData == null) {
             return;
         }
 
-        entity.setGithubPrId(prData.getId());
-        entity.setNodeId(prData.getNodeId());
-        entity.setState(prData.getState());
-        entity.setTitle(prData.getTitle());
-        entity.setBody(prData.getBody());
-        entity.setHtmlUrl(prData.getHtmlUrl());
-        entity.setDraft(prData.getDraft());
-        entity.setMerged(prData.getMerged());
-        entity.setMergeable(prData.getMergeable());
-        entity.setMergedAt(prData.getMergedAt());
-        entity.setClosedAt(prData.getClosedAt());
+        entity.setGithubPrId(prData.id());
+        entity.setNodeId(prData.nodeId());
+        entity.setState(prData.state());
+        entity.setTitle(prData.title() != null ? prData.title() : "");
+        entity.setBody(prData.body());
+        entity.setHtmlUrl(prData.htmlUrl());
+        entity.setDraft(prData.draft());
+        entity.setMerged(prData.merged());
+        entity.setMergeable(prData.mergeable());
+        entity.setMergedAt(prData.mergedAt());
+        entity.setClosedAt(prData.closedAt());
+        entity.setGithubUpdatedAt(prData.updatedAt());
 
-        if (prData.getUser() != null) {
-            entity.setUserLogin(prData.getUser().getLogin());
-            entity.setUserId(prData.getUser().getId());
+        if (prData.user() != null) {
+            entity.setUserLogin(prData.user().login());
+            entity.setUserId(prData.user().id());
         }
 
-        if (prData.getMergedBy() != null) {
-            entity.setMergedBy(prData.getMergedBy().getLogin());
+        if (prData.mergedBy() != null) {
+            entity.setMergedBy(prData.mergedBy().login());
         }
 
-        if (prData.getHead() != null) {
-            entity.setHeadRef(prData.getHead().getRef());
-            entity.setHeadSha(prData.getHead().getSha());
+        if (prData.head() != null) {
+            entity.setHeadRef(prData.head().ref());
+            entity.setHeadSha(prData.head().sha());
         }
 
-        if (prData.getBase() != null) {
-            entity.setBaseRef(prData.getBase().getRef());
-            entity.setBaseSha(prData.getBase().getSha());
-        }
-    }
-
-    /**
-     * Parse datetime string to OffsetDateTime
-     */
-    private OffsetDateTime parseDateTime(String dateTimeStr) {
-        if (dateTimeStr == null || dateTimeStr.isEmpty() || "null".equals(dateTimeStr)) {
-            return null;
-        }
-        try {
-            return OffsetDateTime.parse(dateTimeStr, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-        } catch (Exception e) {
-            return null;
+        if (prData.base() != null) {
+            entity.setBaseRef(prData.base().ref());
+            entity.setBaseSha(prData.base().sha());
         }
     }
 }
-
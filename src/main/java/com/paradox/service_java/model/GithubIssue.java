@@ -79,6 +79,10 @@ public class GithubIssue {
     @Column(name = "html_url")
     private String htmlUrl;
 
+    // updated_at en GitHub (updatedAt es la hora de escritura local)
+    @Column(name = "github_updated_at")
+    private OffsetDateTime githubUpdatedAt;
+
     @Column(name = "created_at", columnDefinition = "timestamptz default now()")
     private OffsetDateTime createdAt;
 
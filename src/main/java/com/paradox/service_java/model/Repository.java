@@ -87,6 +87,13 @@ public class Repository {
     @Column(name = "pushed_at")
     private OffsetDateTime pushedAt;
 
+    // Último intento del scheduler y fallos seguidos (backoff de repos que siempre fallan)
+    @Column(name = "sync_attempted_at")
+    private OffsetDateTime syncAttemptedAt;
+
+    @Column(name = "sync_failures")
+    private Integer syncFailures;
+
     @Column(name = "created_at", columnDefinition = "timestamptz default now()")
     private OffsetDateTime createdAt;
 
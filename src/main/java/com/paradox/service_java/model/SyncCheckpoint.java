@@ -0,0 +1,81 @@
+package com.paradox.service_java.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Progreso de una sincronización en curso de un recurso de un repositorio.
+ * nextUrl es la página siguiente a la última aplicada; null con la fila presente
+ * significa que ese recurso ya terminó y falta el otro.
+ * Los recorridos de commits usan resource = "commits:" + branch y headSha.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "sync_checkpoints",
+       uniqueConstraints = @UniqueConstraint(name = "sync_checkpoints_repo_resource_key", columnNames = {"repo_id", "resource"}))
+public class SyncCheckpoint {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(name = "id", columnDefinition = "uuid", updatable = false, nullable = false)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "repo_id", nullable = false)
+    private Repository repo;
+
+    @Column(name = "resource", nullable = false)
+    private String resource;
+
+    // Marca de agua con la que empezó la sincronización interrumpida
+    @Column(name = "since_mark")
+    private OffsetDateTime sinceMark;
+
+    @Column(name = "high_water_mark")
+    private OffsetDateTime highWaterMark;
+
+    @Column(name = "next_url", columnDefinition = "text")
+    private String nextUrl;
+
+    // Cabeza del branch cuyo historial se está recorriendo (solo commits)
+    @Column(name = "head_sha")
+    private String headSha;
+
+    @Column(name = "pages_done")
+    private Integer pagesDone;
+
+    @Column(name = "started_at", columnDefinition = "timestamptz default now()")
+    private OffsetDateTime startedAt;
+
+    @Column(name = "updated_at", columnDefinition = "timestamptz default now()")
+    private OffsetDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (startedAt == null) {
+            startedAt = OffsetDateTime.now();
+        }
+        if (updatedAt == null) {
+            updatedAt = OffsetDateTime.now();
+        }
+        if (pagesDone == null) {
+            pagesDone = 0;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = OffsetDateTime.now();
+    }
+}
@@ -0,0 +1,76 @@
+package com.paradox.service_java.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Cursor de sincronización incremental de un recurso (PRs, issues) de un repositorio.
+ * highWaterMark es el updated_at más alto ya persistido: solo avanza tras una
+ * sincronización completa, así que no depende de otros guardados del repositorio.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "sync_cursors",
+       uniqueConstraints = @UniqueConstraint(name = "sync_cursors_repo_resource_key", columnNames = {"repo_id", "resource"}))
+public class SyncCursor {
+
+    public static final String PULL_REQUESTS = "pull_requests";
+    public static final String ISSUES = "issues";
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(name = "id", columnDefinition = "uuid", updatable = false, nullable = false)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "repo_id", nullable = false)
+    private Repository repo;
+
+    @Column(name = "resource", nullable = false)
+    private String resource;
+
+    @Column(name = "high_water_mark")
+    private OffsetDateTime highWaterMark;
+
+    // ETag de la primera página del listado con since=highWaterMark
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "last_run_ms")
+    private Long lastRunMs;
+
+    @Column(name = "last_synced_at")
+    private OffsetDateTime lastSyncedAt;
+
+    @Column(name = "created_at", columnDefinition = "timestamptz default now()")
+    private OffsetDateTime createdAt;
+
+    @Column(name = "updated_at", columnDefinition = "timestamptz default now()")
+    private OffsetDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = OffsetDateTime.now();
+        }
+        if (updatedAt == null) {
+            updatedAt = OffsetDateTime.now();
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = OffsetDateTime.now();
+    }
+}
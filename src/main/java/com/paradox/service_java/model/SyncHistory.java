@@ -0,0 +1,110 @@
+package com.paradox.service_java.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resultado de una sincronización terminada de una instalación.
+ * phaseTimings: milisegundos por fase (sumados entre repositorios en las fases paralelas).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "sync_history")
+public class SyncHistory {
+
+    public static final String MANUAL = "manual";
+    public static final String SCHEDULED = "scheduled";
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(name = "id", columnDefinition = "uuid", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "installation_id", nullable = false)
+    private Long installationId;
+
+    // Job que la lanzó (null si vino del scheduler)
+    @Column(name = "job_id", columnDefinition = "uuid")
+    private UUID jobId;
+
+    @Column(name = "origin", nullable = false)
+    private String origin;
+
+    // full o reconcile
+    @Column(name = "mode")
+    private String mode;
+
+    @Column(name = "success", nullable = false)
+    private Boolean success;
+
+    @Column(name = "started_at", nullable = false)
+    private OffsetDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private OffsetDateTime finishedAt;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "repositories_total")
+    private Integer repositoriesTotal;
+
+    @Column(name = "repositories_done")
+    private Integer repositoriesDone;
+
+    @Column(name = "pull_requests_synced")
+    private Integer pullRequestsSynced;
+
+    @Column(name = "pull_requests_created")
+    private Integer pullRequestsCreated;
+
+    @Column(name = "pull_requests_updated")
+    private Integer pullRequestsUpdated;
+
+    @Column(name = "issues_synced")
+    private Integer issuesSynced;
+
+    @Column(name = "issues_created")
+    private Integer issuesCreated;
+
+    @Column(name = "issues_updated")
+    private Integer issuesUpdated;
+
+    @Column(name = "branches_synced")
+    private Integer branchesSynced;
+
+    @Column(name = "commits_synced")
+    private Integer commitsSynced;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "errors", columnDefinition = "jsonb")
+    private Map<String, String> errors;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "phase_timings", columnDefinition = "jsonb")
+    private Map<String, Long> phaseTimings;
+
+    @Column(name = "created_at", columnDefinition = "timestamptz default now()")
+    private OffsetDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = OffsetDateTime.now();
+        }
+    }
+}
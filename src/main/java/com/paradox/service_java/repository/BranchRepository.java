@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -63,5 +64,24 @@ public interface BranchRepository extends JpaRepository<Branch, UUID> {
            "AND (b.name = 'main' OR b.name = 'master') " +
            "ORDER BY CASE WHEN b.name = 'main' THEN 0 ELSE 1 END")
     Optional<Branch> findDefaultBranch(@Param("repoId") UUID repoId);
-}
 
+    /**
+     * Crea o mueve la cabeza de un branch en una sola sentencia (sin lookup previo).
+     * Devuelve el id del branch.
+     */
+    @Transactional
+    @Query(value = "INSERT INTO branches (id, repo_id, name, sha, commit_message, commit_author, commit_date, " +
+                   "protected, created_at, updated_at) " +
+                   "VALUES (gen_random_uuid(), :repoId, :name, :sha, :commitMessage, :commitAuthor, :commitDate, " +
+                   "false, now(), now()) " +
+                   "ON CONFLICT (repo_id, name) DO UPDATE SET sha = EXCLUDED.sha, " +
+                   "commit_message = EXCLUDED.commit_message, commit_author = EXCLUDED.commit_author, " +
+                   "commit_date = EXCLUDED.commit_date, updated_at = now() " +
+                   "RETURNING id", nativeQuery = true)
+    UUID upsertHead(@Param("repoId") UUID repoId,
+                    @Param("name") String name,
+                    @Param("sha") String sha,
+                    @Param("commitMessage") String commitMessage,
+                    @Param("commitAuthor") String commitAuthor,
+                    @Param("commitDate") OffsetDateTime commitDate);
+}
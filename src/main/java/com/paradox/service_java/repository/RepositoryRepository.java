@@ -2,7 +2,13 @@ package com.paradox.service_java.repository;
 
 import com.paradox.service_java.model.Repository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -26,5 +32,26 @@ public interface RepositoryRepository extends JpaRepository<Repository, UUID> {
     long countByPrivateRepo(Boolean privateRepo);
 
     long countByArchived(Boolean archived);
+
+    /**
+     * Solo avanza: una delivery atrasada no devuelve pushed_at a un valor anterior
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Repository r SET r.pushedAt = :pushedAt " +
+           "WHERE r.id = :id AND (r.pushedAt IS NULL OR r.pushedAt < :pushedAt)")
+    int advancePushedAt(@Param("id") UUID id, @Param("pushedAt") OffsetDateTime pushedAt);
+
+    // Resultado de los intentos del scheduler
+    @Transactional
+    @Modifying
+    @Query("UPDATE Repository r SET r.syncAttemptedAt = :attemptedAt, r.syncFailures = 0 WHERE r.id IN :ids")
+    int recordSyncSuccess(@Param("ids") Collection<UUID> ids, @Param("attemptedAt") OffsetDateTime attemptedAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Repository r SET r.syncAttemptedAt = :attemptedAt, " +
+           "r.syncFailures = COALESCE(r.syncFailures, 0) + 1 WHERE r.id IN :ids")
+    int recordSyncFailure(@Param("ids") Collection<UUID> ids, @Param("attemptedAt") OffsetDateTime attemptedAt);
 }
 
@@ -0,0 +1,34 @@
+package com.paradox.service_java.repository;
+
+import com.paradox.service_java.model.SyncCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SyncCheckpointRepository extends JpaRepository<SyncCheckpoint, UUID> {
+
+    /**
+     * Checkpoints pendientes de unos recursos de un repositorio
+     */
+    List<SyncCheckpoint> findByRepoIdAndResourceIn(UUID repoId, Collection<String> resources);
+
+    /**
+     * Recorridos de commits pendientes de un repositorio
+     */
+    List<SyncCheckpoint> findByRepoIdAndResourceStartingWith(UUID repoId, String prefix);
+
+    /**
+     * Borra los checkpoints de unos recursos al terminar su sincronización
+     */
+    @Modifying
+    @Query("DELETE FROM SyncCheckpoint c WHERE c.repo.id = :repoId AND c.resource IN :resources")
+    int deleteByRepoIdAndResourceIn(@Param("repoId") UUID repoId,
+                                    @Param("resources") Collection<String> resources);
+}
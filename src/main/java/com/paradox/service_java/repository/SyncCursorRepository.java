@@ -0,0 +1,23 @@
+package com.paradox.service_java.repository;
+
+import com.paradox.service_java.model.SyncCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SyncCursorRepository extends JpaRepository<SyncCursor, UUID> {
+
+    /**
+     * Cursor de un recurso de un repositorio
+     */
+    Optional<SyncCursor> findByRepoIdAndResource(UUID repoId, String resource);
+
+    /**
+     * Cursores de varios repositorios (sync por lotes)
+     */
+    List<SyncCursor> findByRepoIdIn(List<UUID> repoIds);
+}
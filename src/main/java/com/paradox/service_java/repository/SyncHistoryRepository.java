@@ -0,0 +1,43 @@
+package com.paradox.service_java.repository;
+
+import com.paradox.service_java.model.SyncHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SyncHistoryRepository extends JpaRepository<SyncHistory, UUID> {
+
+    /**
+     * Última sincronización terminada de una instalación
+     */
+    Optional<SyncHistory> findFirstByInstallationIdOrderByStartedAtDesc(Long installationId);
+
+    /**
+     * Última sincronización terminada de una instalación con un origen (manual / scheduled)
+     */
+    Optional<SyncHistory> findFirstByInstallationIdAndOriginOrderByStartedAtDesc(Long installationId, String origin);
+
+    long countByInstallationId(Long installationId);
+
+    long countByInstallationIdAndSuccessFalse(Long installationId);
+
+    long countByInstallationIdAndOrigin(Long installationId, String origin);
+
+    long countByInstallationIdAndOriginAndSuccessFalse(Long installationId, String origin);
+
+    /**
+     * Borra el historial de un origen anterior a una fecha (retención)
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SyncHistory h WHERE h.origin = :origin AND h.startedAt < :before")
+    int deleteByOriginAndStartedAtBefore(@Param("origin") String origin, @Param("before") OffsetDateTime before);
+}
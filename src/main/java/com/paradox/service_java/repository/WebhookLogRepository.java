@@ -2,8 +2,14 @@ package com.paradox.service_java.repository;
 
 import com.paradox.service_java.model.WebhookLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +22,98 @@ public interface WebhookLogRepository extends JpaRepository<WebhookLog, Long> {
 
     List<WebhookLog> findByProcessedFalseOrderByCreatedAtAsc();
 
+    /**
+     * Inserta la delivery con el payload crudo; Postgres lo valida y convierte a jsonb,
+     * así el servicio no necesita deserializarlo para guardarlo.
+     * Devuelve null si ya hay un log con ese delivery_id (re-entrega concurrente).
+     */
+    @Transactional
+    @Query(value = "INSERT INTO webhook_logs (event_type, delivery_id, request_payload, signature, processed, created_at) " +
+                   "VALUES (:eventType, :deliveryId, CAST(:payload AS jsonb), :signature, false, now()) " +
+                   "ON CONFLICT (delivery_id) DO NOTHING RETURNING id", nativeQuery = true)
+    Long insertRawDelivery(@Param("eventType") String eventType,
+                           @Param("deliveryId") String deliveryId,
+                           @Param("payload") String payload,
+                           @Param("signature") String signature);
+
+    @Query("SELECT w.id FROM WebhookLog w WHERE w.deliveryId = :deliveryId")
+    Optional<Long> findIdByDeliveryId(@Param("deliveryId") String deliveryId);
+
+    @Query("SELECT w.processed FROM WebhookLog w WHERE w.id = :id")
+    Optional<Boolean> findProcessedById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE WebhookLog w SET w.processed = true, w.processedAt = :processedAt, w.errorMessage = null WHERE w.id = :id")
+    int markProcessed(@Param("id") Long id, @Param("processedAt") OffsetDateTime processedAt);
+
+    @Modifying
+    @Query("UPDATE WebhookLog w SET w.processed = false, w.errorMessage = :errorMessage WHERE w.id = :id")
+    int markFailed(@Param("id") Long id, @Param("errorMessage") String errorMessage);
+
+    /**
+     * Deliveries pendientes (sin procesar y sin error) en orden de llegada, para drenar el backlog.
+     * El payload se devuelve como texto para no hidratarlo a Map.
+     */
+    @Query(value = "SELECT id AS id, event_type AS eventType, delivery_id AS deliveryId, " +
+                   "CAST(request_payload AS text) AS payload " +
+                   "FROM webhook_logs WHERE processed = false AND error_message IS NULL " +
+                   "ORDER BY created_at ASC LIMIT :limit", nativeQuery = true)
+    List<PendingDelivery> findPendingDeliveries(@Param("limit") int limit);
+
+    /**
+     * Igual que findPendingDeliveries sin las que ya están encoladas en memoria, para que
+     * no ocupen el lote
+     */
+    @Query(value = "SELECT id AS id, event_type AS eventType, delivery_id AS deliveryId, " +
+                   "CAST(request_payload AS text) AS payload " +
+                   "FROM webhook_logs WHERE processed = false AND error_message IS NULL " +
+                   "AND id NOT IN (:excludedIds) " +
+                   "ORDER BY created_at ASC LIMIT :limit", nativeQuery = true)
+    List<PendingDelivery> findPendingDeliveriesExcluding(@Param("excludedIds") Collection<Long> excludedIds,
+                                                         @Param("limit") int limit);
+
     boolean existsByDeliveryId(String deliveryId);
-}
 
+    /**
+     * Payload installation/created más reciente de una instalación. Los predicados jsonb
+     * coinciden con webhook_logs_installation_created_idx: un solo salto de índice,
+     * sin importar el tamaño del historial.
+     */
+    @Query(value = "SELECT id AS id, CAST(request_payload -> 'installation' ->> 'id' AS bigint) AS installationId, " +
+                   "CAST(request_payload -> 'repositories' AS text) AS repositories " +
+                   "FROM webhook_logs WHERE event_type = 'installation' " +
+                   "AND request_payload ->> 'action' = 'created' " +
+                   "AND request_payload -> 'installation' ->> 'id' = CAST(:installationId AS text) " +
+                   "ORDER BY created_at DESC LIMIT 1", nativeQuery = true)
+    Optional<InstallationPayload> findLatestInstallationPayload(@Param("installationId") Long installationId);
+
+    /**
+     * Payload installation/created más reciente de cada instalación (mismo índice)
+     */
+    @Query(value = "SELECT DISTINCT ON (request_payload -> 'installation' ->> 'id') id AS id, " +
+                   "CAST(request_payload -> 'installation' ->> 'id' AS bigint) AS installationId, " +
+                   "CAST(request_payload -> 'repositories' AS text) AS repositories " +
+                   "FROM webhook_logs WHERE event_type = 'installation' " +
+                   "AND request_payload ->> 'action' = 'created' " +
+                   "ORDER BY request_payload -> 'installation' ->> 'id', created_at DESC", nativeQuery = true)
+    List<InstallationPayload> findLatestInstallationPayloads();
+
+    /**
+     * Proyección ligera de una delivery pendiente
+     */
+    interface PendingDelivery {
+        Long getId();
+        String getEventType();
+        String getDeliveryId();
+        String getPayload();
+    }
+
+    /**
+     * Proyección ligera de un webhook de instalación: solo el array repositories, como texto
+     */
+    interface InstallationPayload {
+        Long getId();
+        Long getInstallationId();
+        String getRepositories();
+    }
+}
@@ -0,0 +1,277 @@
+package com.paradox.service_java.service;
+
+import com.paradox.service_java.model.Installation;
+import com.paradox.service_java.model.Repository;
+import com.paradox.service_java.model.SyncHistory;
+import com.paradox.service_java.model.SyncCursor;
+import com.paradox.service_java.repository.InstallationRepository;
+import com.paradox.service_java.repository.RepositoryRepository;
+import com.paradox.service_java.repository.SyncCursorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sincronización de fondo guiada por la actividad de cada repositorio.
+ *
+ * En cada tick, por instalación, se calcula para cada repo un intervalo objetivo: base
+ * dividido por (1 + calor), donde el calor sale del tráfico reciente de webhooks y de lo
+ * reciente que es pushedAt; archivados, deshabilitados y repos sin push en mucho tiempo
+ * van al intervalo máximo. Los repos cuya última sync (sync_cursors.last_synced_at) ya
+ * superó su intervalo entran en una cola por retraso relativo y se sincronizan como mucho
+ * github.sync.scheduler.per-installation-budget por tick. Así las llamadas a la API
+ * siguen a la actividad y ningún repo queda más de max-interval sin reconciliar.
+ * Un repo cuyo último intento falló espera intervalo * 2^fallos (hasta max-interval)
+ * desde ese intento, para que los que siempre fallan no acaparen el presupuesto.
+ */
+@Slf4j
+@Service
+public class AdaptiveSyncScheduler {
+
+    // Peso del push más reciente: un push de hace un momento vale como 4 eventos
+    private static final double PUSH_WEIGHT = 4.0;
+
+    // Tope del exponente del backoff por fallos (el intervalo ya lo acota max-interval)
+    private static final int MAX_BACKOFF_EXPONENT = 10;
+
+    private final IncrementalSyncService incrementalSyncService;
+    private final SyncJobService syncJobService;
+    private final InstallationRepository installationRepository;
+    private final RepositoryRepository repositoryRepository;
+    private final SyncCursorRepository syncCursorRepository;
+    private final RepoActivityTracker activityTracker;
+    private final GitHubRateLimiter rateLimiter;
+
+    private final boolean enabled;
+    private final int budget;
+    private final long minRemaining;
+    private final Duration minInterval;
+    private final Duration baseInterval;
+    private final Duration maxInterval;
+    private final Duration dormantAfter;
+
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final Counter scheduled;
+
+    public AdaptiveSyncScheduler(IncrementalSyncService incrementalSyncService,
+                                 SyncJobService syncJobService,
+                                 InstallationRepository installationRepository,
+                                 RepositoryRepository repositoryRepository,
+                                 SyncCursorRepository syncCursorRepository,
+                                 RepoActivityTracker activityTracker,
+                                 GitHubRateLimiter rateLimiter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${github.sync.scheduler.enabled:true}") boolean enabled,
+                                 @Value("${github.sync.scheduler.per-installation-budget:10}") int budget,
+                                 @Value("${github.sync.scheduler.min-remaining:1000}") long minRemaining,
+                                 @Value("${github.sync.scheduler.min-interval-minutes:5}") long minIntervalMinutes,
+                                 @Value("${github.sync.scheduler.base-interval-minutes:60}") long baseIntervalMinutes,
+                                 @Value("${github.sync.scheduler.max-interval-minutes:1440}") long maxIntervalMinutes,
+                                 @Value("${github.sync.scheduler.dormant-after-days:30}") long dormantAfterDays) {
+        this.incrementalSyncService = incrementalSyncService;
+        this.syncJobService = syncJobService;
+        this.installationRepository = installationRepository;
+        this.repositoryRepository = repositoryRepository;
+        this.syncCursorRepository = syncCursorRepository;
+        this.activityTracker = activityTracker;
+        this.rateLimiter = rateLimiter;
+        this.enabled = enabled;
+        this.budget = Math.max(1, budget);
+        this.minRemaining = minRemaining;
+        this.minInterval = Duration.ofMinutes(Math.max(1, minIntervalMinutes));
+        this.baseInterval = Duration.ofMinutes(Math.max(minIntervalMinutes, baseIntervalMinutes));
+        this.maxInterval = Duration.ofMinutes(Math.max(baseIntervalMinutes, maxIntervalMinutes));
+        this.dormantAfter = Duration.ofDays(Math.max(1, dormantAfterDays));
+        this.scheduled = Counter.builder("github.sync.scheduler.scheduled").register(meterRegistry);
+    }
+
+    /**
+     * Elige los repos pendientes de cada instalación y lanza su sync en segundo plano.
+     * Una instalación con una sync del scheduler aún en curso se salta hasta el siguiente tick.
+     */
+    @Scheduled(fixedDelayString = "${github.sync.scheduler.tick-ms:60000}",
+               initialDelayString = "${github.sync.scheduler.initial-delay-ms:60000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        activityTracker.prune();
+
+        OffsetDateTime now = OffsetDateTime.now();
+        for (Installation installation : installationRepository.findAll()) {
+            Long githubInstallationId = installation.getInstallationId();
+            if (installation.getSuspendedAt() != null || running.contains(githubInstallationId)) {
+                continue;
+            }
+
+            // Sin margen en el rate limit se deja pasar el tick: lo interactivo va primero
+            long remaining = rateLimiter.remaining(githubInstallationId);
+            if (remaining >= 0 && remaining < minRemaining) {
+                log.debug("Skipping scheduled sync for installation {}: {} calls remaining",
+                        githubInstallationId, remaining);
+                continue;
+            }
+
+            List<Repository> due = dueRepositories(installation, now);
+            if (due.isEmpty() || !running.add(githubInstallationId)) {
+                continue;
+            }
+            scheduled.increment(due.size());
+            log.info("Scheduling sync of {} repositories for installation {}", due.size(), githubInstallationId);
+
+            Thread.ofVirtual().name("scheduled-sync-" + githubInstallationId).start(() -> {
+                try {
+                    IncrementalSyncService.SyncSummary summary =
+                            incrementalSyncService.syncRepositories(githubInstallationId, due);
+                    syncJobService.recordHistory(summary, SyncHistory.SCHEDULED, null, SyncJobService.Mode.FULL);
+                    recordAttempts(due, summary);
+                } catch (Exception e) {
+                    log.error("Scheduled sync of installation {} failed: {}", githubInstallationId, e.getMessage(), e);
+                } finally {
+                    running.remove(githubInstallationId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Repos cuya última sync superó su intervalo, los más retrasados primero, hasta el presupuesto
+     */
+    private List<Repository> dueRepositories(Installation installation, OffsetDateTime now) {
+        List<Repository> repositories = repositoryRepository.findByInstallationId(installation.getId());
+        if (repositories.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, OffsetDateTime> lastSynced = lastSyncedByRepo(repositories);
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(
+                Comparator.comparingDouble(Candidate::overdue).reversed());
+        for (Repository repo : repositories) {
+            OffsetDateTime last = lastSynced.get(repo.getId());
+            Duration interval = intervalFor(repo, now);
+            double overdue;
+            if (failedSince(repo, last)) {
+                overdue = (double) Duration.between(repo.getSyncAttemptedAt(), now).toMillis()
+                        / failureBackoff(interval, repo.getSyncFailures()).toMillis();
+            } else {
+                overdue = last == null
+                        ? Double.MAX_VALUE
+                        : (double) Duration.between(last, now).toMillis() / interval.toMillis();
+            }
+            if (overdue >= 1.0) {
+                queue.add(new Candidate(repo, overdue));
+            }
+        }
+
+        List<Repository> due = new ArrayList<>(Math.min(budget, queue.size()));
+        while (due.size() < budget && !queue.isEmpty()) {
+            due.add(queue.poll().repo());
+        }
+        return due;
+    }
+
+    /**
+     * El último intento del scheduler falló y no hubo una sync correcta después (p.ej. manual)
+     */
+    private static boolean failedSince(Repository repo, OffsetDateTime lastSynced) {
+        return repo.getSyncFailures() != null && repo.getSyncFailures() > 0 && repo.getSyncAttemptedAt() != null
+                && (lastSynced == null || repo.getSyncAttemptedAt().isAfter(lastSynced));
+    }
+
+    private Duration failureBackoff(Duration interval, int failures) {
+        Duration backoff = interval.multipliedBy(1L << Math.min(failures, MAX_BACKOFF_EXPONENT));
+        return backoff.compareTo(maxInterval) > 0 ? maxInterval : backoff;
+    }
+
+    /**
+     * Guarda el resultado de cada repo del lote: falla si tiene error propio o si la sync
+     * entera (o el listado GraphQL del lote) no llegó a completarse
+     */
+    private void recordAttempts(List<Repository> due, IncrementalSyncService.SyncSummary summary) {
+        boolean batchFailed = !summary.isSuccess() || summary.getErrors().containsKey("GraphQL");
+        List<UUID> succeeded = new ArrayList<>();
+        List<UUID> failed = new ArrayList<>();
+        for (Repository repo : due) {
+            if (batchFailed || summary.getErrors().containsKey(repo.getFullName())) {
+                failed.add(repo.getId());
+            } else {
+                succeeded.add(repo.getId());
+            }
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        if (!succeeded.isEmpty()) {
+            repositoryRepository.recordSyncSuccess(succeeded, now);
+        }
+        if (!failed.isEmpty()) {
+            repositoryRepository.recordSyncFailure(failed, now);
+            log.info("{} scheduled repositories failed for installation {}, backing off",
+                    failed.size(), summary.getInstallationId());
+        }
+    }
+
+    /**
+     * Última sync completa de cada repo: la más vieja de sus cursores (null si falta alguno)
+     */
+    private Map<UUID, OffsetDateTime> lastSyncedByRepo(List<Repository> repositories) {
+        Map<UUID, Map<String, OffsetDateTime>> byRepo = new HashMap<>();
+        for (SyncCursor cursor : syncCursorRepository.findByRepoIdIn(
+                repositories.stream().map(Repository::getId).toList())) {
+            if (cursor.getLastSyncedAt() != null) {
+                byRepo.computeIfAbsent(cursor.getRepo().getId(), id -> new HashMap<>())
+                        .put(cursor.getResource(), cursor.getLastSyncedAt());
+            }
+        }
+
+        Map<UUID, OffsetDateTime> lastSynced = new HashMap<>();
+        byRepo.forEach((repoId, resources) -> {
+            OffsetDateTime prs = resources.get(SyncCursor.PULL_REQUESTS);
+            OffsetDateTime issues = resources.get(SyncCursor.ISSUES);
+            if (prs != null && issues != null) {
+                lastSynced.put(repoId, prs.isBefore(issues) ? prs : issues);
+            }
+        });
+        return lastSynced;
+    }
+
+    /**
+     * Intervalo objetivo entre syncs de un repo según su actividad
+     */
+    private Duration intervalFor(Repository repo, OffsetDateTime now) {
+        if (Boolean.TRUE.equals(repo.getArchived()) || Boolean.TRUE.equals(repo.getDisabled())) {
+            return maxInterval;
+        }
+
+        double heat = activityTracker.score(repo.getGithubRepoId());
+        if (repo.getPushedAt() != null) {
+            Duration sincePush = Duration.between(repo.getPushedAt(), now);
+            if (heat < 0.1 && sincePush.compareTo(dormantAfter) > 0) {
+                return maxInterval;
+            }
+            // Decae linealmente a 0 a lo largo del primer día
+            double pushRecency = 1.0 - Math.min(1.0, Math.max(0, sincePush.toMinutes()) / (24.0 * 60));
+            heat += PUSH_WEIGHT * pushRecency;
+        }
+
+        long minutes = Math.round(baseInterval.toMinutes() / (1.0 + heat));
+        return Duration.ofMinutes(Math.max(minInterval.toMinutes(), Math.min(maxInterval.toMinutes(), minutes)));
+    }
+
+    private record Candidate(Repository repo, double overdue) {
+    }
+}
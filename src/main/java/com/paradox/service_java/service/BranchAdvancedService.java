@@ -2,6 +2,7 @@ package com.paradox.service_java.service;
 
 import com.paradox.service_java.dto.BranchChangeResponse;
 import com.paradox.service_java.dto.BranchProtectionResponse;
+import com.paradox.service_java.dto.github.GitHubBranchProtection;
 import com.paradox.service_java.model.Branch;
 import com.paradox.service_java.model.PullRequest;
 import com.paradox.service_java.repository.BranchRepository;
@@ -9,11 +10,10 @@ import com.paradox.service_java.repository.PullRequestRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -29,7 +29,6 @@ public class BranchAdvancedService {
     private final BranchRepository branchRepository;
     private final PullRequestRepository pullRequestRepository;
     private final GitHubApiService gitHubApiService;
-    private final InstallationTokenService installationTokenService;
 
     /**
      * Obtener branches con cambios recientes (últimas 24 horas)
@@ -65,9 +64,10 @@ public class BranchAdvancedService {
     }
 
     /**
-     * Obtener configuración de protección de un branch desde GitHub API
+     * Obtener configuración de protección de un branch desde GitHub API.
+     * La llamada a GitHub no bloquea: el hilo de la petición se libera mientras espera.
      */
-    public BranchProtectionResponse getBranchProtection(UUID branchId, Long installationId) {
+    public Mono<BranchProtectionResponse> getBranchProtection(UUID branchId, Long installationId) {
         log.info("Getting branch protection for branch: {}", branchId);
 
         Branch branch = branchRepository.findById(branchId)
@@ -75,7 +75,7 @@ public class BranchAdvancedService {
 
         // Si no está protegido según nuestra BD, retornar respuesta simple
         if (!Boolean.TRUE.equals(branch.getProtectedBranch())) {
-            return BranchProtectionResponse.builder()
+            return Mono.just(BranchProtectionResponse.builder()
                     .branchName(branch.getName())
                     .isProtected(false)
                     .requiresReview(false)
@@ -85,50 +85,48 @@ public class BranchAdvancedService {
                     .restrictsPushes(false)
                     .allowsForcePushes(true)
                     .allowsDeletions(true)
-                    .build();
+                    .build());
         }
 
         // Si está protegido, intentar obtener detalles de GitHub API
-        try {
-            String token = installationTokenService.getInstallationToken(installationId);
-            String owner = branch.getRepository().getOwnerLogin();
-            String repo = branch.getRepository().getName();
-            String branchName = branch.getName();
-
-            Map<String, Object> protectionData = gitHubApiService.getBranchProtection(
-                    owner, repo, branchName, token
-            );
-
-            return mapProtectionData(branchName, protectionData);
+        String owner = branch.getRepository().getOwnerLogin();
+        String repo = branch.getRepository().getName();
+        String branchName = branch.getName();
+
+        return gitHubApiService.fetchBranchProtection(owner, repo, branchName, installationId)
+                .map(protectionData -> mapProtectionData(branchName, protectionData))
+                .onErrorResume(e -> {
+                    log.warn("Could not fetch branch protection from GitHub API: {}", e.getMessage());
+                    // Retornar datos básicos de nuestra BD
+                    return Mono.just(unknownProtection(branchName));
+                });
+    }
 
-        } catch (Exception e) {
-            log.warn("Could not fetch branch protection from GitHub API: {}", e.getMessage());
-            // Retornar datos básicos de nuestra BD
-            return BranchProtectionResponse.builder()
-                    .branchName(branch.getName())
-                    .isProtected(true)
-                    .requiresReview(null)
-                    .requiredReviewers(null)
-                    .requiresStatusChecks(null)
-                    .requiresUpToDateBranch(null)
-                    .restrictsPushes(null)
-                    .allowsForcePushes(null)
-                    .allowsDeletions(null)
-                    .build();
-        }
+    private BranchProtectionResponse unknownProtection(String branchName) {
+        return BranchProtectionResponse.builder()
+                .branchName(branchName)
+                .isProtected(true)
+                .requiresReview(null)
+                .requiredReviewers(null)
+                .requiresStatusChecks(null)
+                .requiresUpToDateBranch(null)
+                .restrictsPushes(null)
+                .allowsForcePushes(null)
+                .allowsDeletions(null)
+                .build();
     }
 
-    private BranchProtectionResponse mapProtectionData(String branchName, Map<String, Object> data) {
+    private BranchProtectionResponse mapProtectionData(String branchName, GitHubBranchProtection data) {
         BranchProtectionResponse.BranchProtectionResponseBuilder builder = BranchProtectionResponse.builder()
                 .branchName(branchName)
                 .isProtected(true);
 
-        if (data.containsKey("required_pull_request_reviews")) {
-            Map<String, Object> reviewsData = (Map<String, Object>) data.get("required_pull_request_reviews");
+        GitHubBranchProtection.RequiredReviews reviewsData = data.requiredPullRequestReviews();
+        if (reviewsData != null) {
             builder.requiresReview(true);
             builder.requiredReviewers(
-                    reviewsData.containsKey("required_approving_review_count")
-                            ? (Integer) reviewsData.get("required_approving_review_count")
+                    reviewsData.requiredApprovingReviewCount() != null
+                            ? reviewsData.requiredApprovingReviewCount()
                             : 1
             );
         } else {
@@ -136,27 +134,21 @@ public class BranchAdvancedService {
             builder.requiredReviewers(0);
         }
 
-        if (data.containsKey("required_status_checks")) {
-            Map<String, Object> statusData = (Map<String, Object>) data.get("required_status_checks");
+        GitHubBranchProtection.RequiredStatusChecks statusData = data.requiredStatusChecks();
+        if (statusData != null) {
             builder.requiresStatusChecks(true);
-            builder.requiresUpToDateBranch(
-                    statusData.containsKey("strict") ? (Boolean) statusData.get("strict") : false
-            );
+            builder.requiresUpToDateBranch(Boolean.TRUE.equals(statusData.strict()));
         } else {
             builder.requiresStatusChecks(false);
             builder.requiresUpToDateBranch(false);
         }
 
-        builder.restrictsPushes(data.containsKey("restrictions"));
+        builder.restrictsPushes(data.restrictions() != null);
         builder.allowsForcePushes(
-                data.containsKey("allow_force_pushes")
-                        ? (Boolean) ((Map<String, Object>) data.get("allow_force_pushes")).get("enabled")
-                        : false
+                data.allowForcePushes() != null && Boolean.TRUE.equals(data.allowForcePushes().enabled())
         );
         builder.allowsDeletions(
-                data.containsKey("allow_deletions")
-                        ? (Boolean) ((Map<String, Object>) data.get("allow_deletions")).get("enabled")
-                        : false
+                data.allowDeletions() != null && Boolean.TRUE.equals(data.allowDeletions().enabled())
         );
 
         return builder.build();
@@ -0,0 +1,340 @@
+package com.paradox.service_java.service;
+
+import com.paradox.service_java.dto.github.GitHubBranch;
+import com.paradox.service_java.dto.github.GitHubCommit;
+import com.paradox.service_java.model.Branch;
+import com.paradox.service_java.model.Repository;
+import com.paradox.service_java.model.SyncCheckpoint;
+import com.paradox.service_java.repository.BranchRepository;
+import com.paradox.service_java.repository.SyncCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Sincronización de branches y de su historial de commits.
+ *
+ * Se listan los branches y se compara cada cabeza remota con Branch.sha: los que no se
+ * movieron no cuestan nada más. Para los que sí, se recorre /commits?sha=<cabeza> página
+ * a página hasta cerrar la frontera de lo nuevo (todos los padres de los commits nuevos
+ * ya guardados o vistos) y lo nuevo va al CommitBulkWriter. Los branches que ya no
+ * aparecen en un listado completo se borran.
+ * Cada página es una transacción con su checkpoint (resource = "commits:" + branch), así
+ * que un backfill largo se retoma donde se quedó y la memoria no crece con el historial.
+ */
+@Slf4j
+@Service
+public class BranchCommitSyncService {
+
+    static final String RESOURCE_PREFIX = "commits:";
+
+    private static final int PAGE_PREFETCH = 2;
+
+    private final GitHubApiService gitHubApiService;
+    private final BranchRepository branchRepository;
+    private final CommitBulkWriter commitBulkWriter;
+    private final SyncCheckpointRepository syncCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    public BranchCommitSyncService(GitHubApiService gitHubApiService,
+                                   BranchRepository branchRepository,
+                                   CommitBulkWriter commitBulkWriter,
+                                   SyncCheckpointRepository syncCheckpointRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${github.sync.commits.enabled:true}") boolean enabled) {
+        this.gitHubApiService = gitHubApiService;
+        this.branchRepository = branchRepository;
+        this.commitBulkWriter = commitBulkWriter;
+        this.syncCheckpointRepository = syncCheckpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Resultado de sincronizar los branches de un repositorio
+     */
+    public record Result(int branchesMoved, int branchesDeleted, int commitsInserted) {
+        public static final Result NONE = new Result(0, 0, 0);
+    }
+
+    /**
+     * Sincroniza branches y commits de un repositorio. No debe llamarse dentro de otra
+     * transacción: cada página de commits abre y cierra la suya.
+     */
+    public Result syncRepository(Repository repo, Long installationId) {
+        if (!enabled) {
+            return Result.NONE;
+        }
+
+        Map<String, Branch> stored = new HashMap<>();
+        for (Branch branch : branchRepository.findByRepositoryIdOrderByNameAsc(repo.getId())) {
+            stored.put(branch.getName(), branch);
+        }
+        Map<String, SyncCheckpoint> walks = new HashMap<>();
+        for (SyncCheckpoint checkpoint : syncCheckpointRepository
+                .findByRepoIdAndResourceStartingWith(repo.getId(), RESOURCE_PREFIX)) {
+            walks.put(checkpoint.getResource().substring(RESOURCE_PREFIX.length()), checkpoint);
+        }
+
+        int moved = 0;
+        int inserted = 0;
+        Set<String> listed = new HashSet<>();
+        for (List<GitHubBranch> page : gitHubApiService.streamBranchPages(repo.getFullName(), installationId)
+                .toIterable(PAGE_PREFETCH)) {
+            for (GitHubBranch remote : page) {
+                String head = remote.headSha();
+                if (remote.name() == null || head == null) {
+                    continue;
+                }
+                listed.add(remote.name());
+                Branch local = stored.get(remote.name());
+                SyncCheckpoint pending = walks.get(remote.name());
+                if (pending != null && local == null) {
+                    // El branch se borró a mitad de recorrido: se empieza de cero
+                    SyncCheckpoint orphan = pending;
+                    transactionTemplate.executeWithoutResult(status -> syncCheckpointRepository.delete(orphan));
+                    pending = null;
+                }
+
+                // Primero se termina el recorrido interrumpido, que sigue siendo válido
+                // aunque la cabeza se haya vuelto a mover
+                if (pending != null) {
+                    log.info("Resuming commit walk of {}:{} at {}", repo.getFullName(), remote.name(), pending.getHeadSha());
+                    inserted += walk(repo, remote.name(), pending.getHeadSha(), local.getId(), pending, installationId);
+                }
+
+                String knownHead = pending != null ? pending.getHeadSha() : local != null ? local.getSha() : null;
+                if (!head.equals(knownHead)) {
+                    moved++;
+                    inserted += walk(repo, remote.name(), head, null, null, installationId);
+                }
+            }
+        }
+
+        // El listado terminó sin error: lo que no vino se borró en GitHub (p.ej. con un
+        // webhook delete perdido). Sin esto Branch nunca cuadra con las cabezas remotas.
+        int deleted = deleteMissing(repo, stored, walks, listed);
+
+        if (moved > 0 || deleted > 0 || inserted > 0) {
+            log.info("Branch sync of {}: {} branches moved, {} deleted, {} commits inserted",
+                    repo.getFullName(), moved, deleted, inserted);
+        }
+        return new Result(moved, deleted, inserted);
+    }
+
+    /**
+     * Borra los branches locales (y recorridos pendientes) que no están en el listado
+     * @return branches borrados
+     */
+    private int deleteMissing(Repository repo, Map<String, Branch> stored, Map<String, SyncCheckpoint> walks,
+                              Set<String> listed) {
+        List<Branch> gone = new ArrayList<>();
+        for (Branch branch : stored.values()) {
+            if (!listed.contains(branch.getName())) {
+                gone.add(branch);
+            }
+        }
+        List<String> staleWalks = new ArrayList<>();
+        for (String name : walks.keySet()) {
+            if (!listed.contains(name)) {
+                staleWalks.add(RESOURCE_PREFIX + name);
+            }
+        }
+        if (gone.isEmpty() && staleWalks.isEmpty()) {
+            return 0;
+        }
+
+        // commits.branch_id es ON DELETE SET NULL: los commits se conservan
+        transactionTemplate.executeWithoutResult(status -> {
+            branchRepository.deleteAllInBatch(gone);
+            if (!staleWalks.isEmpty()) {
+                syncCheckpointRepository.deleteByRepoIdAndResourceIn(repo.getId(), staleWalks);
+            }
+        });
+        for (Branch branch : gone) {
+            log.info("Branch {}:{} no longer exists on GitHub, deleted", repo.getFullName(), branch.getName());
+        }
+        return gone.size();
+    }
+
+    /**
+     * Recorre el historial desde head hasta que la frontera de lo nuevo se cierra: todo
+     * padre de un commit insertado ya está guardado o apareció en el recorrido. Así entran
+     * también los commits traídos por un merge (p.ej. desde un fork) que /commits lista,
+     * por fecha, detrás de commits ya conocidos. Un recorrido retomado de checkpoint no
+     * conoce la frontera anterior y para en la primera página ya guardada entera.
+     * Sin branchId (recorrido nuevo) la primera página mueve la cabeza del branch en la
+     * misma transacción que deja el checkpoint: o se ven las dos cosas o ninguna.
+     * @return commits insertados
+     */
+    private int walk(Repository repo, String branchName, String head, UUID branchId,
+                     SyncCheckpoint checkpoint, Long installationId) {
+        Walk state = new Walk(branchId, checkpoint, checkpoint == null ? new HashSet<>() : null);
+        String resumeFrom = checkpoint != null ? checkpoint.getNextUrl() : null;
+
+        try (Stream<GitHubApiService.ChangePage<GitHubCommit>> pages = gitHubApiService
+                .streamCommitPages(repo.getFullName(), head, resumeFrom, installationId)
+                .toStream(PAGE_PREFETCH)) {
+            Iterator<GitHubApiService.ChangePage<GitHubCommit>> it = pages.iterator();
+            boolean done = !it.hasNext();
+            if (done && state.branchId == null) {
+                transactionTemplate.executeWithoutResult(status -> branchRepository.upsertHead(
+                        repo.getId(), branchName, head, null, null, null));
+            }
+            while (!done) {
+                GitHubApiService.ChangePage<GitHubCommit> page = it.next();
+                List<CommitBulkWriter.CommitRow> fresh = newCommits(repo.getId(), page.items());
+                boolean reachedKnown = page.next() == null || (state.frontier != null
+                        ? frontierClosed(repo.getId(), state.frontier, page.items(), fresh)
+                        : fresh.isEmpty());
+                GitHubCommit headCommit = page.items().isEmpty() ? null : page.items().get(0);
+
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (state.branchId == null) {
+                        state.branchId = branchRepository.upsertHead(repo.getId(), branchName, head,
+                                message(headCommit), authorName(headCommit), authorDate(headCommit));
+                    }
+                    state.inserted += commitBulkWriter.insertMissing(repo.getId(), state.branchId, fresh).size();
+                    if (reachedKnown) {
+                        if (state.checkpoint != null && state.checkpoint.getId() != null) {
+                            syncCheckpointRepository.delete(state.checkpoint);
+                        }
+                    } else {
+                        state.checkpoint = syncCheckpointRepository.save(nextCheckpoint(
+                                state.checkpoint, repo, branchName, head, page.next()));
+                    }
+                });
+                done = reachedKnown || !it.hasNext();
+            }
+        }
+        return state.inserted;
+    }
+
+    /**
+     * Commits de la página que no están guardados
+     */
+    private List<CommitBulkWriter.CommitRow> newCommits(UUID repoId, List<GitHubCommit> commits) {
+        List<String> shas = new ArrayList<>(commits.size());
+        for (GitHubCommit commit : commits) {
+            shas.add(commit.sha());
+        }
+        Set<String> existing = commitBulkWriter.findExisting(repoId, shas);
+
+        List<CommitBulkWriter.CommitRow> rows = new ArrayList<>(commits.size());
+        for (GitHubCommit commit : commits) {
+            if (!existing.contains(commit.sha())) {
+                rows.add(toRow(commit));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Actualiza la frontera con una página: salen los commits vistos, entran los padres de
+     * los nuevos y se descartan los que ya están guardados.
+     * @return true si no queda ningún padre por ver
+     */
+    private boolean frontierClosed(UUID repoId, Set<String> frontier, List<GitHubCommit> page,
+                                   List<CommitBulkWriter.CommitRow> fresh) {
+        Set<String> seen = new HashSet<>(page.size());
+        for (GitHubCommit commit : page) {
+            seen.add(commit.sha());
+            frontier.remove(commit.sha());
+        }
+        for (CommitBulkWriter.CommitRow row : fresh) {
+            for (String parent : row.parentShas()) {
+                if (!seen.contains(parent)) {
+                    frontier.add(parent);
+                }
+            }
+        }
+        if (!frontier.isEmpty()) {
+            frontier.removeAll(commitBulkWriter.findExisting(repoId, new ArrayList<>(frontier)));
+        }
+        return frontier.isEmpty();
+    }
+
+    private CommitBulkWriter.CommitRow toRow(GitHubCommit commit) {
+        GitHubCommit.Detail detail = commit.commit();
+        GitHubCommit.Signature author = detail != null ? detail.author() : null;
+        GitHubCommit.Signature committer = detail != null ? detail.committer() : null;
+
+        List<String> parents = new ArrayList<>(commit.parents().size());
+        for (GitHubCommit.ParentRef parent : commit.parents()) {
+            parents.add(parent.sha());
+        }
+
+        // El listado no trae stats: additions/deletions/changedFiles quedan a null
+        return new CommitBulkWriter.CommitRow(
+                commit.sha(), message(commit),
+                author != null ? author.name() : null,
+                author != null ? author.email() : null,
+                commit.author() != null ? commit.author().login() : null,
+                author != null ? author.date() : null,
+                committer != null ? committer.name() : null,
+                committer != null ? committer.email() : null,
+                committer != null ? committer.date() : null,
+                detail != null && detail.tree() != null ? detail.tree().sha() : null,
+                parents,
+                null, null, null,
+                commit.htmlUrl()
+        );
+    }
+
+    private SyncCheckpoint nextCheckpoint(SyncCheckpoint current, Repository repo, String branchName,
+                                          String head, String next) {
+        SyncCheckpoint target = current != null ? current : SyncCheckpoint.builder()
+                .repo(repo)
+                .resource(RESOURCE_PREFIX + branchName)
+                .headSha(head)
+                .pagesDone(0)
+                .build();
+        target.setNextUrl(next);
+        target.setPagesDone(target.getPagesDone() + 1);
+        return target;
+    }
+
+    private static String message(GitHubCommit commit) {
+        return commit != null && commit.commit() != null ? commit.commit().message() : null;
+    }
+
+    private static String authorName(GitHubCommit commit) {
+        return commit != null && commit.commit() != null && commit.commit().author() != null
+                ? commit.commit().author().name() : null;
+    }
+
+    private static OffsetDateTime authorDate(GitHubCommit commit) {
+        return commit != null && commit.commit() != null && commit.commit().author() != null
+                ? commit.commit().author().date() : null;
+    }
+
+    /**
+     * Estado de un recorrido entre transacciones de página
+     */
+    private static final class Walk {
+        private UUID branchId;
+        private SyncCheckpoint checkpoint;
+        private int inserted;
+        // Padres de commits nuevos aún no vistos; null en un recorrido retomado
+        private final Set<String> frontier;
+
+        Walk(UUID branchId, SyncCheckpoint checkpoint, Set<String> frontier) {
+            this.branchId = branchId;
+            this.checkpoint = checkpoint;
+            this.frontier = frontier;
+        }
+    }
+}
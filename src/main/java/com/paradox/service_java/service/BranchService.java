@@ -53,6 +53,17 @@ public class BranchService {
         return branchRepository.save(branch);
     }
 
+    /**
+     * Mueve la cabeza del branch (creándolo si no existe) con un único upsert.
+     * Pensado para el camino caliente de los push webhooks; devuelve el id del branch.
+     */
+    @Transactional
+    public UUID upsertHead(Repository repository, String branchName, String sha,
+                           String commitMessage, String commitAuthor, OffsetDateTime commitDate) {
+        return branchRepository.upsertHead(repository.getId(), branchName, sha,
+                commitMessage, commitAuthor, commitDate);
+    }
+
     /**
      * Buscar branch por repositorio y nombre
      */
@@ -1,8 +1,7 @@
 package com.paradox.service_java.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -15,13 +14,13 @@ import java.util.Map;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class CSharpNotificationService {
 
     private final WebClient webClient;
 
-    @Value("${csharp.service.url:http://localhost:4001}")
-    private String csharpServiceUrl;
+    public CSharpNotificationService(@Qualifier("csharpWebClient") WebClient csharpWebClient) {
+        this.webClient = csharpWebClient;
+    }
 
     /**
      * Notifica a C# Service cuando hay un nuevo commit
@@ -97,7 +96,7 @@ public class CSharpNotificationService {
      */
     private void sendNotification(String endpoint, Map<String, Object> payload) {
         webClient.post()
-            .uri(csharpServiceUrl + endpoint)
+            .uri(endpoint)
             .bodyValue(payload)
             .retrieve()
             .bodyToMono(Void.class)
@@ -1,6 +1,7 @@
 package com.paradox.service_java.service;
 
 import com.paradox.service_java.dto.CommitFileResponse;
+import com.paradox.service_java.dto.github.GitHubCommit;
 import com.paradox.service_java.model.Commit;
 import com.paradox.service_java.repository.CommitRepository;
 import lombok.RequiredArgsConstructor;
@@ -8,9 +9,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -25,7 +27,7 @@ public class CommitAdvancedService {
 
     private final CommitRepository commitRepository;
     private final GitHubApiService gitHubApiService;
-    private final InstallationTokenService installationTokenService;
+    private final CommitFilesCache commitFilesCache;
 
     /**
      * Obtener commits de un branch específico por nombre
@@ -40,38 +42,34 @@ public class CommitAdvancedService {
     }
 
     /**
-     * Obtener archivos modificados en un commit desde GitHub API
+     * Obtener archivos modificados en un commit desde GitHub API.
+     * Con un SHA completo el resultado es inmutable y se sirve de CommitFilesCache.
+     * La caché de disco se lee en boundedElastic; la llamada a GitHub no bloquea.
      */
-    public List<CommitFileResponse> getCommitFiles(String sha, Long installationId, String owner, String repoName) {
+    public Mono<List<CommitFileResponse>> getCommitFiles(String sha, Long installationId, String owner, String repoName) {
         log.info("Getting files for commit: {} in repo: {}/{}", sha, owner, repoName);
 
-        try {
-            String token = installationTokenService.getInstallationToken(installationId);
-            Map<String, Object> commitData = gitHubApiService.getCommitFiles(owner, repoName, sha, token);
-
-            if (!commitData.containsKey("files")) {
-                return List.of();
-            }
-
-            List<Map<String, Object>> files = (List<Map<String, Object>>) commitData.get("files");
-
-            return files.stream()
-                    .map(file -> CommitFileResponse.builder()
-                            .filename((String) file.get("filename"))
-                            .status((String) file.get("status"))
-                            .additions(file.containsKey("additions") ? ((Number) file.get("additions")).intValue() : 0)
-                            .deletions(file.containsKey("deletions") ? ((Number) file.get("deletions")).intValue() : 0)
-                            .changes(file.containsKey("changes") ? ((Number) file.get("changes")).intValue() : 0)
-                            .blobUrl((String) file.get("blob_url"))
-                            .rawUrl((String) file.get("raw_url"))
-                            .patch(file.containsKey("patch") ? (String) file.get("patch") : null)
-                            .build())
-                    .collect(Collectors.toList());
-
-        } catch (Exception e) {
-            log.error("Error fetching commit files from GitHub API: {}", e.getMessage());
-            throw new RuntimeException("Could not fetch commit files: " + e.getMessage());
-        }
+        return Mono.fromCallable(() -> commitFilesCache.get(installationId, owner, repoName, sha))
+                .subscribeOn(Schedulers.boundedElastic())
+                .switchIfEmpty(Mono.defer(() -> gitHubApiService.fetchCommitFiles(owner, repoName, sha, installationId)
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(commit -> commitFilesCache.put(installationId, owner, repoName, sha, commit))))
+                .map(commitData -> commitData.files().stream()
+                        .map(file -> CommitFileResponse.builder()
+                                .filename(file.filename())
+                                .status(file.status())
+                                .additions(file.additions() != null ? file.additions() : 0)
+                                .deletions(file.deletions() != null ? file.deletions() : 0)
+                                .changes(file.changes() != null ? file.changes() : 0)
+                                .blobUrl(file.blobUrl())
+                                .rawUrl(file.rawUrl())
+                                .patch(file.patch())
+                                .build())
+                        .collect(Collectors.toList()))
+                .onErrorMap(e -> {
+                    log.error("Error fetching commit files from GitHub API: {}", e.getMessage());
+                    return new RuntimeException("Could not fetch commit files: " + e.getMessage());
+                });
     }
 }
 
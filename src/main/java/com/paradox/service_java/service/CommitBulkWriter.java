@@ -0,0 +1,227 @@
+package com.paradox.service_java.service;
+
+import com.paradox.service_java.util.ShaBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Escritura masiva de commits.
+ *
+ * En vez de un lookup + save por commit, cada lote cuesta como mucho dos round trips:
+ * un SELECT ... sha = ANY(?) para confirmar los SHAs que el filtro de "ya vistos" marca
+ * como posibles duplicados, y un INSERT multi-fila ... ON CONFLICT DO NOTHING RETURNING sha
+ * para el resto (los SHAs devueltos son los realmente insertados). Si el filtro dice que ningún SHA se vio antes, el SELECT se omite; si todos
+ * resultan existir, se omite el INSERT.
+ */
+@Slf4j
+@Service
+public class CommitBulkWriter {
+
+    private static final String EXISTING_SHAS_SQL =
+            "SELECT sha FROM commits WHERE repo_id = ? AND sha = ANY(?)";
+
+    // 18 parámetros por fila: muy por debajo del límite de 65535 de Postgres
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String INSERT =
+            "INSERT INTO commits (id, repo_id, branch_id, sha, message, author_name, author_email, author_login, " +
+            "author_date, committer_name, committer_email, committer_date, tree_sha, parent_shas, " +
+            "additions, deletions, changed_files, html_url, verified, created_at) VALUES ";
+
+    private static final String ROW =
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false, now())";
+
+    private static final String ON_CONFLICT = " ON CONFLICT (repo_id, sha) DO NOTHING RETURNING sha";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int filterExpectedShas;
+    private final double filterFalsePositiveRate;
+
+    // Filtro por repo, LRU acotado para no crecer con el número de repos
+    private final Map<UUID, ShaBloomFilter> seenShas;
+
+    public CommitBulkWriter(JdbcTemplate jdbcTemplate,
+                            @Value("${commits.seen-filter.expected-shas:20000}") int filterExpectedShas,
+                            @Value("${commits.seen-filter.false-positive-rate:0.01}") double filterFalsePositiveRate,
+                            @Value("${commits.seen-filter.max-repositories:512}") int maxRepositories) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.filterExpectedShas = filterExpectedShas;
+        this.filterFalsePositiveRate = filterFalsePositiveRate;
+        int maxRepos = Math.max(1, maxRepositories);
+        this.seenShas = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, ShaBloomFilter> eldest) {
+                return size() > maxRepos;
+            }
+        });
+    }
+
+    /**
+     * Fila a insertar en commits
+     */
+    public record CommitRow(
+            String sha,
+            String message,
+            String authorName,
+            String authorEmail,
+            String authorLogin,
+            OffsetDateTime authorDate,
+            String committerName,
+            String committerEmail,
+            OffsetDateTime committerDate,
+            String treeSha,
+            List<String> parentShas,
+            Integer additions,
+            Integer deletions,
+            Integer changedFiles,
+            String htmlUrl
+    ) {
+    }
+
+    /**
+     * Inserta los commits que no existan en el repo.
+     * @return los commits realmente insertados, en el orden recibido
+     */
+    @Transactional
+    public List<CommitRow> insertMissing(UUID repoId, UUID branchId, List<CommitRow> commits) {
+        if (commits.isEmpty()) {
+            return List.of();
+        }
+
+        // Deduplicar dentro del propio lote (force-push replays pueden repetir SHAs)
+        Map<String, CommitRow> bySha = new LinkedHashMap<>();
+        for (CommitRow commit : commits) {
+            if (commit.sha() != null) {
+                bySha.putIfAbsent(commit.sha(), commit);
+            }
+        }
+
+        ShaBloomFilter filter = filterFor(repoId);
+
+        // Solo los que el filtro cree haber visto necesitan confirmarse en BD
+        List<String> maybeSeen = new ArrayList<>();
+        for (String sha : bySha.keySet()) {
+            if (filter.mightContain(sha)) {
+                maybeSeen.add(sha);
+            }
+        }
+
+        if (!maybeSeen.isEmpty()) {
+            Set<String> existing = findExistingShas(repoId, maybeSeen);
+            bySha.keySet().removeAll(existing);
+        }
+
+        List<CommitRow> candidates = new ArrayList<>(bySha.values());
+        List<CommitRow> inserted = candidates.isEmpty() ? List.of() : batchInsert(repoId, branchId, candidates);
+
+        for (CommitRow commit : commits) {
+            if (commit.sha() != null) {
+                filter.put(commit.sha());
+            }
+        }
+
+        log.debug("Bulk commit write for repo {}: received={}, confirmed={}, inserted={}",
+                repoId, commits.size(), maybeSeen.size(), inserted.size());
+        return inserted;
+    }
+
+    /**
+     * SHAs de la lista que ya están guardados en el repo (una sola consulta)
+     */
+    public Set<String> findExisting(UUID repoId, List<String> shas) {
+        return shas.isEmpty() ? Set.of() : findExistingShas(repoId, shas);
+    }
+
+    private ShaBloomFilter filterFor(UUID repoId) {
+        synchronized (seenShas) {
+            ShaBloomFilter filter = seenShas.get(repoId);
+            if (filter == null || filter.isSaturated()) {
+                filter = new ShaBloomFilter(filterExpectedShas, filterFalsePositiveRate);
+                seenShas.put(repoId, filter);
+            }
+            return filter;
+        }
+    }
+
+    private Set<String> findExistingShas(UUID repoId, List<String> shas) {
+        Set<String> existing = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXISTING_SHAS_SQL);
+            ps.setObject(1, repoId);
+            ps.setArray(2, con.createArrayOf("text", shas.toArray()));
+            return ps;
+        }, rs -> {
+            existing.add(rs.getString(1));
+        });
+        return existing;
+    }
+
+    private List<CommitRow> batchInsert(UUID repoId, UUID branchId, List<CommitRow> rows) {
+        Set<String> insertedShas = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+            List<CommitRow> chunk = rows.subList(from, Math.min(rows.size(), from + CHUNK_SIZE));
+            String sql = INSERT + String.join(", ", Collections.nCopies(chunk.size(), ROW)) + ON_CONFLICT;
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                int i = 1;
+                for (CommitRow row : chunk) {
+                    ps.setObject(i++, UUID.randomUUID());
+                    ps.setObject(i++, repoId);
+                    ps.setObject(i++, branchId);
+                    ps.setString(i++, row.sha());
+                    ps.setString(i++, row.message() != null ? row.message() : "");
+                    ps.setString(i++, row.authorName());
+                    ps.setString(i++, row.authorEmail());
+                    ps.setString(i++, row.authorLogin());
+                    ps.setObject(i++, row.authorDate());
+                    ps.setString(i++, row.committerName());
+                    ps.setString(i++, row.committerEmail());
+                    ps.setObject(i++, row.committerDate());
+                    ps.setString(i++, row.treeSha());
+                    ps.setArray(i++, con.createArrayOf("text",
+                            row.parentShas() != null ? row.parentShas().toArray() : new Object[0]));
+                    setNullableInt(ps, i++, row.additions());
+                    setNullableInt(ps, i++, row.deletions());
+                    setNullableInt(ps, i++, row.changedFiles());
+                    ps.setString(i++, row.htmlUrl());
+                }
+                return ps;
+            }, rs -> {
+                insertedShas.add(rs.getString(1));
+            });
+        }
+
+        // Solo los que devolvió RETURNING: los que chocaron (ON CONFLICT) ya existían
+        List<CommitRow> inserted = new ArrayList<>(insertedShas.size());
+        for (CommitRow row : rows) {
+            if (insertedShas.contains(row.sha())) {
+                inserted.add(row);
+            }
+        }
+        return inserted;
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+}
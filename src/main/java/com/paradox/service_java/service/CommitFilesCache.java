@@ -0,0 +1,449 @@
+package com.paradox.service_java.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paradox.service_java.dto.github.GitHubCommit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caché direccionada por contenido de los commits con sus archivos (y patches).
+ *
+ * Un commit identificado por su SHA completo no cambia nunca, así que no hace falta
+ * revalidarlo: se guarda por (instalación, repo, SHA) en dos niveles.
+ *  - Memoria: LRU acotado por tamaño aproximado en bytes.
+ *  - Disco: segmentos append-only con las entradas comprimidas en gzip. Al superar el
+ *    tamaño máximo se borra el segmento más antiguo entero. El índice se reconstruye
+ *    leyendo los segmentos al arrancar. El directorio se bloquea (cache.lock) para una
+ *    sola instancia; otra que lo encuentre ocupado trabaja solo en memoria.
+ * Solo se cachean SHAs de 40 hex; ramas, tags o SHAs abreviados siguen yendo a GitHub.
+ */
+@Slf4j
+@Service
+public class CommitFilesCache {
+
+    private static final Pattern FULL_SHA = Pattern.compile("^[0-9a-fA-F]{40}$");
+    private static final String SEGMENT_PREFIX = "commits-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOCK_FILE = "cache.lock";
+
+    // Más que cualquier clave real: un prefijo mayor es basura de una escritura a medias
+    private static final int MAX_KEY_BYTES = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final long segmentBytes;
+    private final Path directory;
+
+    // Nivel 1: LRU en memoria (acceso sincronizado sobre el propio mapa)
+    private final LinkedHashMap<String, MemoryEntry> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    // Nivel 2: índice de disco y segmentos (escrituras sincronizadas sobre segments)
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<Long, Segment> segmentsById = new ConcurrentHashMap<>();
+    private long diskBytes;
+    private boolean diskEnabled;
+    private FileLock directoryLock;
+
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+
+    public CommitFilesCache(ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${github.commit-cache.memory-max-bytes:67108864}") long maxMemoryBytes,
+                            @Value("${github.commit-cache.disk-max-bytes:1073741824}") long maxDiskBytes,
+                            @Value("${github.commit-cache.segment-bytes:67108864}") long segmentBytes,
+                            @Value("${github.commit-cache.directory:${java.io.tmpdir}/paradox-commit-cache}") String directory) {
+        this.objectMapper = objectMapper;
+        this.maxMemoryBytes = Math.max(0, maxMemoryBytes);
+        this.maxDiskBytes = Math.max(0, maxDiskBytes);
+        this.segmentBytes = Math.max(1024 * 1024, segmentBytes);
+        this.directory = Path.of(directory);
+
+        this.memoryHits = Counter.builder("github.commit_cache.requests").tag("result", "memory_hit").register(meterRegistry);
+        this.diskHits = Counter.builder("github.commit_cache.requests").tag("result", "disk_hit").register(meterRegistry);
+        this.misses = Counter.builder("github.commit_cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("github.commit_cache.memory_bytes", this, c -> c.memoryBytes()).register(meterRegistry);
+        Gauge.builder("github.commit_cache.disk_bytes", this, c -> c.diskBytes()).register(meterRegistry);
+
+        openDisk();
+    }
+
+    /**
+     * Solo un SHA completo identifica contenido inmutable
+     */
+    public static boolean isImmutableRef(String ref) {
+        return ref != null && FULL_SHA.matcher(ref).matches();
+    }
+
+    public GitHubCommit get(Long installationId, String owner, String repo, String sha) {
+        if (!isImmutableRef(sha)) {
+            return null;
+        }
+        String key = key(installationId, owner, repo, sha);
+
+        synchronized (memory) {
+            MemoryEntry entry = memory.get(key);
+            if (entry != null) {
+                memoryHits.increment();
+                return entry.commit();
+            }
+        }
+
+        GitHubCommit fromDisk = readDisk(key);
+        if (fromDisk != null) {
+            diskHits.increment();
+            putMemory(key, fromDisk, estimateSize(fromDisk));
+            return fromDisk;
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    public void put(Long installationId, String owner, String repo, String sha, GitHubCommit commit) {
+        if (!isImmutableRef(sha) || commit == null) {
+            return;
+        }
+        String key = key(installationId, owner, repo, sha);
+        putMemory(key, commit, estimateSize(commit));
+        if (!index.containsKey(key)) {
+            writeDisk(key, commit);
+        }
+    }
+
+    public long memoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    public long diskBytes() {
+        synchronized (segments) {
+            return diskBytes;
+        }
+    }
+
+    // ===== Memoria =====
+
+    private record MemoryEntry(GitHubCommit commit, long size) {
+    }
+
+    private void putMemory(String key, GitHubCommit commit, long size) {
+        if (size > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            MemoryEntry previous = memory.put(key, new MemoryEntry(commit, size));
+            if (previous != null) {
+                memoryBytes -= previous.size();
+            }
+            memoryBytes += size;
+
+            Iterator<MemoryEntry> eldest = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Aproximación barata del tamaño en memoria: domina el texto de los patches
+     */
+    private static long estimateSize(GitHubCommit commit) {
+        long size = 256;
+        for (GitHubCommit.File file : commit.files()) {
+            size += 128;
+            size += 2L * (length(file.filename()) + length(file.status()) + length(file.blobUrl())
+                    + length(file.rawUrl()) + length(file.patch()));
+        }
+        return size;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    // ===== Disco =====
+
+    /**
+     * Posición de una entrada: segmento, offset y longitud del bloque gzip
+     */
+    private record Location(long segmentId, long offset, int length) {
+    }
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        long size;
+
+        Segment(long id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+    }
+
+    private void openDisk() {
+        if (maxDiskBytes == 0) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            if (!lockDirectory()) {
+                log.warn("Commit files disk cache disabled, {} is in use by another instance", directory);
+                return;
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                                && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .sorted()
+                        .forEach(this::loadSegment);
+            }
+            diskEnabled = true;
+            log.info("Commit files cache: {} entries in {} segments ({} bytes) at {}",
+                    index.size(), segments.size(), diskBytes, directory);
+        } catch (IOException e) {
+            log.warn("Commit files disk cache disabled, cannot use {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Los segmentos se escriben sin coordinación entre procesos: el directorio es de quien
+     * tiene el lock, que se mantiene hasta close()
+     */
+    private boolean lockDirectory() throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null; // otra instancia en esta misma JVM
+        }
+        if (lock == null) {
+            channel.close();
+            return false;
+        }
+        directoryLock = lock;
+        return true;
+    }
+
+    /**
+     * Recorre un segmento existente para reconstruir el índice.
+     * Formato de entrada: [int keyLen][key UTF-8][int dataLen][gzip JSON]
+     * Una longitud imposible se trata como el final del segmento (escritura a medias).
+     */
+    private void loadSegment(Path path) {
+        String name = path.getFileName().toString();
+        long parsedId;
+        try {
+            parsedId = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        long id = parsedId;
+
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long fileSize = channel.size();
+            long valid = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (true) {
+                    int keyLength = in.readInt();
+                    if (keyLength <= 0 || keyLength > MAX_KEY_BYTES) {
+                        break;
+                    }
+                    byte[] key = in.readNBytes(keyLength);
+                    if (key.length != keyLength) {
+                        break;
+                    }
+                    int dataLength = in.readInt();
+                    long dataOffset = valid + 4 + keyLength + 4;
+                    if (dataLength < 0 || dataOffset + dataLength > fileSize) {
+                        break;
+                    }
+                    in.skipNBytes(dataLength);
+                    index.put(new String(key, StandardCharsets.UTF_8), new Location(id, dataOffset, dataLength));
+                    valid = dataOffset + dataLength;
+                }
+            } catch (EOFException e) {
+                // fin del segmento (o escritura a medias al final, que se descarta)
+            }
+            channel.truncate(valid);
+            Segment segment = new Segment(id, path, channel, valid);
+            segments.addLast(segment);
+            segmentsById.put(id, segment);
+            diskBytes += valid;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Skipping unreadable commit cache segment {}: {}", path, e.getMessage());
+            index.values().removeIf(location -> location.segmentId() == id);
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException closeError) {
+                    log.debug("Error closing commit cache segment {}: {}", path, closeError.getMessage());
+                }
+            }
+        }
+    }
+
+    private GitHubCommit readDisk(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        Segment segment = segmentsById.get(location.segmentId());
+        if (segment == null) {
+            index.remove(key, location);
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(location.length());
+            while (buffer.hasRemaining()) {
+                if (segment.channel.read(buffer, location.offset() + buffer.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(buffer.array()))) {
+                return objectMapper.readValue(in, GitHubCommit.class);
+            }
+        } catch (IOException e) {
+            // Segmento borrado por evicción mientras se leía, o entrada corrupta
+            log.debug("Commit cache read failed for {}: {}", key, e.getMessage());
+            index.remove(key, location);
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, GitHubCommit commit) {
+        if (!diskEnabled) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                objectMapper.writeValue(gzip, commit);
+            }
+            byte[] data = compressed.toByteArray();
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+            ByteBuffer record = ByteBuffer.allocate(4 + keyBytes.length + 4 + data.length);
+            record.putInt(keyBytes.length).put(keyBytes).putInt(data.length).put(data).flip();
+
+            synchronized (segments) {
+                if (index.containsKey(key)) {
+                    return;
+                }
+                Segment segment = currentSegment(record.remaining());
+                long offset = segment.size;
+                while (record.hasRemaining()) {
+                    segment.channel.write(record, segment.size + record.position());
+                }
+                segment.size += record.limit();
+                diskBytes += record.limit();
+                index.put(key, new Location(segment.id, offset + 4 + keyBytes.length + 4, data.length));
+                evictSegments();
+            }
+        } catch (IOException e) {
+            log.warn("Could not write commit {} to disk cache: {}", key, e.getMessage());
+        }
+    }
+
+    private Segment currentSegment(int recordSize) throws IOException {
+        Segment last = segments.peekLast();
+        if (last != null && last.size + recordSize <= segmentBytes) {
+            return last;
+        }
+        long id = last != null ? last.id + 1 : 0;
+        Path path = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel, 0);
+        segments.addLast(segment);
+        segmentsById.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Evicción por tamaño: se descartan segmentos completos, del más antiguo al más nuevo
+     */
+    private void evictSegments() {
+        while (diskBytes > maxDiskBytes && segments.size() > 1) {
+            Segment oldest = segments.pollFirst();
+            segmentsById.remove(oldest.id);
+            diskBytes -= oldest.size;
+            index.values().removeIf(location -> location.segmentId() == oldest.id);
+            try {
+                oldest.channel.close();
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                log.warn("Could not delete commit cache segment {}: {}", oldest.path, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        synchronized (segments) {
+            for (Segment segment : segments) {
+                try {
+                    segment.channel.force(false);
+                    segment.channel.close();
+                } catch (IOException e) {
+                    log.debug("Error closing commit cache segment {}: {}", segment.path, e.getMessage());
+                }
+            }
+            if (directoryLock != null) {
+                try {
+                    directoryLock.release();
+                    directoryLock.channel().close();
+                } catch (IOException e) {
+                    log.debug("Error releasing commit cache lock {}: {}", directory, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static String key(Long installationId, String owner, String repo, String sha) {
+        return installationId + "|" + owner.toLowerCase() + "/" + repo.toLowerCase() + "|" + sha.toLowerCase();
+    }
+}
@@ -0,0 +1,352 @@
+package com.paradox.service_java.service;
+
+import com.paradox.service_java.dto.github.GitHubIssue;
+import com.paradox.service_java.dto.github.GitHubPullRequest;
+import com.paradox.service_java.model.Installation;
+import com.paradox.service_java.model.Repository;
+import com.paradox.service_java.repository.InstallationRepository;
+import com.paradox.service_java.repository.RepositoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reconciliación por digests: comprueba si algo cambió antes de paginar listados.
+ *
+ * Una sonda GraphQL por lotes de repositorios trae, por repo, el total y el updatedAt más
+ * reciente de PRs e issues y las cabezas de los branches (RepoDigest), y se compara con
+ * el mismo digest calculado sobre la base. Los repos iguales no cuestan más llamadas.
+ * En los distintos se corre la sync incremental de lo que difiere (PRs/issues desde el
+ * cursor, branches y commits) y, si el digest del recurso sigue sin cuadrar (huecos
+ * anteriores al cursor, filas sin github_updated_at, borrados), se baja por ventanas de
+ * updatedAt (años, meses, días) comparando digests. Solo en las ventanas que no coinciden
+ * se listan los (number, updatedAt) y se comparan elemento a elemento: se vuelven a traer
+ * los que faltan o están atrasados y se borran los que GitHub ya no resuelve.
+ *
+ * Sin GraphQL para un repo (inaccesible o sonda fallida) se cae a la sync incremental completa.
+ */
+@Slf4j
+@Service
+public class DigestReconciliationService {
+
+    // Primer año con actividad posible en GitHub: la raíz de las ventanas
+    private static final int FIRST_YEAR = 2008;
+
+    // search no devuelve más resultados por consulta
+    private static final int SEARCH_LIMIT = 1000;
+
+    private static final int PAGE_PREFETCH = 2;
+
+    private final IncrementalSyncService incrementalSyncService;
+    private final GitHubGraphQlService gitHubGraphQlService;
+    private final InstallationRepository installationRepository;
+    private final RepositoryRepository repositoryRepository;
+    private final SyncDigestReader syncDigestReader;
+    private final SyncBulkWriter syncBulkWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final int fetchThreshold;
+
+    public DigestReconciliationService(IncrementalSyncService incrementalSyncService,
+                                       GitHubGraphQlService gitHubGraphQlService,
+                                       InstallationRepository installationRepository,
+                                       RepositoryRepository repositoryRepository,
+                                       SyncDigestReader syncDigestReader,
+                                       SyncBulkWriter syncBulkWriter,
+                                       TransactionTemplate transactionTemplate,
+                                       @Value("${github.reconcile.fetch-threshold:100}") int fetchThreshold) {
+        this.incrementalSyncService = incrementalSyncService;
+        this.gitHubGraphQlService = gitHubGraphQlService;
+        this.installationRepository = installationRepository;
+        this.repositoryRepository = repositoryRepository;
+        this.syncDigestReader = syncDigestReader;
+        this.syncBulkWriter = syncBulkWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.fetchThreshold = Math.max(1, Math.min(fetchThreshold, SEARCH_LIMIT));
+    }
+
+    /**
+     * Reconcilia todos los repositorios de una instalación
+     */
+    public IncrementalSyncService.SyncSummary reconcile(Long githubInstallationId) {
+        return reconcile(githubInstallationId, new IncrementalSyncService.SyncSummary());
+    }
+
+    /**
+     * Igual que reconcile(Long), acumulando sobre un resumen del llamador
+     */
+    public IncrementalSyncService.SyncSummary reconcile(Long githubInstallationId,
+                                                         IncrementalSyncService.SyncSummary summary) {
+        log.info("Starting digest reconciliation for installation: {}", githubInstallationId);
+        summary.setStartTime(OffsetDateTime.now());
+        summary.setInstallationId(githubInstallationId);
+
+        try {
+            long start = System.nanoTime();
+            Installation installation = installationRepository.findByInstallationId(githubInstallationId)
+                    .orElseThrow(() -> new RuntimeException("Installation not found: " + githubInstallationId));
+            List<Repository> repositories = repositoryRepository.findByInstallationId(installation.getId());
+            summary.setRepositoriesTotal(repositories.size());
+            summary.addPhaseTime(IncrementalSyncService.SyncSummary.PHASE_DISCOVERY, start);
+
+            start = System.nanoTime();
+            // Lo que se cree localmente desde aquí no puede haber faltado en los listados
+            OffsetDateTime probeStart = OffsetDateTime.now();
+            Map<UUID, RepoDigest> local = syncDigestReader.rootDigests(
+                    repositories.stream().map(Repository::getId).toList());
+            Map<String, RepoDigest> remote = new HashMap<>();
+            List<Repository> changed = probe(githubInstallationId, repositories, local, remote, summary);
+            summary.addPhaseTime(IncrementalSyncService.SyncSummary.PHASE_PROBE, start);
+
+            log.info("Digest reconciliation of installation {}: {} of {} repositories differ",
+                    githubInstallationId, changed.size(), repositories.size());
+
+            incrementalSyncService.forEachRepository(changed, githubInstallationId, summary,
+                    repo -> reconcileRepository(repo, githubInstallationId,
+                            remote.get(repo.getFullName()), local.get(repo.getId()), probeStart, summary));
+
+            summary.setEndTime(OffsetDateTime.now());
+            summary.setSuccess(true);
+            log.info("Digest reconciliation completed for installation {}: {}", githubInstallationId, summary);
+
+        } catch (Exception e) {
+            log.error("Error in digest reconciliation for installation {}: {}", githubInstallationId, e.getMessage(), e);
+            summary.setSuccess(false);
+            summary.setEndTime(OffsetDateTime.now());
+            summary.addError("GLOBAL", e.getMessage());
+        }
+        return summary;
+    }
+
+    /**
+     * Compara cada lote de la sonda con los digests locales según llega y devuelve los
+     * repos distintos, con su digest remoto en remote. Si la sonda falla, todo lo aún no
+     * comparado va por la sync incremental.
+     */
+    private List<Repository> probe(Long githubInstallationId, List<Repository> repositories,
+                                   Map<UUID, RepoDigest> local, Map<String, RepoDigest> remote,
+                                   IncrementalSyncService.SyncSummary summary) {
+        if (repositories.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Repository> pending = new HashMap<>();
+        for (Repository repo : repositories) {
+            pending.put(repo.getFullName(), repo);
+        }
+
+        List<Repository> changed = new ArrayList<>();
+        try {
+            for (Map<String, RepoDigest> chunk : gitHubGraphQlService
+                    .probeDigests(githubInstallationId, repositories.stream().map(Repository::getFullName).toList())
+                    .toIterable(1)) {
+                for (Map.Entry<String, RepoDigest> entry : chunk.entrySet()) {
+                    Repository repo = pending.remove(entry.getKey());
+                    if (repo == null) {
+                        continue;
+                    }
+                    if (matches(entry.getValue(), local.get(repo.getId()))) {
+                        summary.repositoryDone();
+                    } else {
+                        remote.put(repo.getFullName(), entry.getValue());
+                        changed.add(repo);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Digest probe failed for installation {}, falling back to incremental sync: {}",
+                    githubInstallationId, e.getMessage());
+            summary.addError("DigestProbe", e.getMessage());
+        }
+        // Inaccesibles por GraphQL o sin comparar por el fallo: sin digest remoto
+        changed.addAll(pending.values());
+        return changed;
+    }
+
+    private void reconcileRepository(Repository repo, Long githubInstallationId, RepoDigest remote,
+                                     RepoDigest local, OffsetDateTime probeStart,
+                                     IncrementalSyncService.SyncSummary summary) {
+        if (remote == null || local == null) {
+            incrementalSyncService.syncRepository(repo, githubInstallationId, summary);
+            return;
+        }
+
+        List<RepoDigest.Kind> differing = new ArrayList<>(2);
+        for (RepoDigest.Kind kind : RepoDigest.Kind.values()) {
+            if (!remote.of(kind).matches(local.of(kind))) {
+                differing.add(kind);
+            }
+        }
+
+        if (!differing.isEmpty()) {
+            // Lo normal es que el cambio sea posterior al cursor: la sync incremental lo trae
+            incrementalSyncService.syncChanges(repo, githubInstallationId, summary);
+
+            RepoDigest after = syncDigestReader.rootDigests(List.of(repo.getId())).get(repo.getId());
+            for (RepoDigest.Kind kind : differing) {
+                if (!remote.of(kind).matches(after.of(kind))) {
+                    long start = System.nanoTime();
+                    repair(repo, githubInstallationId, kind, probeStart, summary);
+                    summary.addPhaseTime(IncrementalSyncService.SyncSummary.PHASE_REPAIR, start);
+                }
+            }
+        }
+
+        if (remote.branchHeads() == null || !remote.branchHeads().equals(local.branchHeads())) {
+            incrementalSyncService.syncHistory(repo, githubInstallationId, summary);
+        }
+    }
+
+    /**
+     * Baja nivel a nivel (años, meses, días) solo por las ventanas cuyo digest difiere y
+     * compara elemento a elemento las que ya son hojas: pocas en GitHub o de un día.
+     */
+    private void repair(Repository repo, Long githubInstallationId, RepoDigest.Kind kind,
+                        OffsetDateTime probeStart, IncrementalSyncService.SyncSummary summary) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<RepoDigest.TimeWindow> level = RepoDigest.TimeWindow.years(FIRST_YEAR, now);
+        int windows = 0;
+        int fetched = 0;
+        int deleted = 0;
+
+        while (!level.isEmpty()) {
+            List<RepoDigest.ResourceDigest> remote = gitHubGraphQlService
+                    .windowDigests(githubInstallationId, repo.getFullName(), kind, level).block();
+            List<RepoDigest.ResourceDigest> local = syncDigestReader.windowDigests(repo.getId(), kind, level);
+
+            List<RepoDigest.TimeWindow> next = new ArrayList<>();
+            for (int i = 0; i < level.size(); i++) {
+                RepoDigest.TimeWindow window = level.get(i);
+                RepoDigest.ResourceDigest remoteDigest = remote.get(i);
+                if (remoteDigest.matches(local.get(i))) {
+                    continue;
+                }
+                if (remoteDigest.count() > fetchThreshold && window.splittable()) {
+                    next.addAll(window.split(now));
+                    continue;
+                }
+                int[] result = compareWindow(repo, githubInstallationId, kind, window,
+                        remoteDigest.count() <= SEARCH_LIMIT, probeStart, summary);
+                fetched += result[0];
+                deleted += result[1];
+                windows++;
+            }
+            level = next;
+        }
+        log.info("Repaired {} of {}: {} windows compared, {} items re-fetched, {} deleted",
+                kind, repo.getFullName(), windows, fetched, deleted);
+    }
+
+    /**
+     * Diff por elemento de una ventana: se vuelven a traer los que faltan o tienen un
+     * updatedAt anterior, y los locales que GitHub ya no lista en la ventana. De estos,
+     * los que la relectura da por inexistentes (borrados o transferidos) se borran, si
+     * el listado estaba completo y la fila es anterior a la sonda. Devuelve {traídos, borrados}.
+     */
+    private int[] compareWindow(Repository repo, Long githubInstallationId, RepoDigest.Kind kind,
+                                RepoDigest.TimeWindow window, boolean complete, OffsetDateTime probeStart,
+                                IncrementalSyncService.SyncSummary summary) {
+        Map<Integer, OffsetDateTime> remote = gitHubGraphQlService
+                .windowStamps(githubInstallationId, repo.getFullName(), kind, window).block();
+        Map<Integer, OffsetDateTime> local = syncDigestReader.windowStamps(repo.getId(), kind, window);
+        if (remote == null) {
+            return new int[] {0, 0};
+        }
+        if (!complete) {
+            log.warn("Window {}..{} of {} has more {} than search returns ({}), comparing the first ones",
+                    window.from(), window.to(), repo.getFullName(), kind, SEARCH_LIMIT);
+        }
+
+        List<Integer> numbers = new ArrayList<>();
+        for (Map.Entry<Integer, OffsetDateTime> stamp : remote.entrySet()) {
+            if (!RepoDigest.upToDate(local.get(stamp.getKey()), stamp.getValue())) {
+                numbers.add(stamp.getKey());
+            }
+        }
+        Set<Integer> localOnly = new HashSet<>();
+        if (complete) {
+            for (Integer number : local.keySet()) {
+                if (!remote.containsKey(number)) {
+                    localOnly.add(number);
+                }
+            }
+            numbers.addAll(localOnly);
+        }
+        numbers.sort(null);
+
+        List<Integer> missing = new ArrayList<>();
+        int fetched = fetch(repo, githubInstallationId, kind, numbers, missing, summary);
+        missing.retainAll(localOnly);
+
+        int deleted = 0;
+        if (!missing.isEmpty()) {
+            deleted = kind == RepoDigest.Kind.PULL_REQUESTS
+                    ? syncBulkWriter.deletePullRequests(repo.getId(), missing, probeStart)
+                    : syncBulkWriter.deleteIssues(repo.getId(), missing, probeStart);
+            log.info("Deleted {} {} of {} no longer on GitHub: {}", deleted, kind, repo.getFullName(), missing);
+        }
+        return new int[] {fetched, deleted};
+    }
+
+    /**
+     * Trae los elementos por number y los aplica lote a lote con el mismo upsert de la
+     * sync; los que GitHub ya no resuelve se añaden a missing
+     */
+    private int fetch(Repository repo, Long githubInstallationId, RepoDigest.Kind kind, List<Integer> numbers,
+                      List<Integer> missing, IncrementalSyncService.SyncSummary summary) {
+        if (numbers.isEmpty()) {
+            return 0;
+        }
+        int items = 0;
+        if (kind == RepoDigest.Kind.PULL_REQUESTS) {
+            for (GitHubGraphQlService.Lookup<GitHubPullRequest> page : gitHubGraphQlService
+                    .fetchPullRequests(githubInstallationId, repo.getFullName(), numbers).toIterable(PAGE_PREFETCH)) {
+                missing.addAll(page.missing());
+                if (page.found().isEmpty()) {
+                    continue;
+                }
+                SyncBulkWriter.UpsertResult result = transactionTemplate.execute(status ->
+                        syncBulkWriter.upsertPullRequests(repo.getId(), page.found()));
+                if (result != null) {
+                    summary.addPullRequestsSynced(result.total());
+                    summary.addPullRequestsCreated(result.created());
+                    summary.addPullRequestsUpdated(result.updated());
+                }
+                items += page.found().size();
+            }
+        } else {
+            for (GitHubGraphQlService.Lookup<GitHubIssue> page : gitHubGraphQlService
+                    .fetchIssues(githubInstallationId, repo.getFullName(), numbers).toIterable(PAGE_PREFETCH)) {
+                missing.addAll(page.missing());
+                if (page.found().isEmpty()) {
+                    continue;
+                }
+                SyncBulkWriter.UpsertResult result = transactionTemplate.execute(status ->
+                        syncBulkWriter.upsertIssues(repo.getId(), page.found()));
+                if (result != null) {
+                    summary.addIssuesSynced(result.total());
+                    summary.addIssuesCreated(result.created());
+                    summary.addIssuesUpdated(result.updated());
+                }
+                items += page.found().size();
+            }
+        }
+        return items;
+    }
+
+    private static boolean matches(RepoDigest remote, RepoDigest local) {
+        return local != null
+                && remote.pullRequests().matches(local.pullRequests())
+                && remote.issues().matches(local.issues())
+                && remote.branchHeads() != null
+                && remote.branchHeads().equals(local.branchHeads());
+    }
+}
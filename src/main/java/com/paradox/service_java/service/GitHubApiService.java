@@ -1,26 +1,87 @@
 package com.paradox.service_java.service;
 
+import com.paradox.service_java.config.WebClientConfig;
+import com.paradox.service_java.dto.github.GitHubBranch;
+import com.paradox.service_java.dto.github.GitHubBranchProtection;
+import com.paradox.service_java.dto.github.GitHubCommit;
+import com.paradox.service_java.dto.github.GitHubIssue;
+import com.paradox.service_java.dto.github.GitHubPullRequest;
+import com.paradox.service_java.dto.github.GitHubRepository;
+import com.paradox.service_java.dto.github.GitHubReview;
 import com.paradox.service_java.util.GitHubJwtGenerator;
+import com.paradox.service_java.util.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
+/**
+ * Cliente de la API REST de GitHub.
+ *
+ * Las llamadas con token de instalación reciben el installationId y resuelven el token
+ * (cacheado) internamente. Todas las GET de instalación son condicionales: se envía el
+ * ETag / Last-Modified guardado y un 304 devuelve el cuerpo ya decodificado de la caché.
+ * Las respuestas se enlazan directamente a records tipados (dto.github).
+ * Cada lectura tiene variante no bloqueante (fetch*, stream*) que devuelve Mono/Flux;
+ * los get* equivalentes solo hacen block() sobre ella.
+ */
 @Service
 public class GitHubApiService {
     private final WebClient webClient;
     private final GitHubJwtGenerator jwtGenerator;
+    private final InstallationTokenService installationTokenService;
+    private final GitHubResponseCache responseCache;
+    private final GitHubRateLimiter rateLimiter;
+    // GETs idénticas concurrentes (misma instalación y URL) comparten una sola petición
+    private final SingleFlight<String> singleFlight = new SingleFlight<>();
+    private final DefaultUriBuilderFactory uriFactory = new DefaultUriBuilderFactory(WebClientConfig.GITHUB_API);
 
     private static final ParameterizedTypeReference<Map<String, Object>> MAP_REF = new ParameterizedTypeReference<>() {};
 
-    public GitHubApiService(WebClient.Builder webClientBuilder, GitHubJwtGenerator jwtGenerator) {
-        this.webClient = webClientBuilder.baseUrl("https://api.github.com").build();
+    private static final int PAGE_SIZE = 100;
+    private static final int RATE_LIMIT_RETRIES = 3;
+
+    public GitHubApiService(@Qualifier("githubWebClient") WebClient githubWebClient,
+                            GitHubJwtGenerator jwtGenerator,
+                            InstallationTokenService installationTokenService,
+                            GitHubResponseCache responseCache,
+                            GitHubRateLimiter rateLimiter,
+                            MeterRegistry meterRegistry) {
+        this.webClient = githubWebClient;
         this.jwtGenerator = jwtGenerator;
+        this.installationTokenService = installationTokenService;
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+
+        FunctionCounter.builder("github.single_flight.requests", singleFlight, SingleFlight::leaders)
+                .tag("result", "leader").register(meterRegistry);
+        FunctionCounter.builder("github.single_flight.requests", singleFlight, SingleFlight::joined)
+                .tag("result", "joined").register(meterRegistry);
+        Gauge.builder("github.single_flight.in_flight", singleFlight, SingleFlight::inFlight)
+                .register(meterRegistry);
     }
 
     private HttpHeaders defaultAppHeaders(String bearer) {
@@ -35,12 +96,18 @@ public class GitHubApiService {
     public Map<String, Object> getInstallation(Long installationId) {
         String jwt = jwtGenerator.generateJwt();
         try {
-            return this.webClient.get()
-                    .uri(uriBuilder -> uriBuilder.path("/app/installations/{id}").build(installationId))
-                    .headers(h -> h.addAll(defaultAppHeaders(jwt)))
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve()
-                    .bodyToMono(MAP_REF)
+            return rateLimiter.acquire(GitHubRateLimiter.APP_BUCKET, GitHubRateLimiter.Priority.INTERACTIVE)
+                    .then(this.webClient.get()
+                            .uri(uriBuilder -> uriBuilder.path("/app/installations/{id}").build(installationId))
+                            .headers(h -> h.addAll(defaultAppHeaders(jwt)))
+                            .accept(MediaType.APPLICATION_JSON)
+                            .retrieve()
+                            .toEntity(MAP_REF))
+                    .doOnNext(entity -> rateLimiter.onResponse(GitHubRateLimiter.APP_BUCKET,
+                            entity.getStatusCode().value(), entity.getHeaders()))
+                    .doOnError(WebClientResponseException.class, ex -> rateLimiter.onError(
+                            GitHubRateLimiter.APP_BUCKET, ex))
+                    .map(entity -> entity.getBody())
                     .block();
         } catch (WebClientResponseException ex) {
             throw new IllegalStateException(ex.getStatusCode().value() + " " + ex.getStatusText() + " from GET https://api.github.com/app/installations/" + installationId + " - " + ex.getResponseBodyAsString(), ex);
@@ -48,53 +115,381 @@ public class GitHubApiService {
     }
 
     /**
-     * Obtiene los Pull Requests de un repositorio
+     * Obtiene los Pull Requests de un repositorio (todas las páginas)
      * @param repoFullName Nombre completo del repo (owner/repo)
      * @param state Estado de los PRs: open, closed, all
-     * @param token Token de instalación
+     * @param installationId Id de la instalación de GitHub
      */
-    public List<Map<String, Object>> getPullRequests(String repoFullName, String state, String token) {
-        try {
-            return this.webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/repos/{owner}/{repo}/pulls")
-                            .queryParam("state", state)
-                            .queryParam("per_page", 100)
-                            .build(repoFullName.split("/")[0], repoFullName.split("/")[1]))
-                    .headers(h -> h.addAll(defaultInstallationHeaders(token)))
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {})
-                    .block();
-        } catch (WebClientResponseException ex) {
-            throw new IllegalStateException("Error fetching PRs from " + repoFullName + ": " + ex.getMessage(), ex);
-        }
+    public List<GitHubPullRequest> getPullRequests(String repoFullName, String state, Long installationId) {
+        return collectAll(streamPullRequestPages(repoFullName, state, installationId));
+    }
+
+    /**
+     * Pull Requests de un repositorio página a página, siguiendo el header Link rel="next".
+     * Cada página se pide cuando el consumidor la demanda: con toIterable(2) se procesa la
+     * página N mientras la N+1 está en vuelo, con memoria acotada a un par de páginas.
+     */
+    public Flux<List<GitHubPullRequest>> streamPullRequestPages(String repoFullName, String state, Long installationId) {
+        String[] parts = repoFullName.split("/");
+        return paginate(uriBuilder -> uriBuilder
+                        .path("/repos/{owner}/{repo}/pulls")
+                        .queryParam("state", state)
+                        .queryParam("per_page", PAGE_SIZE)
+                        .build(parts[0], parts[1]),
+                installationId, listOf(GitHubPullRequest.class), Function.identity(), "PRs from " + repoFullName);
     }
 
     /**
-     * Obtiene los Issues de un repositorio
+     * Obtiene los Issues de un repositorio (todas las páginas)
      * @param repoFullName Nombre completo del repo (owner/repo)
      * @param state Estado de los issues: open, closed, all
-     * @param token Token de instalación
+     * @param installationId Id de la instalación de GitHub
      */
-    public List<Map<String, Object>> getIssues(String repoFullName, String state, String token) {
-        try {
-            return this.webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/repos/{owner}/{repo}/issues")
-                            .queryParam("state", state)
-                            .queryParam("per_page", 100)
-                            .build(repoFullName.split("/")[0], repoFullName.split("/")[1]))
-                    .headers(h -> h.addAll(defaultInstallationHeaders(token)))
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {})
-                    .block();
-        } catch (WebClientResponseException ex) {
-            throw new IllegalStateException("Error fetching issues from " + repoFullName + ": " + ex.getMessage(), ex);
+    public List<GitHubIssue> getIssues(String repoFullName, String state, Long installationId) {
+        return collectAll(streamIssuePages(repoFullName, state, installationId));
+    }
+
+    /**
+     * Issues de un repositorio página a página (ver streamPullRequestPages)
+     */
+    public Flux<List<GitHubIssue>> streamIssuePages(String repoFullName, String state, Long installationId) {
+        String[] parts = repoFullName.split("/");
+        return paginate(uriBuilder -> uriBuilder
+                        .path("/repos/{owner}/{repo}/issues")
+                        .queryParam("state", state)
+                        .queryParam("per_page", PAGE_SIZE)
+                        .build(parts[0], parts[1]),
+                installationId, listOf(GitHubIssue.class), Function.identity(), "issues from " + repoFullName);
+    }
+
+    /**
+     * PRs (abiertos y cerrados) actualizados desde since, del más reciente al más antiguo.
+     * /pulls no admite since: se ordena por updated desc y se deja de paginar en cuanto una
+     * página baja de la marca de agua. Ver paginateChanges para etag y resumeFrom.
+     */
+    public Flux<ChangePage<GitHubPullRequest>> streamPullRequestChanges(String repoFullName, OffsetDateTime since,
+                                                                        String etag, String resumeFrom,
+                                                                        Long installationId) {
+        String[] parts = repoFullName.split("/");
+        return paginateChanges(uriBuilder -> uriBuilder
+                        .path("/repos/{owner}/{repo}/pulls")
+                        .queryParam("state", "all")
+                        .queryParam("sort", "updated")
+                        .queryParam("direction", "desc")
+                        .queryParam("per_page", PAGE_SIZE)
+                        .build(parts[0], parts[1]),
+                installationId, GitHubPullRequest.class, GitHubPullRequest::updatedAt, since, etag, resumeFrom,
+                "PR changes from " + repoFullName);
+    }
+
+    /**
+     * Issues (abiertos y cerrados, incluye PRs) actualizados desde since. GitHub filtra en
+     * servidor con since=; el orden updated desc permite cortar igual que en los PRs.
+     */
+    public Flux<ChangePage<GitHubIssue>> streamIssueChanges(String repoFullName, OffsetDateTime since,
+                                                            String etag, String resumeFrom,
+                                                            Long installationId) {
+        String[] parts = repoFullName.split("/");
+        return paginateChanges(uriBuilder -> {
+                    uriBuilder.path("/repos/{owner}/{repo}/issues")
+                            .queryParam("state", "all")
+                            .queryParam("sort", "updated")
+                            .queryParam("direction", "desc")
+                            .queryParam("per_page", PAGE_SIZE);
+                    if (since != null) {
+                        uriBuilder.queryParam("since", since.toInstant().toString());
+                    }
+                    return uriBuilder.build(parts[0], parts[1]);
+                },
+                installationId, GitHubIssue.class, GitHubIssue::updatedAt, since, etag, resumeFrom,
+                "issue changes from " + repoFullName);
+    }
+
+    /**
+     * Página de un listado de cambios. etag solo viene en la primera página: es el validador
+     * a guardar para la próxima sincronización. next es la URL de la siguiente página
+     * (null en la última), el punto desde el que retomar el listado.
+     */
+    public record ChangePage<E>(List<E> items, String etag, String next) {}
+
+    /**
+     * Branches de un repositorio página a página, con el SHA de cada cabeza
+     */
+    public Flux<List<GitHubBranch>> streamBranchPages(String repoFullName, Long installationId) {
+        String[] parts = repoFullName.split("/");
+        return paginate(uriBuilder -> uriBuilder
+                        .path("/repos/{owner}/{repo}/branches")
+                        .queryParam("per_page", PAGE_SIZE)
+                        .build(parts[0], parts[1]),
+                installationId, listOf(GitHubBranch.class), Function.identity(), "branches from " + repoFullName);
+    }
+
+    /**
+     * Historia de commits alcanzable desde headSha, del más nuevo al más viejo, página a
+     * página. Con resumeFrom (el next de una página ya procesada) continúa desde ahí.
+     * Quien consume corta en cuanto llega a commits ya guardados. No se cachea: la URL
+     * cambia con cada cabeza y las páginas del backfill no se vuelven a pedir.
+     */
+    public Flux<ChangePage<GitHubCommit>> streamCommitPages(String repoFullName, String headSha, String resumeFrom,
+                                                            Long installationId) {
+        String[] parts = repoFullName.split("/");
+        URI first = resumeFrom != null ? URI.create(resumeFrom) : uriFactory.builder()
+                .path("/repos/{owner}/{repo}/commits")
+                .queryParam("sha", headSha)
+                .queryParam("per_page", PAGE_SIZE)
+                .build(parts[0], parts[1]);
+        BiFunction<List<GitHubCommit>, HttpHeaders, Page<GitHubCommit>> toPage = (body, headers) -> new Page<>(
+                body != null ? body : List.of(),
+                nextLink(headers.getFirst(HttpHeaders.LINK)),
+                null);
+        return followPages(installationId, first, null, false, listOf(GitHubCommit.class), toPage,
+                        UnaryOperator.identity())
+                .map(page -> new ChangePage<>(page.items(), null, page.next()))
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> new IllegalStateException("Error fetching commits from " + repoFullName + ": " + ex.getMessage(), ex));
+    }
+
+    /**
+     * Repositorios accesibles por la instalación, página a página.
+     * La respuesta viene envuelta en {total_count, repositories}.
+     */
+    public Flux<List<GitHubRepository>> streamInstallationRepositoryPages(Long installationId) {
+        return paginate(uriBuilder -> uriBuilder
+                        .path("/installation/repositories")
+                        .queryParam("per_page", PAGE_SIZE)
+                        .build(),
+                installationId, single(GitHubRepository.InstallationPage.class),
+                GitHubRepository.InstallationPage::repositories,
+                "installation repositories");
+    }
+
+    /**
+     * Recorre la paginación: pide la primera página y expande mientras haya Link rel="next".
+     * Cada página es una GET condicional independiente; solo la primera se cachea.
+     */
+    private <B, E> Flux<List<E>> paginate(Function<UriBuilder, URI> firstPage, Long installationId,
+                                          BodyReader<B> bodyReader,
+                                          Function<B, List<E>> items,
+                                          String description) {
+        BiFunction<B, HttpHeaders, Page<E>> toPage = (body, headers) -> new Page<>(
+                body != null ? items.apply(body) : List.of(),
+                nextLink(headers.getFirst(HttpHeaders.LINK)),
+                headers.getETag());
+
+        return followPages(installationId, firstPage.apply(uriFactory.builder()), null, true, bodyReader, toPage,
+                        UnaryOperator.identity())
+                .map(Page::items)
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> new IllegalStateException("Error fetching " + description + ": " + ex.getMessage(), ex));
+    }
+
+    /**
+     * Recorre un listado ordenado por updated desc hasta la marca de agua since: de cada
+     * página se quedan los elementos con updated_at >= since y, si alguno quedó por debajo,
+     * no se pide la siguiente. since null = listado completo.
+     * La primera página se pide con If-None-Match: etag (el guardado en el cursor); un 304
+     * significa que no cambió nada y el Flux termina sin emitir.
+     * Con resumeFrom (el next de una página ya procesada) el listado continúa desde esa URL;
+     * entonces no se envía etag ni se devuelve el de la página.
+     */
+    private <E> Flux<ChangePage<E>> paginateChanges(Function<UriBuilder, URI> firstPage, Long installationId,
+                                                    Class<E> elementType,
+                                                    Function<E, OffsetDateTime> updatedAt,
+                                                    OffsetDateTime since, String etag, String resumeFrom,
+                                                    String description) {
+        // Lo cacheado es la página cruda (todos los elementos y el Link): el corte por since
+        // se aplica después, así un 304 sirve igual a una pasada con otra marca de agua
+        BiFunction<List<E>, HttpHeaders, Page<E>> toPage = (body, headers) -> new Page<>(
+                body != null ? body : List.of(),
+                nextLink(headers.getFirst(HttpHeaders.LINK)),
+                headers.getETag());
+        UnaryOperator<Page<E>> sinceFilter = page -> {
+            if (since == null) {
+                return page;
+            }
+            List<E> changed = page.items().stream()
+                    .filter(item -> updatedAt.apply(item) == null || !updatedAt.apply(item).isBefore(since))
+                    .toList();
+            String next = changed.size() < page.items().size() ? null : page.next();
+            return new Page<>(changed, next, page.etag());
+        };
+
+        Flux<Page<E>> pages = resumeFrom != null
+                ? followPages(installationId, URI.create(resumeFrom), null, false, listOf(elementType), toPage, sinceFilter)
+                : followPages(installationId, firstPage.apply(uriFactory.builder()), etag, true, listOf(elementType),
+                        toPage, sinceFilter);
+        return pages
+                .index()
+                .map(indexed -> new ChangePage<>(indexed.getT2().items(),
+                        indexed.getT1() == 0 && resumeFrom == null ? indexed.getT2().etag() : null,
+                        indexed.getT2().next()))
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> new IllegalStateException("Error fetching " + description + ": " + ex.getMessage(), ex));
+    }
+
+    /**
+     * Pide la primera página y expande mientras haya next. Las paginaciones las usan las
+     * sincronizaciones, así que van con prioridad de segundo plano; firstEtag solo aplica
+     * a la primera página (ver conditionalGet).
+     * Solo la primera página va a la caché (si cacheFirst): las siguientes casi nunca se
+     * repiten y llenarían la caché de listas grandes.
+     * view se aplica a cada página ya servida (de red o de caché) antes de decidir si se
+     * sigue: puede recortar elementos y cortar el next.
+     */
+    private <B, E> Flux<Page<E>> followPages(Long installationId, URI first, String firstEtag, boolean cacheFirst,
+                                             BodyReader<B> bodyReader,
+                                             BiFunction<B, HttpHeaders, Page<E>> toPage,
+                                             UnaryOperator<Page<E>> view) {
+        GitHubRateLimiter.Priority priority = GitHubRateLimiter.Priority.BACKGROUND;
+        return conditionalGet(installationId, priority, first, firstEtag, cacheFirst, bodyReader, toPage)
+                .map(view)
+                .expand(page -> page.next() != null
+                        ? conditionalGet(installationId, priority, URI.create(page.next()), null, false, bodyReader, toPage)
+                                .map(view)
+                        : Mono.empty());
+    }
+
+    /**
+     * GET condicional con token de instalación.
+     * Envía If-None-Match / If-Modified-Since si hay entrada cacheada; en 304 devuelve el
+     * valor cacheado sin leer cuerpo, en 2xx decodifica y guarda los nuevos validadores.
+     * Con knownEtag (validador persistido por el llamador) se envía ese en lugar del de la
+     * caché y un 304 termina vacío: el llamador ya tiene esos datos. Sin cacheable no se
+     * consulta ni se guarda nada en la caché.
+     * Antes de salir pide turno al rate limiter; si GitHub rechaza por rate limit se
+     * reintenta (el siguiente acquire espera a que el bucket se desbloquee).
+     */
+    @SuppressWarnings("unchecked")
+    private <B, T> Mono<T> conditionalGet(Long installationId, GitHubRateLimiter.Priority priority, URI uri,
+                                          String knownEtag, boolean cacheable,
+                                          BodyReader<B> bodyReader,
+                                          BiFunction<B, HttpHeaders, T> decode) {
+        String url = uri.toString();
+
+        // El token suele salir de caché, pero un miss hace una llamada bloqueante
+        return rateLimiter.acquire(installationId, priority)
+                .then(Mono.fromCallable(() -> installationTokenService.getInstallationToken(installationId))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(token -> {
+                    GitHubResponseCache.Entry cached = knownEtag == null && cacheable
+                            ? responseCache.get(installationId, url) : null;
+
+                    return this.webClient.get()
+                            .uri(uri)
+                            .headers(h -> {
+                                h.addAll(defaultInstallationHeaders(token));
+                                if (knownEtag != null) {
+                                    h.setIfNoneMatch(knownEtag);
+                                } else if (cached != null && cached.etag() != null) {
+                                    h.setIfNoneMatch(cached.etag());
+                                } else if (cached != null && cached.lastModified() != null) {
+                                    h.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+                                }
+                            })
+                            .accept(MediaType.APPLICATION_JSON)
+                            .exchangeToMono(response -> {
+                                if (response.statusCode().isError()) {
+                                    return response.createException().flatMap(ex -> {
+                                        rateLimiter.onError(installationId, ex);
+                                        return Mono.<T>error(ex);
+                                    });
+                                }
+                                rateLimiter.onResponse(installationId, response.statusCode().value(),
+                                        response.headers().asHttpHeaders());
+                                if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value() && knownEtag != null) {
+                                    responseCache.recordNotModified();
+                                    return response.releaseBody().then(Mono.<T>empty());
+                                }
+                                if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+                                    responseCache.recordNotModified();
+                                    return response.releaseBody().then(Mono.just((T) cached.value()));
+                                }
+                                if (response.statusCode().is2xxSuccessful()) {
+                                    HttpHeaders headers = response.headers().asHttpHeaders();
+                                    return bodyReader.read(response)
+                                            .map(body -> decode.apply(body, headers))
+                                            .switchIfEmpty(Mono.fromSupplier(() -> decode.apply(null, headers)))
+                                            .doOnNext(value -> {
+                                                responseCache.recordModified();
+                                                if (cacheable) {
+                                                    responseCache.put(installationId, url,
+                                                            headers.getETag(),
+                                                            headers.getFirst(HttpHeaders.LAST_MODIFIED),
+                                                            value, headers.getContentLength());
+                                                }
+                                            });
+                                }
+                                return response.createException().flatMap(Mono::error);
+                            });
+                })
+                .retryWhen(Retry.max(RATE_LIMIT_RETRIES).filter(GitHubRateLimiter::isRateLimited));
+    }
+
+    /**
+     * GET interactiva con caché condicional y coalescencia: si otro hilo ya está pidiendo
+     * la misma URL para la misma instalación, se une a su resultado en vez de repetirla.
+     */
+    private <T> Mono<T> getCached(Long installationId, Function<UriBuilder, URI> uri, BodyReader<T> bodyReader) {
+        URI target = uri.apply(uriFactory.builder());
+        return singleFlight.execute(installationId + "|GET|" + target,
+                () -> conditionalGet(installationId, GitHubRateLimiter.Priority.INTERACTIVE,
+                        target, null, true, bodyReader, (T body, HttpHeaders headers) -> body));
+    }
+
+    /**
+     * Lee el cuerpo de una respuesta 2xx ya decodificado
+     */
+    @FunctionalInterface
+    private interface BodyReader<B> {
+        Mono<B> read(ClientResponse response);
+    }
+
+    /**
+     * Array JSON decodificado elemento a elemento por el tokenizer de Jackson: cada
+     * objeto se enlaza directamente al record (los campos desconocidos se saltan) sin
+     * acumular el cuerpo entero ni construir mapas intermedios.
+     */
+    private static <E> BodyReader<List<E>> listOf(Class<E> elementType) {
+        return response -> response.bodyToFlux(elementType).collectList();
+    }
+
+    private static <B> BodyReader<B> single(Class<B> bodyType) {
+        return response -> response.bodyToMono(bodyType);
+    }
+
+    private <E> List<E> collectAll(Flux<List<E>> pages) {
+        List<E> all = new ArrayList<>();
+        for (List<E> page : pages.toIterable(2)) {
+            all.addAll(page);
         }
+        return all;
     }
 
+    /**
+     * Extrae la URL rel="next" del header Link de GitHub, o null si es la última página.
+     * Formato: <https://api.github.com/...&page=2>; rel="next", <...>; rel="last"
+     */
+    private static String nextLink(String linkHeader) {
+        if (linkHeader == null || linkHeader.isEmpty()) {
+            return null;
+        }
+        for (String part : linkHeader.split(",")) {
+            String[] segments = part.split(";");
+            if (segments.length < 2) {
+                continue;
+            }
+            String url = segments[0].trim();
+            for (int i = 1; i < segments.length; i++) {
+                if (segments[i].trim().equals("rel=\"next\"") && url.startsWith("<") && url.endsWith(">")) {
+                    return url.substring(1, url.length() - 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    private record Page<E>(List<E> items, String next, String etag) {}
+
     /**
      * Headers por defecto para requests con token de instalación
      */
@@ -110,61 +505,56 @@ public class GitHubApiService {
     /**
      * Obtiene la configuración de protección de un branch
      */
-    public Map<String, Object> getBranchProtection(String owner, String repo, String branch, String token) {
-        try {
-            return this.webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/repos/{owner}/{repo}/branches/{branch}/protection")
-                            .build(owner, repo, branch))
-                    .headers(h -> h.addAll(defaultInstallationHeaders(token)))
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve()
-                    .bodyToMono(MAP_REF)
-                    .block();
-        } catch (WebClientResponseException ex) {
-            if (ex.getStatusCode().value() == 404) {
+    public GitHubBranchProtection getBranchProtection(String owner, String repo, String branch, Long installationId) {
+        return fetchBranchProtection(owner, repo, branch, installationId).block();
+    }
+
+    /**
+     * Protección de un branch sin bloquear el hilo llamador
+     */
+    public Mono<GitHubBranchProtection> fetchBranchProtection(String owner, String repo, String branch, Long installationId) {
+        return getCached(installationId, uriBuilder -> uriBuilder
+                .path("/repos/{owner}/{repo}/branches/{branch}/protection")
+                .build(owner, repo, branch), single(GitHubBranchProtection.class))
                 // Branch no protegido
-                return Map.of("protected", false);
-            }
-            throw new IllegalStateException("Error fetching branch protection: " + ex.getMessage(), ex);
-        }
+                .onErrorResume(WebClientResponseException.NotFound.class, ex -> Mono.just(GitHubBranchProtection.NONE))
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> new IllegalStateException("Error fetching branch protection: " + ex.getMessage(), ex));
     }
 
     /**
      * Obtiene los archivos modificados en un commit
      */
-    public Map<String, Object> getCommitFiles(String owner, String repo, String sha, String token) {
-        try {
-            return this.webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/repos/{owner}/{repo}/commits/{sha}")
-                            .build(owner, repo, sha))
-                    .headers(h -> h.addAll(defaultInstallationHeaders(token)))
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve()
-                    .bodyToMono(MAP_REF)
-                    .block();
-        } catch (WebClientResponseException ex) {
-            throw new IllegalStateException("Error fetching commit files: " + ex.getMessage(), ex);
-        }
+    public GitHubCommit getCommitFiles(String owner, String repo, String sha, Long installationId) {
+        return fetchCommitFiles(owner, repo, sha, installationId).block();
+    }
+
+    /**
+     * Commit con sus archivos sin bloquear el hilo llamador
+     */
+    public Mono<GitHubCommit> fetchCommitFiles(String owner, String repo, String sha, Long installationId) {
+        return getCached(installationId, uriBuilder -> uriBuilder
+                .path("/repos/{owner}/{repo}/commits/{sha}")
+                .build(owner, repo, sha), single(GitHubCommit.class))
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> new IllegalStateException("Error fetching commit files: " + ex.getMessage(), ex));
     }
 
     /**
      * Obtiene los reviews de un Pull Request
      */
-    public List<Map<String, Object>> getPullRequestReviews(String owner, String repo, Integer prNumber, String token) {
-        try {
-            return this.webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/repos/{owner}/{repo}/pulls/{pull_number}/reviews")
-                            .build(owner, repo, prNumber))
-                    .headers(h -> h.addAll(defaultInstallationHeaders(token)))
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {})
-                    .block();
-        } catch (WebClientResponseException ex) {
-            throw new IllegalStateException("Error fetching PR reviews: " + ex.getMessage(), ex);
-        }
+    public List<GitHubReview> getPullRequestReviews(String owner, String repo, Integer prNumber, Long installationId) {
+        return fetchPullRequestReviews(owner, repo, prNumber, installationId).block();
+    }
+
+    /**
+     * Reviews de un Pull Request sin bloquear el hilo llamador
+     */
+    public Mono<List<GitHubReview>> fetchPullRequestReviews(String owner, String repo, Integer prNumber, Long installationId) {
+        return getCached(installationId, uriBuilder -> uriBuilder
+                .path("/repos/{owner}/{repo}/pulls/{pull_number}/reviews")
+                .build(owner, repo, prNumber), listOf(GitHubReview.class))
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> new IllegalStateException("Error fetching PR reviews: " + ex.getMessage(), ex));
     }
 }
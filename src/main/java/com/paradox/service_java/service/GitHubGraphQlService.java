@@ -0,0 +1,910 @@
+package com.paradox.service_java.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.paradox.service_java.dto.github.GitHubIssue;
+import com.paradox.service_java.dto.github.GitHubPullRequest;
+import com.paradox.service_java.dto.github.GitHubReview;
+import com.paradox.service_java.dto.github.GitHubUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Cliente de la API GraphQL de GitHub, alternativo al REST para la sincronización.
+ *
+ * Una sola query trae, para varios repositorios a la vez (aliases r0..rN), PRs e issues
+ * abiertos y cerrados con labels y assignees, pidiendo solo los campos que guardan
+ * nuestras entidades. Cada conexión pagina con su propio cursor; las de cerrados van
+ * ordenadas por updatedAt y se dejan de pedir al llegar a la última sincronización.
+ * Los nodos se convierten a los mismos records que devuelve el REST (dto.github).
+ * También da lo que compara la reconciliación (RepoDigest): total y más reciente de PRs
+ * e issues por lotes de repositorios y por ventanas de updatedAt, los (number, updatedAt)
+ * de una ventana y la relectura por number de los que difieren.
+ *
+ * Se activa por instalación con github.graphql.installations (o para todas con
+ * github.graphql.enabled-for-all).
+ */
+@Slf4j
+@Service
+public class GitHubGraphQlService {
+
+    private static final int RATE_LIMIT_RETRIES = 3;
+
+    // Stamps (number, updatedAt) por página al listar una ventana: el máximo de GitHub
+    private static final int STAMPS_PER_PAGE = 100;
+
+    // Ventanas por query de digests (cada una es un alias de search)
+    private static final int WINDOWS_PER_QUERY = 30;
+
+    // Branches que trae la sonda de digests; con más no se puede comparar
+    private static final int DIGEST_BRANCHES = 100;
+
+    private static final DateTimeFormatter SEARCH_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+    private final WebClient webClient;
+    private final InstallationTokenService installationTokenService;
+    private final GitHubRateLimiter rateLimiter;
+
+    private final boolean enabledForAll;
+    private final Set<Long> enabledInstallations;
+    private final int pageSize;
+    private final int reposPerQuery;
+    private final int digestReposPerQuery;
+
+    public GitHubGraphQlService(@Qualifier("githubWebClient") WebClient githubWebClient,
+                                InstallationTokenService installationTokenService,
+                                GitHubRateLimiter rateLimiter,
+                                @Value("${github.graphql.enabled-for-all:false}") boolean enabledForAll,
+                                @Value("${github.graphql.installations:}") Set<Long> enabledInstallations,
+                                @Value("${github.graphql.page-size:50}") int pageSize,
+                                @Value("${github.graphql.repos-per-query:5}") int reposPerQuery,
+                                @Value("${github.graphql.digest-repos-per-query:25}") int digestReposPerQuery) {
+        this.webClient = githubWebClient;
+        this.installationTokenService = installationTokenService;
+        this.rateLimiter = rateLimiter;
+        this.enabledForAll = enabledForAll;
+        this.enabledInstallations = Set.copyOf(enabledInstallations);
+        this.pageSize = Math.max(1, Math.min(pageSize, 100));
+        this.reposPerQuery = Math.max(1, reposPerQuery);
+        this.digestReposPerQuery = Math.max(1, digestReposPerQuery);
+    }
+
+    /**
+     * Indica si la instalación usa GraphQL en vez de REST
+     */
+    public boolean isEnabledFor(Long installationId) {
+        return enabledForAll || enabledInstallations.contains(installationId);
+    }
+
+    public int getReposPerQuery() {
+        return reposPerQuery;
+    }
+
+    /**
+     * Repositorio a sincronizar; closedSince corta los cerrados ya vistos (null = todos)
+     */
+    public record RepoRequest(String fullName, OffsetDateTime closedSince) {
+    }
+
+    /**
+     * Lo recibido de un repositorio en una ronda de la query. error no es null si el repo
+     * o alguna de sus conexiones falló: lo leído vale, pero el listado quedó incompleto y
+     * sus cursores no deben avanzar.
+     */
+    public record RepoPage(String fullName, List<GitHubPullRequest> pullRequests, List<GitHubIssue> issues,
+                           String error) {
+    }
+
+    /**
+     * PRs e issues de varios repositorios, ronda a ronda. Cada ronda es una query con los
+     * repositorios (hasta reposPerQuery) y conexiones que aún tienen páginas pendientes.
+     */
+    public Flux<RepoPage> streamRepositories(Long installationId, List<RepoRequest> repos) {
+        if (repos.isEmpty()) {
+            return Flux.empty();
+        }
+        List<RepoCursor> cursors = repos.stream().map(RepoCursor::new).toList();
+        return round(installationId, cursors)
+                .expand(pages -> cursors.stream().anyMatch(RepoCursor::hasPending)
+                        ? round(installationId, cursors)
+                        : Mono.empty())
+                .flatMapIterable(pages -> pages);
+    }
+
+    /**
+     * Reviews de un PR en una sola query
+     */
+    public List<GitHubReview> getPullRequestReviews(String owner, String repo, Integer prNumber, Long installationId) {
+        return fetchPullRequestReviews(owner, repo, prNumber, installationId).block();
+    }
+
+    /**
+     * Reviews de un PR sin bloquear el hilo llamador
+     */
+    public Mono<List<GitHubReview>> fetchPullRequestReviews(String owner, String repo, Integer prNumber, Long installationId) {
+        String query = """
+                query($owner: String!, $name: String!, $number: Int!) {
+                  repository(owner: $owner, name: $name) {
+                    pullRequest(number: $number) {
+                      reviews(first: 100) {
+                        nodes { databaseId state body submittedAt url author { %s } }
+                      }
+                    }
+                  }
+                }""".formatted(ACTOR_FIELDS);
+        Map<String, Object> variables = Map.of("owner", owner, "name", repo, "number", prNumber);
+
+        return execute(installationId, GitHubRateLimiter.Priority.INTERACTIVE, query, variables, ReviewsResponse.class)
+                .map(response -> {
+                    if (response.data() == null || response.data().repository() == null
+                            || response.data().repository().pullRequest() == null) {
+                        throw new IllegalStateException("Pull request not found via GraphQL: "
+                                + owner + "/" + repo + "#" + prNumber);
+                    }
+                    Connection<ReviewNode> reviews = response.data().repository().pullRequest().reviews();
+                    return reviews != null ? reviews.nodes().stream().map(ReviewNode::toRest).toList() : List.<GitHubReview>of();
+                });
+    }
+
+    // ===== Digests para reconciliación =====
+
+    /**
+     * Una página de relectura por number: los encontrados y los numbers que GitHub ya no
+     * resuelve en ese repositorio (borrados o transferidos)
+     */
+    public record Lookup<T>(List<T> found, List<Integer> missing) {
+    }
+
+    /**
+     * Digest remoto de varios repositorios, un mapa por lote de digest-repos-per-query:
+     * por cada uno, total y PR/issue más reciente y cabezas de branches, en una query por
+     * lote. Los repositorios inaccesibles no aparecen; branchHeads es null si el repo tiene
+     * más branches de los que trae la sonda.
+     */
+    public Flux<Map<String, RepoDigest>> probeDigests(Long installationId, List<String> fullNames) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < fullNames.size(); i += digestReposPerQuery) {
+            chunks.add(fullNames.subList(i, Math.min(fullNames.size(), i + digestReposPerQuery)));
+        }
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> probeChunk(installationId, chunk));
+    }
+
+    /**
+     * Digest remoto de un recurso de un repo en cada ventana de updatedAt, en el mismo
+     * orden. Usa search (count y el más reciente), con WINDOWS_PER_QUERY ventanas por query.
+     */
+    public Mono<List<RepoDigest.ResourceDigest>> windowDigests(Long installationId, String fullName,
+                                                               RepoDigest.Kind kind,
+                                                               List<RepoDigest.TimeWindow> windows) {
+        List<List<RepoDigest.TimeWindow>> chunks = new ArrayList<>();
+        for (int i = 0; i < windows.size(); i += WINDOWS_PER_QUERY) {
+            chunks.add(windows.subList(i, Math.min(windows.size(), i + WINDOWS_PER_QUERY)));
+        }
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> windowChunk(installationId, fullName, kind, chunk))
+                .collect(ArrayList::new, List::addAll);
+    }
+
+    /**
+     * updatedAt por number de los elementos de un recurso actualizados dentro de una
+     * ventana (search, solo number y updatedAt; como mucho 1000 resultados)
+     */
+    public Mono<Map<Integer, OffsetDateTime>> windowStamps(Long installationId, String fullName,
+                                                           RepoDigest.Kind kind, RepoDigest.TimeWindow window) {
+        String query = """
+                query($q: String!, $after: String) {
+                  s: search(query: $q, type: ISSUE, first: %d, after: $after) {
+                    pageInfo { hasNextPage endCursor }
+                    nodes { %s }
+                  }
+                }""".formatted(STAMPS_PER_PAGE, STAMP_FIELDS);
+        String searchQuery = searchQuery(fullName, kind, window);
+
+        return searchPage(installationId, query, searchQuery, null)
+                .expand(connection -> connection.pageInfo() != null
+                        && Boolean.TRUE.equals(connection.pageInfo().hasNextPage())
+                        ? searchPage(installationId, query, searchQuery, connection.pageInfo().endCursor())
+                        : Mono.empty())
+                .flatMapIterable(SearchConnection::nodes)
+                .filter(node -> node.number() != null)
+                .collect(HashMap::new, (stamps, node) -> stamps.put(node.number(), node.updatedAt()));
+    }
+
+    /**
+     * PRs de un repo por number, page-size por query (aliases)
+     */
+    public Flux<Lookup<GitHubPullRequest>> fetchPullRequests(Long installationId, String fullName, List<Integer> numbers) {
+        return Flux.fromIterable(partition(numbers))
+                .concatMap(chunk -> execute(installationId, GitHubRateLimiter.Priority.BACKGROUND,
+                        lookupQuery("pullRequest", PULL_REQUEST_FIELDS, chunk.size()),
+                        lookupVariables(fullName, chunk), PullRequestLookupResponse.class)
+                        .map(response -> lookup(fullName, chunk, response.repository(), response.errors(),
+                                PullRequestNode::url, PullRequestNode::toRest)));
+    }
+
+    /**
+     * Issues de un repo por number, igual que fetchPullRequests
+     */
+    public Flux<Lookup<GitHubIssue>> fetchIssues(Long installationId, String fullName, List<Integer> numbers) {
+        return Flux.fromIterable(partition(numbers))
+                .concatMap(chunk -> execute(installationId, GitHubRateLimiter.Priority.BACKGROUND,
+                        lookupQuery("issue", ISSUE_FIELDS, chunk.size()),
+                        lookupVariables(fullName, chunk), IssueLookupResponse.class)
+                        .map(response -> lookup(fullName, chunk, response.repository(), response.errors(),
+                                IssueNode::url, IssueNode::toRest)));
+    }
+
+    private Mono<Map<String, RepoDigest>> probeChunk(Long installationId, List<String> fullNames) {
+        StringBuilder declarations = new StringBuilder();
+        StringBuilder selections = new StringBuilder();
+        Map<String, Object> variables = new HashMap<>();
+        for (int i = 0; i < fullNames.size(); i++) {
+            String[] parts = fullNames.get(i).split("/");
+            declarations.append("$o").append(i).append(": String!, $n").append(i).append(": String!, ");
+            variables.put("o" + i, parts[0]);
+            variables.put("n" + i, parts[1]);
+            selections.append("  r").append(i).append(": repository(owner: $o").append(i)
+                    .append(", name: $n").append(i).append(") { ...RepoDigest }\n");
+        }
+        declarations.setLength(declarations.length() - 2);
+
+        String query = "query(" + declarations + ") {\n" + selections + "}\n" + DIGEST_FRAGMENT;
+
+        return execute(installationId, GitHubRateLimiter.Priority.BACKGROUND, query, variables, DigestResponse.class)
+                .map(response -> {
+                    if (response.data() == null) {
+                        throw new IllegalStateException("GraphQL digest query returned no data: " + response.errorMessages());
+                    }
+                    Map<String, RepoDigest> digests = new HashMap<>();
+                    for (int i = 0; i < fullNames.size(); i++) {
+                        DigestNode node = response.data().get("r" + i);
+                        if (node != null) {
+                            digests.put(fullNames.get(i), node.toDigest());
+                        }
+                    }
+                    return digests;
+                });
+    }
+
+    private Mono<List<RepoDigest.ResourceDigest>> windowChunk(Long installationId, String fullName,
+                                                              RepoDigest.Kind kind,
+                                                              List<RepoDigest.TimeWindow> windows) {
+        StringBuilder declarations = new StringBuilder();
+        StringBuilder selections = new StringBuilder();
+        Map<String, Object> variables = new HashMap<>();
+        for (int i = 0; i < windows.size(); i++) {
+            declarations.append("$q").append(i).append(": String!, ");
+            variables.put("q" + i, searchQuery(fullName, kind, windows.get(i)));
+            selections.append("  w").append(i).append(": search(query: $q").append(i)
+                    .append(", type: ISSUE, first: 1) { issueCount nodes { ")
+                    .append(STAMP_FIELDS).append(" } }\n");
+        }
+        declarations.setLength(declarations.length() - 2);
+
+        String query = "query(" + declarations + ") {\n" + selections + "}";
+
+        return execute(installationId, GitHubRateLimiter.Priority.BACKGROUND, query, variables, SearchResponse.class)
+                .map(response -> {
+                    if (response.data() == null) {
+                        throw new IllegalStateException("GraphQL search returned no data: " + response.errorMessages());
+                    }
+                    List<RepoDigest.ResourceDigest> digests = new ArrayList<>(windows.size());
+                    for (int i = 0; i < windows.size(); i++) {
+                        SearchConnection connection = response.data().get("w" + i);
+                        if (connection == null) {
+                            throw new IllegalStateException("GraphQL search window missing: " + response.errorMessages());
+                        }
+                        digests.add(connection.toDigest());
+                    }
+                    return digests;
+                });
+    }
+
+    private Mono<SearchConnection> searchPage(Long installationId, String query, String searchQuery, String after) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("q", searchQuery);
+        variables.put("after", after);
+        return execute(installationId, GitHubRateLimiter.Priority.BACKGROUND, query, variables, SearchResponse.class)
+                .map(response -> {
+                    SearchConnection connection = response.data() != null ? response.data().get("s") : null;
+                    if (connection == null) {
+                        throw new IllegalStateException("GraphQL search returned no data: " + response.errorMessages());
+                    }
+                    return connection;
+                });
+    }
+
+    /**
+     * repo:owner/name is:pr|is:issue updated:... sort:updated-desc
+     */
+    private static String searchQuery(String fullName, RepoDigest.Kind kind, RepoDigest.TimeWindow window) {
+        StringBuilder query = new StringBuilder("repo:").append(fullName)
+                .append(kind == RepoDigest.Kind.PULL_REQUESTS ? " is:pr" : " is:issue");
+        OffsetDateTime from = window.from();
+        OffsetDateTime to = window.to();
+        if (from != null && to != null) {
+            // El rango de search es cerrado: el final exclusivo es un segundo antes
+            query.append(" updated:").append(searchDate(from)).append("..").append(searchDate(to.minusSeconds(1)));
+        } else if (from != null) {
+            query.append(" updated:>=").append(searchDate(from));
+        } else if (to != null) {
+            query.append(" updated:<").append(searchDate(to));
+        }
+        return query.append(" sort:updated-desc").toString();
+    }
+
+    private static String searchDate(OffsetDateTime value) {
+        return SEARCH_DATE.format(value.withOffsetSameInstant(ZoneOffset.UTC));
+    }
+
+    private List<List<Integer>> partition(List<Integer> numbers) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < numbers.size(); i += pageSize) {
+            chunks.add(numbers.subList(i, Math.min(numbers.size(), i + pageSize)));
+        }
+        return chunks;
+    }
+
+    /**
+     * query($o, $n, $i0..) { repository { i0: field(number: $i0) { fields } ... } }
+     */
+    private static String lookupQuery(String field, String fields, int size) {
+        StringBuilder declarations = new StringBuilder("$o: String!, $n: String!");
+        StringBuilder selections = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            declarations.append(", $i").append(i).append(": Int!");
+            selections.append("    i").append(i).append(": ").append(field).append("(number: $i").append(i)
+                    .append(") { ").append(fields).append(" }\n");
+        }
+        return "query(" + declarations + ") {\n  repository(owner: $o, name: $n) {\n" + selections + "  }\n}";
+    }
+
+    private static Map<String, Object> lookupVariables(String fullName, List<Integer> numbers) {
+        String[] parts = fullName.split("/");
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("o", parts[0]);
+        variables.put("n", parts[1]);
+        for (int i = 0; i < numbers.size(); i++) {
+            variables.put("i" + i, numbers.get(i));
+        }
+        return variables;
+    }
+
+    /**
+     * Reparte los alias iN de una relectura en encontrados y desaparecidos. Solo cuenta
+     * como desaparecido un alias a null con error NOT_FOUND (otro error no prueba nada), o
+     * uno que GitHub resuelve en otro repositorio (issue transferido).
+     */
+    private static <N, T> Lookup<T> lookup(String fullName, List<Integer> numbers, Map<String, N> repository,
+                                           List<GraphQlError> errors, Function<N, String> url,
+                                           Function<N, T> toRest) {
+        if (repository == null) {
+            throw new IllegalStateException("GraphQL lookup returned no repository: " + errors);
+        }
+        Set<String> notFound = new HashSet<>();
+        if (errors != null) {
+            for (GraphQlError error : errors) {
+                if ("NOT_FOUND".equals(error.type()) && error.path() != null && error.path().size() > 1) {
+                    notFound.add(String.valueOf(error.path().get(1)));
+                }
+            }
+        }
+        String prefix = "https://github.com/" + fullName.toLowerCase(Locale.ROOT) + "/";
+        List<T> found = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < numbers.size(); i++) {
+            N node = repository.get("i" + i);
+            String nodeUrl = node != null ? url.apply(node) : null;
+            if (node == null) {
+                if (notFound.contains("i" + i)) {
+                    missing.add(numbers.get(i));
+                }
+            } else if (nodeUrl != null && !nodeUrl.toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                missing.add(numbers.get(i));
+            } else {
+                found.add(toRest.apply(node));
+            }
+        }
+        return new Lookup<>(found, missing);
+    }
+
+    // ===== Query por lotes =====
+
+    private enum ConnectionKind {
+        OPEN_PULL_REQUESTS("openPullRequests", "pullRequests", "states: OPEN", true),
+        CLOSED_PULL_REQUESTS("closedPullRequests", "pullRequests",
+                "states: [CLOSED, MERGED], orderBy: {field: UPDATED_AT, direction: DESC}", true),
+        OPEN_ISSUES("openIssues", "issues", "states: OPEN", false),
+        CLOSED_ISSUES("closedIssues", "issues",
+                "states: CLOSED, orderBy: {field: UPDATED_AT, direction: DESC}", false);
+
+        final String alias;
+        final String field;
+        final String arguments;
+        final boolean pullRequests;
+
+        ConnectionKind(String alias, String field, String arguments, boolean pullRequests) {
+            this.alias = alias;
+            this.field = field;
+            this.arguments = arguments;
+            this.pullRequests = pullRequests;
+        }
+
+        boolean closed() {
+            return this == CLOSED_PULL_REQUESTS || this == CLOSED_ISSUES;
+        }
+    }
+
+    /**
+     * Estado de paginación de un repositorio: cursor por conexión y las que aún tienen páginas
+     */
+    private static final class RepoCursor {
+        private final RepoRequest request;
+        private final String owner;
+        private final String name;
+        private final Map<ConnectionKind, String> cursors = new EnumMap<>(ConnectionKind.class);
+        private final Set<ConnectionKind> pending = EnumSet.allOf(ConnectionKind.class);
+
+        RepoCursor(RepoRequest request) {
+            this.request = request;
+            String[] parts = request.fullName().split("/");
+            this.owner = parts[0];
+            this.name = parts[1];
+        }
+
+        private String error;
+
+        boolean hasPending() {
+            return !pending.isEmpty();
+        }
+
+        /**
+         * Deja de paginar el repo; se queda el primer error
+         */
+        void fail(String message) {
+            if (error == null) {
+                error = message;
+            }
+            pending.clear();
+        }
+
+        void advance(ConnectionKind kind, Connection<?> connection, OffsetDateTime oldestOnPage) {
+            if (connection == null) {
+                fail("GraphQL connection " + kind.alias + " missing");
+                return;
+            }
+            boolean more = connection != null && connection.pageInfo() != null
+                    && Boolean.TRUE.equals(connection.pageInfo().hasNextPage());
+            // Cerrados ordenados por updatedAt desc: lo que queda es anterior a la última sync
+            if (more && kind.closed() && request.closedSince() != null && oldestOnPage != null
+                    && !oldestOnPage.isAfter(request.closedSince())) {
+                more = false;
+            }
+            if (more) {
+                cursors.put(kind, connection.pageInfo().endCursor());
+            } else {
+                pending.remove(kind);
+            }
+        }
+    }
+
+    private Mono<List<RepoPage>> round(Long installationId, List<RepoCursor> cursors) {
+        List<RepoCursor> batch = cursors.stream().filter(RepoCursor::hasPending).limit(reposPerQuery).toList();
+
+        StringBuilder declarations = new StringBuilder();
+        StringBuilder selections = new StringBuilder();
+        Map<String, Object> variables = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            RepoCursor repo = batch.get(i);
+            declarations.append("$o").append(i).append(": String!, $n").append(i).append(": String!, ");
+            variables.put("o" + i, repo.owner);
+            variables.put("n" + i, repo.name);
+
+            selections.append("  r").append(i).append(": repository(owner: $o").append(i)
+                    .append(", name: $n").append(i).append(") {\n");
+            for (ConnectionKind kind : repo.pending) {
+                String cursorVar = "c" + i + "_" + kind.alias;
+                declarations.append('$').append(cursorVar).append(": String, ");
+                variables.put(cursorVar, repo.cursors.get(kind));
+                selections.append("    ").append(kind.alias).append(": ").append(kind.field)
+                        .append("(first: ").append(pageSize).append(", after: $").append(cursorVar)
+                        .append(", ").append(kind.arguments).append(") { ...")
+                        .append(kind.pullRequests ? "PullRequestPage" : "IssuePage").append(" }\n");
+            }
+            selections.append("  }\n");
+        }
+        declarations.setLength(declarations.length() - 2);
+
+        String query = "query(" + declarations + ") {\n" + selections + "}\n" + FRAGMENTS;
+
+        return execute(installationId, GitHubRateLimiter.Priority.BACKGROUND, query, variables, BatchResponse.class)
+                .map(response -> {
+                    if (response.data() == null) {
+                        throw new IllegalStateException("GraphQL query returned no data: " + response.errorMessages());
+                    }
+                    Map<String, String> errors = response.errorsByAlias();
+                    if (!errors.isEmpty()) {
+                        log.warn("GraphQL sync query returned partial errors: {}", response.errorMessages());
+                    }
+
+                    List<RepoPage> pages = new ArrayList<>(batch.size());
+                    for (int i = 0; i < batch.size(); i++) {
+                        RepoCursor repo = batch.get(i);
+                        RepositoryNode node = response.data().get("r" + i);
+                        if (node == null) {
+                            log.warn("Repository {} not accessible via GraphQL, skipping", repo.request.fullName());
+                            repo.fail(errors.getOrDefault("r" + i, "Repository not accessible via GraphQL"));
+                            pages.add(new RepoPage(repo.request.fullName(), List.of(), List.of(), repo.error));
+                            continue;
+                        }
+                        RepoPage page = toPage(repo, node);
+                        // Errores sin path afectan a toda la query
+                        String error = errors.containsKey("") ? errors.get("") : errors.get("r" + i);
+                        if (error != null) {
+                            repo.fail(error);
+                            page = new RepoPage(page.fullName(), page.pullRequests(), page.issues(), repo.error);
+                        }
+                        pages.add(page);
+                    }
+                    return pages;
+                });
+    }
+
+    private RepoPage toPage(RepoCursor repo, RepositoryNode node) {
+        List<GitHubPullRequest> pullRequests = new ArrayList<>();
+        List<GitHubIssue> issues = new ArrayList<>();
+
+        for (ConnectionKind kind : List.copyOf(repo.pending)) {
+            OffsetDateTime oldest = null;
+            if (kind.pullRequests) {
+                Connection<PullRequestNode> connection = switch (kind) {
+                    case OPEN_PULL_REQUESTS -> node.openPullRequests();
+                    default -> node.closedPullRequests();
+                };
+                if (connection != null) {
+                    for (PullRequestNode pr : connection.nodes()) {
+                        if (pr == null) {
+                            continue;
+                        }
+                        pullRequests.add(pr.toRest());
+                        oldest = pr.updatedAt();
+                    }
+                }
+                repo.advance(kind, connection, oldest);
+            } else {
+                Connection<IssueNode> connection = switch (kind) {
+                    case OPEN_ISSUES -> node.openIssues();
+                    default -> node.closedIssues();
+                };
+                if (connection != null) {
+                    for (IssueNode issue : connection.nodes()) {
+                        if (issue == null) {
+                            continue;
+                        }
+                        issues.add(issue.toRest());
+                        oldest = issue.updatedAt();
+                    }
+                }
+                repo.advance(kind, connection, oldest);
+            }
+        }
+        return new RepoPage(repo.request.fullName(), pullRequests, issues, repo.error);
+    }
+
+    /**
+     * POST /graphql con token de instalación, pasando por el rate limiter como el REST
+     */
+    private <R> Mono<R> execute(Long installationId, GitHubRateLimiter.Priority priority, String query,
+                                Map<String, Object> variables, Class<R> responseType) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("query", query);
+        body.put("variables", variables);
+
+        return rateLimiter.acquire(installationId, priority)
+                .then(Mono.fromCallable(() -> installationTokenService.getInstallationToken(installationId))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(token -> webClient.post()
+                        .uri("/graphql")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .header(HttpHeaders.USER_AGENT, "paradoxboard-service")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .bodyValue(body)
+                        .exchangeToMono(response -> {
+                            if (response.statusCode().is2xxSuccessful()) {
+                                rateLimiter.onResponse(installationId, response.statusCode().value(),
+                                        response.headers().asHttpHeaders());
+                                return response.bodyToMono(responseType);
+                            }
+                            return response.createException().flatMap(ex -> {
+                                rateLimiter.onError(installationId, ex);
+                                return Mono.<R>error(ex);
+                            });
+                        }))
+                .retryWhen(Retry.max(RATE_LIMIT_RETRIES).filter(GitHubRateLimiter::isRateLimited));
+    }
+
+    private static final String ACTOR_FIELDS = "__typename login ... on User { databaseId } ... on Bot { databaseId }";
+
+    private static final String PULL_REQUEST_FIELDS = """
+            databaseId number state title body url isDraft merged
+            mergedAt closedAt createdAt updatedAt
+            headRefName headRefOid baseRefName baseRefOid
+            author { %s }""".formatted(ACTOR_FIELDS);
+
+    private static final String ISSUE_FIELDS = """
+            databaseId number state title body url closedAt createdAt updatedAt
+            comments { totalCount }
+            labels(first: 50) { nodes { name } }
+            assignees(first: 20) { nodes { login } }
+            author { %s }""".formatted(ACTOR_FIELDS);
+
+    private static final String FRAGMENTS = """
+            fragment PullRequestPage on PullRequestConnection {
+              pageInfo { hasNextPage endCursor }
+              nodes { %s }
+            }
+            fragment IssuePage on IssueConnection {
+              pageInfo { hasNextPage endCursor }
+              nodes { %s }
+            }
+            """.formatted(PULL_REQUEST_FIELDS, ISSUE_FIELDS);
+
+    private static final String STAMP_FIELDS =
+            "... on PullRequest { number updatedAt } ... on Issue { number updatedAt }";
+
+    private static final String DIGEST_FRAGMENT = """
+            fragment RepoDigest on Repository {
+              prCount: pullRequests { totalCount }
+              prNewest: pullRequests(first: 1, orderBy: {field: UPDATED_AT, direction: DESC}) { nodes { updatedAt } }
+              issueCount: issues { totalCount }
+              issueNewest: issues(first: 1, orderBy: {field: UPDATED_AT, direction: DESC}) { nodes { updatedAt } }
+              heads: refs(refPrefix: "refs/heads/", first: %d) { totalCount nodes { name target { oid } } }
+            }
+            """.formatted(DIGEST_BRANCHES);
+
+    // ===== Modelo de respuesta (package-private para que Jackson lo instancie) =====
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record BatchResponse(Map<String, RepositoryNode> data, List<GraphQlError> errors) {
+        String errorMessages() {
+            return errors == null ? "[]" : errors.stream().map(GraphQlError::message).toList().toString();
+        }
+
+        /**
+         * Primer mensaje de error por alias de repositorio (path[0]); "" para los que no traen path
+         */
+        Map<String, String> errorsByAlias() {
+            Map<String, String> byAlias = new HashMap<>();
+            if (errors != null) {
+                for (GraphQlError error : errors) {
+                    String alias = error.path() != null && !error.path().isEmpty() ? String.valueOf(error.path().get(0)) : "";
+                    byAlias.putIfAbsent(alias, error.message());
+                }
+            }
+            return byAlias;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record GraphQlError(String message, String type, List<Object> path) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RepositoryNode(
+            Connection<PullRequestNode> openPullRequests,
+            Connection<PullRequestNode> closedPullRequests,
+            Connection<IssueNode> openIssues,
+            Connection<IssueNode> closedIssues
+    ) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Connection<T>(PageInfo pageInfo, List<T> nodes) {
+        Connection {
+            nodes = nodes != null ? nodes : List.of();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record PageInfo(Boolean hasNextPage, String endCursor) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Actor(String __typename, String login, Long databaseId) {
+        GitHubUser toRest() {
+            return new GitHubUser(databaseId, login, __typename);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Name(String name) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record TotalCount(Integer totalCount) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record PullRequestNode(
+            Long databaseId, Integer number, String state, String title, String body, String url,
+            Boolean isDraft, Boolean merged,
+            OffsetDateTime mergedAt, OffsetDateTime closedAt, OffsetDateTime createdAt, OffsetDateTime updatedAt,
+            String headRefName, String headRefOid, String baseRefName, String baseRefOid,
+            Actor author
+    ) {
+        /**
+         * GraphQL usa OPEN/CLOSED/MERGED; el REST (y nuestras entidades) open/closed
+         */
+        GitHubPullRequest toRest() {
+            return new GitHubPullRequest(databaseId, number, restState(state), title, body, url,
+                    isDraft, merged, mergedAt, closedAt, createdAt, updatedAt,
+                    author != null ? author.toRest() : null,
+                    new GitHubPullRequest.BranchRef(headRefName, headRefOid),
+                    new GitHubPullRequest.BranchRef(baseRefName, baseRefOid));
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record IssueNode(
+            Long databaseId, Integer number, String state, String title, String body, String url,
+            OffsetDateTime closedAt, OffsetDateTime createdAt, OffsetDateTime updatedAt,
+            TotalCount comments, Connection<Name> labels, Connection<Actor> assignees, Actor author
+    ) {
+        GitHubIssue toRest() {
+            return new GitHubIssue(databaseId, number, restState(state), title, body, url,
+                    comments != null ? comments.totalCount() : null,
+                    closedAt, createdAt, updatedAt,
+                    author != null ? author.toRest() : null,
+                    labels != null ? labels.nodes().stream().map(l -> new GitHubIssue.Label(l.name())).toList() : List.of(),
+                    assignees != null ? assignees.nodes().stream().map(Actor::toRest).toList() : List.of(),
+                    null);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record DigestResponse(Map<String, DigestNode> data, List<GraphQlError> errors) {
+        String errorMessages() {
+            return errors == null ? "[]" : errors.stream().map(GraphQlError::message).toList().toString();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record UpdatedNode(OffsetDateTime updatedAt) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RefTarget(String oid) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RefNode(String name, RefTarget target) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RefConnection(Integer totalCount, List<RefNode> nodes) {
+        RefConnection {
+            nodes = nodes != null ? nodes : List.of();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record DigestNode(TotalCount prCount, Connection<UpdatedNode> prNewest,
+                      TotalCount issueCount, Connection<UpdatedNode> issueNewest, RefConnection heads) {
+        RepoDigest toDigest() {
+            Map<String, String> branchHeads = null;
+            if (heads != null && heads.totalCount() != null && heads.totalCount() <= heads.nodes().size()) {
+                branchHeads = new TreeMap<>();
+                for (RefNode ref : heads.nodes()) {
+                    branchHeads.put(ref.name(), ref.target() != null ? ref.target().oid() : null);
+                }
+            }
+            return new RepoDigest(digest(prCount, prNewest), digest(issueCount, issueNewest), branchHeads);
+        }
+
+        private static RepoDigest.ResourceDigest digest(TotalCount count, Connection<UpdatedNode> newest) {
+            return new RepoDigest.ResourceDigest(
+                    count != null && count.totalCount() != null ? count.totalCount() : 0,
+                    newest != null && !newest.nodes().isEmpty() ? newest.nodes().get(0).updatedAt() : null);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SearchResponse(Map<String, SearchConnection> data, List<GraphQlError> errors) {
+        String errorMessages() {
+            return errors == null ? "[]" : errors.stream().map(GraphQlError::message).toList().toString();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SearchConnection(Integer issueCount, PageInfo pageInfo, List<StampNode> nodes) {
+        SearchConnection {
+            nodes = nodes != null ? nodes : List.of();
+        }
+
+        RepoDigest.ResourceDigest toDigest() {
+            return new RepoDigest.ResourceDigest(issueCount != null ? issueCount : 0,
+                    nodes.isEmpty() ? null : nodes.get(0).updatedAt());
+        }
+    }
+
+    /**
+     * Nodo de search con solo number y updatedAt, sea PR o issue
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record StampNode(Integer number, OffsetDateTime updatedAt) {
+    }
+
+    /**
+     * data.repository.iN: un PR por alias (null si ese number no se resuelve)
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record PullRequestLookupResponse(Map<String, Map<String, PullRequestNode>> data, List<GraphQlError> errors) {
+        Map<String, PullRequestNode> repository() {
+            return data != null ? data.get("repository") : null;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record IssueLookupResponse(Map<String, Map<String, IssueNode>> data, List<GraphQlError> errors) {
+        Map<String, IssueNode> repository() {
+            return data != null ? data.get("repository") : null;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ReviewNode(Long databaseId, String state, String body, OffsetDateTime submittedAt,
+                              String url, Actor author) {
+        GitHubReview toRest() {
+            return new GitHubReview(databaseId, author != null ? author.toRest() : null, state, body, submittedAt, url);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ReviewsResponse(ReviewsData data) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ReviewsData(ReviewsRepository repository) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ReviewsRepository(ReviewsPullRequest pullRequest) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ReviewsPullRequest(Connection<ReviewNode> reviews) {
+    }
+
+    private static String restState(String state) {
+        if (state == null) {
+            return null;
+        }
+        return "OPEN".equals(state) ? "open" : "closed";
+    }
+}
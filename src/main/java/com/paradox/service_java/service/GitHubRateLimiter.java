@@ -0,0 +1,324 @@
+package com.paradox.service_java.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Planificador de peticiones a GitHub consciente del rate limit.
+ *
+ * Cada instalación (y la app, para las llamadas firmadas con JWT) tiene un bucket cuyo
+ * saldo se alimenta de X-RateLimit-Remaining / X-RateLimit-Reset. Las peticiones piden
+ * permiso con acquire(): si no hay saldo esperan en una cola por prioridad hasta el reset.
+ * Las de sincronización en segundo plano dejan una reserva para las interactivas.
+ * Un 403/429 de rate limit (primario o secundario) bloquea el bucket hasta Retry-After,
+ * el reset, o un backoff exponencial si GitHub no indica cuándo reintentar.
+ */
+@Slf4j
+@Service
+public class GitHubRateLimiter {
+
+    /**
+     * Bucket de las llamadas autenticadas como la app (JWT), no como instalación
+     */
+    public static final Long APP_BUCKET = 0L;
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final int backgroundReserve;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final Map<Long, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Counter throttled;
+
+    public GitHubRateLimiter(MeterRegistry meterRegistry,
+                             @Value("${github.rate-limit.background-reserve:500}") int backgroundReserve,
+                             @Value("${github.rate-limit.initial-backoff-seconds:60}") long initialBackoffSeconds,
+                             @Value("${github.rate-limit.max-backoff-seconds:900}") long maxBackoffSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.backgroundReserve = Math.max(0, backgroundReserve);
+        this.initialBackoff = Duration.ofSeconds(Math.max(1, initialBackoffSeconds));
+        this.maxBackoff = Duration.ofSeconds(Math.max(initialBackoffSeconds, maxBackoffSeconds));
+        this.throttled = Counter.builder("github.rate_limit.throttled").register(meterRegistry);
+    }
+
+    /**
+     * Completa cuando la petición puede salir. Cancelable (p.ej. por timeout del llamador).
+     */
+    public Mono<Void> acquire(Long key, Priority priority) {
+        return Mono.create(sink -> bucket(key).acquire(priority, sink));
+    }
+
+    /**
+     * Actualiza el bucket con los headers de una respuesta correcta (incluidos los 304)
+     */
+    public void onResponse(Long key, int status, HttpHeaders headers) {
+        bucket(key).update(status, headers, false);
+    }
+
+    /**
+     * Actualiza el bucket con una respuesta de error. Si isRateLimited la clasifica como
+     * rechazo (también un 403 secundario que solo lo dice en el body) el bucket se bloquea,
+     * y el reintento del llamador vuelve a pasar por acquire y espera.
+     */
+    public void onError(Long key, Throwable error) {
+        if (error instanceof WebClientResponseException ex) {
+            bucket(key).update(ex.getStatusCode().value(), ex.getHeaders(), isRateLimited(ex));
+        }
+    }
+
+    /**
+     * Llamadas que quedan en la ventana actual según el último header; -1 si aún no se sabe
+     */
+    public long remaining(Long key) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            return -1;
+        }
+        synchronized (bucket) {
+            // Pasado el reset la ventana ya se rellenó aunque no haya salido ninguna petición
+            if (bucket.resetAt != null && !Instant.now().isBefore(bucket.resetAt) && bucket.limit > 0) {
+                return bucket.limit;
+            }
+            return bucket.remaining;
+        }
+    }
+
+    /**
+     * Indica si un error es un rechazo por rate limit y merece reintento tras el backoff
+     */
+    public static boolean isRateLimited(Throwable error) {
+        if (!(error instanceof WebClientResponseException ex)) {
+            return false;
+        }
+        int status = ex.getStatusCode().value();
+        if (status == 429) {
+            return true;
+        }
+        if (status != 403) {
+            return false;
+        }
+        HttpHeaders headers = ex.getHeaders();
+        return headers.getFirst(HttpHeaders.RETRY_AFTER) != null
+                || "0".equals(headers.getFirst("X-RateLimit-Remaining"))
+                || ex.getResponseBodyAsString().toLowerCase().contains("rate limit");
+    }
+
+    private Bucket bucket(Long key) {
+        return buckets.computeIfAbsent(key, k -> {
+            Bucket bucket = new Bucket(k);
+            String tag = k.equals(APP_BUCKET) ? "app" : String.valueOf(k);
+            Gauge.builder("github.rate_limit.remaining", bucket, Bucket::remainingForGauge)
+                    .tag("installation", tag).register(meterRegistry);
+            Gauge.builder("github.rate_limit.queued", bucket, Bucket::queued)
+                    .tag("installation", tag).register(meterRegistry);
+            return bucket;
+        });
+    }
+
+    private record Waiter(Priority priority, long seq, MonoSink<Void> sink) {
+    }
+
+    /**
+     * Estado de rate limit de una instalación. Todo el acceso va sincronizado sobre el bucket.
+     */
+    private final class Bucket {
+        private final Long key;
+        private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+                Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::seq));
+
+        private long remaining = -1; // desconocido hasta la primera respuesta
+        private long limit = -1;
+        private Instant resetAt;
+        private Instant blockedUntil = Instant.EPOCH;
+        private int consecutiveRejections;
+        private long seq;
+        private Instant drainAt; // próximo drain programado (null = ninguno)
+
+        Bucket(Long key) {
+            this.key = key;
+        }
+
+        void acquire(Priority priority, MonoSink<Void> sink) {
+            synchronized (this) {
+                // Solo hace cola detrás de esperas de su misma prioridad o mayor: una
+                // interactiva no espera a que se desbloqueen las de segundo plano
+                Waiter head = waiters.peek();
+                boolean queuedAhead = head != null && head.priority().compareTo(priority) <= 0;
+                if (queuedAhead || !tryConsume(priority, Instant.now())) {
+                    Waiter waiter = new Waiter(priority, seq++, sink);
+                    waiters.add(waiter);
+                    sink.onCancel(() -> cancel(waiter));
+                    scheduleDrain();
+                    return;
+                }
+            }
+            // Fuera del lock: completar el sink arranca la petición en el hilo actual
+            sink.success();
+        }
+
+        synchronized void update(int status, HttpHeaders headers, boolean rejected) {
+            Instant now = Instant.now();
+
+            Long headerRemaining = parseLong(headers.getFirst("X-RateLimit-Remaining"));
+            Long headerLimit = parseLong(headers.getFirst("X-RateLimit-Limit"));
+            Long headerReset = parseLong(headers.getFirst("X-RateLimit-Reset"));
+            // GraphQL (y search) tienen su propio presupuesto: solo "core" alimenta el saldo
+            String resource = headers.getFirst("X-RateLimit-Resource");
+            if (resource == null || "core".equals(resource)) {
+                if (headerRemaining != null) {
+                    remaining = headerRemaining;
+                }
+                if (headerLimit != null) {
+                    limit = headerLimit;
+                }
+                if (headerReset != null) {
+                    resetAt = Instant.ofEpochSecond(headerReset);
+                }
+            }
+
+            if (rejected) {
+                throttled.increment();
+                consecutiveRejections++;
+                Instant until = retryAfter(headers, now);
+                if (until == null && Long.valueOf(0).equals(headerRemaining) && headerReset != null) {
+                    until = Instant.ofEpochSecond(headerReset);
+                }
+                if (until == null) {
+                    // Límite secundario sin indicación: backoff exponencial
+                    long factor = 1L << Math.min(consecutiveRejections - 1, 10);
+                    Duration backoff = initialBackoff.multipliedBy(factor);
+                    until = now.plus(backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff);
+                }
+                if (until.isAfter(blockedUntil)) {
+                    blockedUntil = until;
+                }
+                log.warn("GitHub rate limit hit for {} (status {}), pausing requests until {}",
+                        label(), status, blockedUntil);
+            } else if (status < 400) {
+                consecutiveRejections = 0;
+            }
+
+            if (!waiters.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private boolean tryConsume(Priority priority, Instant now) {
+            if (now.isBefore(blockedUntil)) {
+                return false;
+            }
+            if (resetAt != null && !now.isBefore(resetAt) && limit > 0) {
+                // Ventana renovada; el próximo header traerá el valor real
+                remaining = limit;
+                resetAt = null;
+            }
+            if (remaining < 0) {
+                return true;
+            }
+            long floor = priority == Priority.BACKGROUND ? backgroundReserve : 0;
+            if (remaining > floor) {
+                remaining--;
+                return true;
+            }
+            return false;
+        }
+
+        private void drain() {
+            List<Waiter> released = new ArrayList<>();
+            synchronized (this) {
+                drainAt = null;
+                Instant now = Instant.now();
+                while (!waiters.isEmpty() && tryConsume(waiters.peek().priority(), now)) {
+                    released.add(waiters.poll());
+                }
+                if (!waiters.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+            released.forEach(waiter -> waiter.sink().success());
+        }
+
+        /**
+         * Programa un drain para cuando la cabeza de la cola pueda salir. Si ya había uno
+         * más tarde (p.ej. un segundo plano esperando al reset y llega una interactiva con
+         * saldo) se adelanta; el drain tardío sobrante no hace nada.
+         */
+        private void scheduleDrain() {
+            Instant now = Instant.now();
+            Instant wakeAt = now;
+            if (blockedUntil.isAfter(wakeAt)) {
+                wakeAt = blockedUntil;
+            }
+            Waiter head = waiters.peek();
+            long floor = head != null && head.priority() == Priority.BACKGROUND ? backgroundReserve : 0;
+            if (remaining >= 0 && remaining <= floor) {
+                Instant refill = resetAt != null ? resetAt : now.plusSeconds(1);
+                if (refill.isAfter(wakeAt)) {
+                    wakeAt = refill;
+                }
+            }
+
+            if (drainAt != null && !wakeAt.isBefore(drainAt)) {
+                return;
+            }
+            drainAt = wakeAt;
+
+            Duration delay = Duration.between(now, wakeAt);
+            Mono.delay(delay.isNegative() ? Duration.ZERO : delay).subscribe(tick -> drain());
+        }
+
+        private synchronized void cancel(Waiter waiter) {
+            waiters.remove(waiter);
+        }
+
+        private Instant retryAfter(HttpHeaders headers, Instant now) {
+            Long seconds = parseLong(headers.getFirst(HttpHeaders.RETRY_AFTER));
+            return seconds != null ? now.plusSeconds(seconds) : null;
+        }
+
+        synchronized double remainingForGauge() {
+            return remaining < 0 ? Double.NaN : remaining;
+        }
+
+        synchronized int queued() {
+            return waiters.size();
+        }
+
+        private String label() {
+            return key.equals(APP_BUCKET) ? "app" : "installation " + key;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
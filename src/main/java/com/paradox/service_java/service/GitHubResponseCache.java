@@ -0,0 +1,158 @@
+package com.paradox.service_java.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de respuestas condicionales de la API REST de GitHub.
+ *
+ * Guarda por (instalación, URL) el ETag / Last-Modified y el cuerpo ya decodificado.
+ * GitHub responde 304 a un If-None-Match que coincide, sin descontar del rate limit y sin
+ * cuerpo que parsear, así que un repo sin cambios cuesta casi nada al re-sincronizarse.
+ * LRU acotado por tamaño estimado (Content-Length de la respuesta, o un estimado por
+ * elemento si no viene) y por número de entradas.
+ */
+@Service
+public class GitHubResponseCache {
+
+    // Estimado si la respuesta no trae Content-Length (chunked)
+    private static final long ENTRY_OVERHEAD_BYTES = 512;
+    private static final long ITEM_ESTIMATE_BYTES = 4096;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final int maxEntries;
+    private final long maxBytes;
+    private long totalBytes;
+
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong modified = new AtomicLong();
+    private final Counter evictions;
+
+    public GitHubResponseCache(MeterRegistry meterRegistry,
+                               @Value("${github.response-cache.max-entries:5000}") int maxEntries,
+                               @Value("${github.response-cache.max-bytes:67108864}") long maxBytes) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.evictions = Counter.builder("github.response_cache.evictions").register(meterRegistry);
+
+        FunctionCounter.builder("github.response_cache.requests", notModified, AtomicLong::get)
+                .tag("result", "not_modified").register(meterRegistry);
+        FunctionCounter.builder("github.response_cache.requests", modified, AtomicLong::get)
+                .tag("result", "modified").register(meterRegistry);
+        Gauge.builder("github.response_cache.hit_ratio", this, GitHubResponseCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("github.response_cache.size", this, GitHubResponseCache::size)
+                .register(meterRegistry);
+        Gauge.builder("github.response_cache.bytes", this, GitHubResponseCache::estimatedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Entrada cacheada: validadores HTTP + valor decodificado
+     */
+    public record Entry(String etag, String lastModified, Object value, long bytes) {
+    }
+
+    public Entry get(Long installationId, String url) {
+        synchronized (entries) {
+            return entries.get(key(installationId, url));
+        }
+    }
+
+    /**
+     * @param contentLength Content-Length de la respuesta, o -1 si no vino
+     */
+    public void put(Long installationId, String url, String etag, String lastModified, Object value,
+                    long contentLength) {
+        if (etag == null && lastModified == null) {
+            return; // sin validadores no hay petición condicional posible
+        }
+        long bytes = estimate(value, contentLength);
+        if (bytes > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            Entry previous = entries.put(key(installationId, url), new Entry(etag, lastModified, value, bytes));
+            if (previous != null) {
+                totalBytes -= previous.bytes();
+            }
+            totalBytes += bytes;
+
+            // Fuera lo menos usado hasta volver a entrar en ambos límites
+            Iterator<Entry> eldest = entries.values().iterator();
+            while ((totalBytes > maxBytes || entries.size() > maxEntries) && eldest.hasNext()) {
+                totalBytes -= eldest.next().bytes();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Olvida todo lo cacheado de una instalación (p.ej. al desinstalar la app)
+     */
+    public void evictInstallation(Long installationId) {
+        String prefix = installationId + "|";
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    totalBytes -= entry.getValue().bytes();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public void recordNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    public void recordModified() {
+        modified.incrementAndGet();
+    }
+
+    public double hitRatio() {
+        long hits = notModified.get();
+        long total = hits + modified.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long estimatedBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private static long estimate(Object value, long contentLength) {
+        if (contentLength > 0) {
+            return ENTRY_OVERHEAD_BYTES + contentLength;
+        }
+        if (value instanceof Collection<?> items) {
+            return ENTRY_OVERHEAD_BYTES + items.size() * ITEM_ESTIMATE_BYTES;
+        }
+        return ENTRY_OVERHEAD_BYTES + ITEM_ESTIMATE_BYTES;
+    }
+
+    private static String key(Long installationId, String url) {
+        return installationId + "|" + url;
+    }
+}
@@ -1,27 +1,50 @@
 package com.paradox.service_java.service;
 
-import com.paradox.service_java.model.GithubIssue;
+import com.paradox.service_java.dto.github.GitHubIssue;
+import com.paradox.service_java.dto.github.GitHubPullRequest;
 import com.paradox.service_java.model.Installation;
-import com.paradox.service_java.model.PullRequest;
 import com.paradox.service_java.model.Repository;
-import com.paradox.service_java.repository.GithubIssueRepository;
+import com.paradox.service_java.model.SyncCheckpoint;
+import com.paradox.service_java.model.SyncCursor;
 import com.paradox.service_java.repository.InstallationRepository;
-import com.paradox.service_java.repository.PullRequestRepository;
 import com.paradox.service_java.repository.RepositoryRepository;
+import com.paradox.service_java.repository.SyncCheckpointRepository;
+import com.paradox.service_java.repository.SyncCursorRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
 
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Servicio de Sincronización Incremental
  * Responsabilidad: DEV B (Isabella)
  *
- * Detecta y sincroniza solo los cambios desde la última sincronización
+ * Detecta y sincroniza solo los cambios desde la última sincronización.
+ * Cada repositorio guarda en sync_cursors, por recurso, el updated_at más alto ya
+ * persistido: solo se piden a GitHub los elementos actualizados desde esa marca.
+ *
+ * Los repositorios de una instalación se sincronizan en paralelo sobre hilos virtuales:
+ * como mucho github.sync.per-installation-concurrency a la vez por instalación y
+ * github.sync.max-concurrency en total. Dentro de cada repositorio cada página es una
+ * transacción corta que además deja un checkpoint, desde el que se retoma si la
+ * sincronización se interrumpe.
  */
 @Slf4j
 @Service
@@ -29,51 +52,116 @@ import java.util.*;
 public class IncrementalSyncService {
 
     private final GitHubApiService gitHubApiService;
+    private final GitHubGraphQlService gitHubGraphQlService;
     private final InstallationRepository installationRepository;
     private final RepositoryRepository repositoryRepository;
-    private final PullRequestRepository pullRequestRepository;
-    private final GithubIssueRepository githubIssueRepository;
-    private final InstallationTokenService installationTokenService;
+    private final SyncBulkWriter syncBulkWriter;
+    private final BranchCommitSyncService branchCommitSyncService;
+    private final SyncCursorRepository syncCursorRepository;
+    private final SyncCheckpointRepository syncCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Páginas pedidas por adelantado: se persiste una mientras llega la siguiente
+    private static final int PAGE_PREFETCH = 2;
+
+    private static final List<String> CURSOR_RESOURCES = List.of(SyncCursor.PULL_REQUESTS, SyncCursor.ISSUES);
+
+    // Listados de GitHub pedidos en paralelo por repositorio
+    @Value("${github.sync.fan-out:4}")
+    private int fanOut;
+
+    // Repositorios sincronizándose a la vez, en total y por instalación
+    @Value("${github.sync.max-concurrency:16}")
+    private int maxConcurrency;
+
+    @Value("${github.sync.per-installation-concurrency:4}")
+    private int perInstallationConcurrency;
+
+    // Checkpoints más viejos se descartan y la sincronización empieza de cero
+    @Value("${github.sync.checkpoint-max-age-hours:24}")
+    private long checkpointMaxAgeHours;
+
+    private ExecutorService repoSyncExecutor;
+    private Semaphore globalPermits;
+    private final Map<Long, Semaphore> installationPermits = new ConcurrentHashMap<>();
+    private final Set<UUID> syncingRepositories = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void startExecutor() {
+        globalPermits = new Semaphore(Math.max(1, maxConcurrency));
+        repoSyncExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("repo-sync-", 0).factory());
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        repoSyncExecutor.shutdownNow();
+    }
 
     /**
-     * Sincroniza todos los cambios desde GitHub para una instalación
+     * Sincroniza todos los cambios desde GitHub para una instalación.
+     * Sin transacción propia: cada página abre y cierra la suya, así que el fallo de un
+     * repositorio no deshace los demás y ninguna conexión queda retenida durante toda la sync.
      */
-    @Transactional
     public SyncSummary syncFull(Long githubInstallationId) {
-        log.info("Starting full incremental sync for installation: {}", githubInstallationId);
+        return syncFull(githubInstallationId, new SyncSummary());
+    }
 
-        SyncSummary summary = new SyncSummary();
-        summary.setStartTime(OffsetDateTime.now());
-        summary.setInstallationId(githubInstallationId);
+    /**
+     * Igual que syncFull(Long), acumulando sobre un resumen del llamador, que puede leerlo
+     * mientras avanza (progreso de los jobs de sincronización)
+     */
+    public SyncSummary syncFull(Long githubInstallationId, SyncSummary summary) {
+        log.info("Starting full incremental sync for installation: {}", githubInstallationId);
 
-        try {
+        return run(githubInstallationId, summary, () -> {
             // Buscar instalación
             Installation installation = installationRepository.findByInstallationId(githubInstallationId)
                     .orElseThrow(() -> new RuntimeException("Installation not found: " + githubInstallationId));
 
-            // Obtener token de instalación
-            String token = installationTokenService.getInstallationToken(githubInstallationId);
-
             // Obtener repositorios de la instalación
             List<Repository> repositories = repositoryRepository.findByInstallationId(installation.getId());
             log.info("Found {} repositories for installation {}", repositories.size(), githubInstallationId);
+            return repositories;
+        });
+    }
+
+    /**
+     * Sincroniza solo los repositorios indicados de una instalación (p.ej. los que el
+     * scheduler considera pendientes)
+     */
+    public SyncSummary syncRepositories(Long githubInstallationId, List<Repository> repositories) {
+        log.info("Starting incremental sync of {} repositories for installation: {}",
+                repositories.size(), githubInstallationId);
+        return run(githubInstallationId, new SyncSummary(), () -> repositories);
+    }
+
+    private SyncSummary run(Long githubInstallationId, SyncSummary summary,
+                            Callable<List<Repository>> repositoriesToSync) {
+        summary.setStartTime(OffsetDateTime.now());
+        summary.setInstallationId(githubInstallationId);
+
+        try {
+            long start = System.nanoTime();
+            List<Repository> repositories = repositoriesToSync.call();
+            summary.addPhaseTime(SyncSummary.PHASE_DISCOVERY, start);
+            summary.setRepositoriesTotal(repositories.size());
 
             // Sincronizar cada repositorio
-            for (Repository repo : repositories) {
-                try {
-                    syncRepository(repo, token, summary);
-                } catch (Exception e) {
-                    log.error("Error syncing repository {}: {}", repo.getFullName(), e.getMessage(), e);
-                    summary.addError(repo.getFullName(), e.getMessage());
-                }
+            if (gitHubGraphQlService.isEnabledFor(githubInstallationId)) {
+                List<Repository> synced = syncRepositoriesGraphQl(repositories, githubInstallationId, summary);
+                forEachRepository(synced, githubInstallationId, summary,
+                        repo -> syncHistory(repo, githubInstallationId, summary));
+            } else {
+                forEachRepository(repositories, githubInstallationId, summary,
+                        repo -> syncRepository(repo, githubInstallationId, summary));
             }
 
             summary.setEndTime(OffsetDateTime.now());
             summary.setSuccess(true);
-            log.info("Full sync completed for installation {}: {}", githubInstallationId, summary);
+            log.info("Sync completed for installation {}: {}", githubInstallationId, summary);
 
         } catch (Exception e) {
-            log.error("Error in full sync for installation {}: {}", githubInstallationId, e.getMessage(), e);
+            log.error("Error in sync for installation {}: {}", githubInstallationId, e.getMessage(), e);
             summary.setSuccess(false);
             summary.setEndTime(OffsetDateTime.now());
             summary.addError("GLOBAL", e.getMessage());
@@ -83,303 +171,457 @@ public class IncrementalSyncService {
     }
 
     /**
-     * Sincroniza cambios de un repositorio específico
+     * Lanza un worker por repositorio y espera a todos. Cada worker pide turno a su
+     * instalación y al límite global antes de empezar; los errores quedan en el resumen
+     * con el nombre del repositorio. Un repositorio que ya se está sincronizando (p.ej. por
+     * el scheduler y a mano a la vez) se salta.
      */
-    @Transactional
-    public void syncRepository(Repository repo, String token, SyncSummary summary) {
-        log.info("Syncing repository: {}", repo.getFullName());
-
-        // Sincronizar PRs
-        syncPullRequests(repo, token, summary);
+    public void forEachRepository(List<Repository> repositories, Long githubInstallationId,
+                                   SyncSummary summary, Consumer<Repository> task) throws InterruptedException {
+        Semaphore permits = installationPermits.computeIfAbsent(githubInstallationId,
+                id -> new Semaphore(Math.max(1, perInstallationConcurrency)));
+
+        List<Future<?>> workers = new ArrayList<>(repositories.size());
+        for (Repository repo : repositories) {
+            if (!syncingRepositories.add(repo.getId())) {
+                log.info("Repository {} is already syncing, skipping", repo.getFullName());
+                summary.repositoryDone();
+                continue;
+            }
+            workers.add(repoSyncExecutor.submit(() -> {
+                permits.acquireUninterruptibly();
+                globalPermits.acquireUninterruptibly();
+                try {
+                    task.accept(repo);
+                } catch (Exception e) {
+                    log.error("Error syncing repository {}: {}", repo.getFullName(), e.getMessage(), e);
+                    summary.addError(repo.getFullName(), e.getMessage());
+                } finally {
+                    globalPermits.release();
+                    permits.release();
+                    syncingRepositories.remove(repo.getId());
+                    summary.repositoryDone();
+                }
+            }));
+        }
 
-        // Sincronizar Issues
-        syncIssues(repo, token, summary);
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                // El worker ya registra sus errores; solo llega aquí algo inesperado
+                summary.addError("WORKER", e.getCause().getMessage());
+            }
+        }
+    }
 
-        // TODO DEV A: Sincronizar Commits (requiere entidad Commit)
-        // TODO DEV A: Sincronizar Branches (requiere entidad Branch)
+    /**
+     * Sincroniza cambios de un repositorio específico.
+     * PRs e issues se piden ordenados por updated desc desde la marca de cada cursor, en
+     * paralelo (hasta github.sync.fan-out) y con PAGE_PREFETCH páginas por adelantado;
+     * las páginas se persisten en orden en este hilo.
+     * Cada página se aplica en su propia transacción junto con el checkpoint de su recurso,
+     * así que el contexto de persistencia no crece con el tamaño del repo y una
+     * interrupción solo pierde la página en curso. Al terminar avanzan los cursores y se
+     * borran los checkpoints. Después se sincronizan branches y commits.
+     * No debe llamarse dentro de otra transacción.
+     */
+    public void syncRepository(Repository repo, Long githubInstallationId, SyncSummary summary) {
+        log.info("Syncing repository: {}", repo.getFullName());
+        syncChanges(repo, githubInstallationId, summary);
+        syncHistory(repo, githubInstallationId, summary);
+        log.info("Finished syncing repository {}", repo.getFullName());
     }
 
     /**
-     * Sincroniza Pull Requests modificados desde última sincronización
+     * Solo PRs e issues de syncRepository (sin branches ni commits)
      */
-    private void syncPullRequests(Repository repo, String token, SyncSummary summary) {
-        try {
-            log.info("Syncing Pull Requests for repo: {}", repo.getFullName());
-
-            // Obtener fecha de última actualización
-            OffsetDateTime lastUpdate = repo.getUpdatedAt();
-
-            // Obtener PRs desde GitHub (todos los estados)
-            List<Map<String, Object>> openPrs = gitHubApiService.getPullRequests(
-                    repo.getFullName(), "open", token);
-            List<Map<String, Object>> closedPrs = gitHubApiService.getPullRequests(
-                    repo.getFullName(), "closed", token);
-
-            int syncedCount = 0;
-            int updatedCount = 0;
-            int newCount = 0;
-
-            // Procesar PRs abiertos
-            for (Map<String, Object> prData : openPrs) {
-                if (syncPullRequest(repo, prData)) {
-                    syncedCount++;
-                    if (isNew(repo, (Integer) prData.get("number"))) {
-                        newCount++;
-                    } else {
-                        updatedCount++;
-                    }
-                }
-            }
+    public void syncChanges(Repository repo, Long githubInstallationId, SyncSummary summary) {
+        long start = System.nanoTime();
+
+        String fullName = repo.getFullName();
+        Map<String, SyncCheckpoint> checkpoints = loadCheckpoints(repo);
+        RepoCursors cursors = new RepoCursors(
+                new CursorUpdate(loadCursor(repo, SyncCursor.PULL_REQUESTS), checkpoints.get(SyncCursor.PULL_REQUESTS)),
+                new CursorUpdate(loadCursor(repo, SyncCursor.ISSUES), checkpoints.get(SyncCursor.ISSUES)));
+        if (!checkpoints.isEmpty()) {
+            log.info("Resuming sync of {} from checkpoint", fullName);
+        }
 
-            // Procesar PRs cerrados (solo los modificados recientemente)
-            for (Map<String, Object> prData : closedPrs) {
-                String updatedAtStr = (String) prData.get("updated_at");
-                if (updatedAtStr != null) {
-                    OffsetDateTime updatedAt = OffsetDateTime.parse(updatedAtStr);
-                    if (lastUpdate == null || updatedAt.isAfter(lastUpdate)) {
-                        if (syncPullRequest(repo, prData)) {
-                            syncedCount++;
-                            updatedCount++;
-                        }
-                    }
-                }
+        CursorUpdate prs = cursors.pullRequests();
+        CursorUpdate iss = cursors.issues();
+        Flux<RepoPage> pages = Flux.mergeSequential(List.of(
+                prs.finished() ? Flux.<RepoPage>empty()
+                        : gitHubApiService.streamPullRequestChanges(fullName, prs.since(), prs.storedEtag(),
+                                prs.resumeFrom(), githubInstallationId).map(RepoPage::ofPullRequests),
+                iss.finished() ? Flux.<RepoPage>empty()
+                        : gitHubApiService.streamIssueChanges(fullName, iss.since(), iss.storedEtag(),
+                                iss.resumeFrom(), githubInstallationId).map(RepoPage::ofIssues)
+        ), Math.max(1, fanOut), PAGE_PREFETCH);
+
+        for (RepoPage page : pages.toIterable(PAGE_PREFETCH)) {
+            CursorUpdate update = page.pullRequests() != null ? prs : iss;
+            if (page.etag() != null) {
+                update.receivedEtag(page.etag());
             }
+            transactionTemplate.executeWithoutResult(status -> {
+                applyPage(repo, cursors, page.pullRequests(), page.issues(), summary);
+                update.checkpointed(syncCheckpointRepository.save(update.nextCheckpoint(repo, page.next())));
+            });
+        }
 
-            summary.addPullRequestsSynced(syncedCount);
-            summary.addPullRequestsCreated(newCount);
-            summary.addPullRequestsUpdated(updatedCount);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        transactionTemplate.executeWithoutResult(status -> {
+            saveCursors(cursors, elapsedMs);
+            syncCheckpointRepository.deleteByRepoIdAndResourceIn(repo.getId(), CURSOR_RESOURCES);
+        });
+        summary.addPhaseTime(SyncSummary.PHASE_CHANGES, start);
+    }
 
-            log.info("Synced {} PRs for repo {} ({} new, {} updated)",
-                    syncedCount, repo.getFullName(), newCount, updatedCount);
+    /**
+     * Branches y commits: solo recorre el historial de los branches cuya cabeza se movió
+     */
+    public void syncHistory(Repository repo, Long githubInstallationId, SyncSummary summary) {
+        long start = System.nanoTime();
+        BranchCommitSyncService.Result result = branchCommitSyncService.syncRepository(repo, githubInstallationId);
+        summary.addBranchesSynced(result.branchesMoved());
+        summary.addCommitsSynced(result.commitsInserted());
+        summary.addPhaseTime(SyncSummary.PHASE_HISTORY, start);
+    }
 
-        } catch (Exception e) {
-            log.error("Error syncing PRs for repo {}: {}", repo.getFullName(), e.getMessage(), e);
-            summary.addError(repo.getFullName() + " (PRs)", e.getMessage());
+    /**
+     * Checkpoints por recurso de una sincronización interrumpida; si son demasiado viejos
+     * se borran y se empieza de cero
+     */
+    private Map<String, SyncCheckpoint> loadCheckpoints(Repository repo) {
+        List<SyncCheckpoint> found = syncCheckpointRepository.findByRepoIdAndResourceIn(repo.getId(), CURSOR_RESOURCES);
+        if (found.isEmpty()) {
+            return Map.of();
+        }
+        OffsetDateTime limit = OffsetDateTime.now().minusHours(checkpointMaxAgeHours);
+        boolean stale = found.stream().anyMatch(c -> c.getUpdatedAt() == null || c.getUpdatedAt().isBefore(limit));
+        if (stale) {
+            log.info("Discarding stale sync checkpoints for {}", repo.getFullName());
+            transactionTemplate.executeWithoutResult(status ->
+                    syncCheckpointRepository.deleteByRepoIdAndResourceIn(repo.getId(), CURSOR_RESOURCES));
+            return Map.of();
+        }
+        Map<String, SyncCheckpoint> byResource = new HashMap<>();
+        for (SyncCheckpoint checkpoint : found) {
+            byResource.put(checkpoint.getResource(), checkpoint);
         }
+        return byResource;
     }
 
     /**
-     * Sincroniza Issues modificados desde última sincronización
+     * Página de PRs o de issues de un repositorio; la lista que no corresponde va a null.
+     * etag solo en la primera página de cada listado; next es la URL de la siguiente.
      */
-    private void syncIssues(Repository repo, String token, SyncSummary summary) {
-        try {
-            log.info("Syncing Issues for repo: {}", repo.getFullName());
+    private record RepoPage(List<GitHubPullRequest> pullRequests, List<GitHubIssue> issues,
+                            String etag, String next) {
+        static RepoPage ofPullRequests(GitHubApiService.ChangePage<GitHubPullRequest> page) {
+            return new RepoPage(page.items(), null, page.etag(), page.next());
+        }
+
+        static RepoPage ofIssues(GitHubApiService.ChangePage<GitHubIssue> page) {
+            return new RepoPage(null, page.items(), page.etag(), page.next());
+        }
+    }
 
-            // Obtener fecha de última actualización
-            OffsetDateTime lastUpdate = repo.getUpdatedAt();
+    /**
+     * Sincroniza PRs e issues de varios repositorios con queries GraphQL por lotes.
+     * Los abiertos llegan siempre completos; applyPage descarta los que no cambiaron.
+     * Ya es un único pipeline por instalación: cada página se guarda en su transacción
+     * (sin checkpoint: los cursores de GraphQL no sobreviven a la query por lotes).
+     * Toma la misma marca por repositorio que forEachRepository: los que ya se están
+     * sincronizando se saltan y cuentan como hechos.
+     * @return los repositorios que entraron al lote
+     */
+    private List<Repository> syncRepositoriesGraphQl(List<Repository> candidates, Long githubInstallationId,
+                                                     SyncSummary summary) {
+        List<Repository> repositories = new ArrayList<>(candidates.size());
+        for (Repository repo : candidates) {
+            if (syncingRepositories.add(repo.getId())) {
+                repositories.add(repo);
+            } else {
+                log.info("Repository {} is already syncing, skipping", repo.getFullName());
+                summary.repositoryDone();
+            }
+        }
+        Set<String> failed;
+        try {
+            failed = syncBatchGraphQl(repositories, githubInstallationId, summary);
+        } finally {
+            repositories.forEach(repo -> syncingRepositories.remove(repo.getId()));
+        }
+        // Los que fallaron ya tienen su error: no siguen con el historial
+        List<Repository> synced = new ArrayList<>(repositories.size());
+        for (Repository repo : repositories) {
+            if (failed.contains(repo.getFullName())) {
+                summary.repositoryDone();
+            } else {
+                synced.add(repo);
+            }
+        }
+        return synced;
+    }
 
-            // Obtener issues desde GitHub (todos los estados)
-            List<Map<String, Object>> openIssues = gitHubApiService.getIssues(
-                    repo.getFullName(), "open", token);
-            List<Map<String, Object>> closedIssues = gitHubApiService.getIssues(
-                    repo.getFullName(), "closed", token);
+    /**
+     * Devuelve los repos cuyo listado quedó incompleto (inaccesibles o con conexiones
+     * fallidas): sus cursores y last_synced_at no avanzan, así la siguiente sync vuelve a
+     * leer lo que faltó.
+     */
+    private Set<String> syncBatchGraphQl(List<Repository> repositories, Long githubInstallationId, SyncSummary summary) {
+        long start = System.nanoTime();
+
+        Map<UUID, Map<String, SyncCursor>> stored = new HashMap<>();
+        if (!repositories.isEmpty()) {
+            for (SyncCursor cursor : syncCursorRepository.findByRepoIdIn(
+                    repositories.stream().map(Repository::getId).toList())) {
+                stored.computeIfAbsent(cursor.getRepo().getId(), id -> new HashMap<>()).put(cursor.getResource(), cursor);
+            }
+        }
 
-            int syncedCount = 0;
-            int updatedCount = 0;
-            int newCount = 0;
+        Map<String, Repository> byFullName = new HashMap<>();
+        Map<String, RepoCursors> cursorsByFullName = new HashMap<>();
+        List<GitHubGraphQlService.RepoRequest> requests = new ArrayList<>();
+        for (Repository repo : repositories) {
+            Map<String, SyncCursor> repoCursors = stored.getOrDefault(repo.getId(), Map.of());
+            RepoCursors cursors = new RepoCursors(
+                    new CursorUpdate(repoCursors.getOrDefault(SyncCursor.PULL_REQUESTS,
+                            newCursor(repo, SyncCursor.PULL_REQUESTS)), null),
+                    new CursorUpdate(repoCursors.getOrDefault(SyncCursor.ISSUES,
+                            newCursor(repo, SyncCursor.ISSUES)), null));
+            byFullName.put(repo.getFullName(), repo);
+            cursorsByFullName.put(repo.getFullName(), cursors);
+            requests.add(new GitHubGraphQlService.RepoRequest(repo.getFullName(), cursors.oldestSince()));
+        }
 
-            // Procesar issues abiertos
-            for (Map<String, Object> issueData : openIssues) {
-                // Filtrar PRs (GitHub API devuelve PRs en issues)
-                if (issueData.containsKey("pull_request")) {
+        Map<String, String> failed = new HashMap<>();
+        try {
+            for (GitHubGraphQlService.RepoPage page : gitHubGraphQlService
+                    .streamRepositories(githubInstallationId, requests).toIterable(PAGE_PREFETCH)) {
+                Repository repo = byFullName.get(page.fullName());
+                if (repo == null) {
                     continue;
                 }
-
-                if (syncIssue(repo, issueData)) {
-                    syncedCount++;
-                    if (isNewIssue(repo, (Integer) issueData.get("number"))) {
-                        newCount++;
-                    } else {
-                        updatedCount++;
-                    }
+                if (page.error() != null) {
+                    failed.putIfAbsent(page.fullName(), page.error());
                 }
+                transactionTemplate.executeWithoutResult(status -> applyPage(repo,
+                        cursorsByFullName.get(page.fullName()), page.pullRequests(), page.issues(), summary));
             }
-
-            // Procesar issues cerrados (solo los modificados recientemente)
-            for (Map<String, Object> issueData : closedIssues) {
-                if (issueData.containsKey("pull_request")) {
-                    continue;
-                }
-
-                String updatedAtStr = (String) issueData.get("updated_at");
-                if (updatedAtStr != null) {
-                    OffsetDateTime updatedAt = OffsetDateTime.parse(updatedAtStr);
-                    if (lastUpdate == null || updatedAt.isAfter(lastUpdate)) {
-                        if (syncIssue(repo, issueData)) {
-                            syncedCount++;
-                            updatedCount++;
-                        }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Map.Entry<String, RepoCursors> entry : cursorsByFullName.entrySet()) {
+                    if (!failed.containsKey(entry.getKey())) {
+                        saveCursors(entry.getValue(), elapsedMs);
                     }
                 }
-            }
-
-            summary.addIssuesSynced(syncedCount);
-            summary.addIssuesCreated(newCount);
-            summary.addIssuesUpdated(updatedCount);
-
-            log.info("Synced {} issues for repo {} ({} new, {} updated)",
-                    syncedCount, repo.getFullName(), newCount, updatedCount);
-
+            });
         } catch (Exception e) {
-            log.error("Error syncing issues for repo {}: {}", repo.getFullName(), e.getMessage(), e);
-            summary.addError(repo.getFullName() + " (Issues)", e.getMessage());
+            log.error("Error in GraphQL sync for installation {}: {}", githubInstallationId, e.getMessage(), e);
+            summary.addError("GraphQL", e.getMessage());
         }
+        failed.forEach((fullName, error) -> {
+            log.warn("GraphQL listing of {} incomplete, cursors not advanced: {}", fullName, error);
+            summary.addError(fullName, error);
+        });
+        summary.addPhaseTime(SyncSummary.PHASE_CHANGES, start);
+        return failed.keySet();
     }
 
     /**
-     * Sincroniza un Pull Request individual
+     * Persiste una página de PRs y/o issues (null = no viene en esta página), descartando
+     * lo que no cambió desde el cursor de su recurso. Cada lista va en un solo upsert.
      */
-    private boolean syncPullRequest(Repository repo, Map<String, Object> prData) {
-        try {
-            Integer number = (Integer) prData.get("number");
-            Long githubPrId = ((Number) prData.get("id")).longValue();
-            String state = (String) prData.get("state");
-            String title = (String) prData.get("title");
-            String body = (String) prData.get("body");
-
-            // Buscar o crear PR
-            PullRequest pr = pullRequestRepository.findByRepoIdAndNumber(repo.getId(), number)
-                    .orElse(PullRequest.builder()
-                            .repo(repo)
-                            .number(number)
-                            .build());
-
-            // Actualizar datos
-            pr.setGithubPrId(githubPrId);
-            pr.setState(state);
-            pr.setTitle(title);
-            pr.setBody(body);
-
-            // Extraer datos adicionales
-            if (prData.containsKey("user") && prData.get("user") instanceof Map) {
-                Map<String, Object> user = (Map<String, Object>) prData.get("user");
-                pr.setUserLogin((String) user.get("login"));
-                pr.setUserId(((Number) user.get("id")).longValue());
+    private void applyPage(Repository repo, RepoCursors cursors, List<GitHubPullRequest> pullRequests,
+                           List<GitHubIssue> issues, SyncSummary summary) {
+        if (pullRequests != null && !pullRequests.isEmpty()) {
+            List<GitHubPullRequest> changed = new ArrayList<>(pullRequests.size());
+            for (GitHubPullRequest prData : pullRequests) {
+                if (cursors.pullRequests().changed(prData.updatedAt())) {
+                    changed.add(prData);
+                }
             }
-
-            if (prData.containsKey("head") && prData.get("head") instanceof Map) {
-                Map<String, Object> head = (Map<String, Object>) prData.get("head");
-                pr.setHeadRef((String) head.get("ref"));
-                pr.setHeadSha((String) head.get("sha"));
+            SyncBulkWriter.UpsertResult result = syncBulkWriter.upsertPullRequests(repo.getId(), changed);
+            for (GitHubPullRequest prData : changed) {
+                cursors.pullRequests().synced(prData.updatedAt());
             }
+            summary.addPullRequestsSynced(result.total());
+            summary.addPullRequestsCreated(result.created());
+            summary.addPullRequestsUpdated(result.updated());
+        }
 
-            if (prData.containsKey("base") && prData.get("base") instanceof Map) {
-                Map<String, Object> base = (Map<String, Object>) prData.get("base");
-                pr.setBaseRef((String) base.get("ref"));
-                pr.setBaseSha((String) base.get("sha"));
+        if (issues != null && !issues.isEmpty()) {
+            // GitHub API devuelve PRs en issues: el writer los descarta, pero cuentan
+            // para la marca del listado
+            List<GitHubIssue> changed = new ArrayList<>(issues.size());
+            for (GitHubIssue issueData : issues) {
+                if (cursors.issues().changed(issueData.updatedAt())) {
+                    changed.add(issueData);
+                }
+            }
+            SyncBulkWriter.UpsertResult result = syncBulkWriter.upsertIssues(repo.getId(), changed);
+            for (GitHubIssue issueData : changed) {
+                cursors.issues().synced(issueData.updatedAt());
             }
+            summary.addIssuesSynced(result.total());
+            summary.addIssuesCreated(result.created());
+            summary.addIssuesUpdated(result.updated());
+        }
+    }
 
-            pr.setDraft((Boolean) prData.get("draft"));
-            pr.setMerged((Boolean) prData.get("merged"));
-            pr.setHtmlUrl((String) prData.get("html_url"));
+    private SyncCursor loadCursor(Repository repo, String resource) {
+        return syncCursorRepository.findByRepoIdAndResource(repo.getId(), resource)
+                .orElseGet(() -> newCursor(repo, resource));
+    }
 
-            pullRequestRepository.save(pr);
-            return true;
+    private SyncCursor newCursor(Repository repo, String resource) {
+        return SyncCursor.builder()
+                .repo(repo)
+                .resource(resource)
+                .build();
+    }
 
-        } catch (Exception e) {
-            log.error("Error syncing PR: {}", e.getMessage(), e);
-            return false;
+    private void saveCursors(RepoCursors cursors, long elapsedMs) {
+        OffsetDateTime now = OffsetDateTime.now();
+        for (CursorUpdate update : List.of(cursors.pullRequests(), cursors.issues())) {
+            update.applyTo(now, elapsedMs);
+            syncCursorRepository.save(update.cursor());
         }
     }
 
     /**
-     * Sincroniza un Issue individual
+     * Cursores de PRs e issues de un repositorio durante una sincronización
      */
-    private boolean syncIssue(Repository repo, Map<String, Object> issueData) {
-        try {
-            Integer number = (Integer) issueData.get("number");
-            Long githubIssueId = ((Number) issueData.get("id")).longValue();
-            String state = (String) issueData.get("state");
-            String title = (String) issueData.get("title");
-            String body = (String) issueData.get("body");
-
-            // Buscar o crear issue
-            GithubIssue issue = githubIssueRepository.findByRepoIdAndNumber(repo.getId(), number)
-                    .orElse(GithubIssue.builder()
-                            .repo(repo)
-                            .number(number)
-                            .build());
-
-            // Actualizar datos
-            issue.setGithubIssueId(githubIssueId);
-            issue.setState(state);
-            issue.setTitle(title);
-            issue.setBody(body);
-
-            // Extraer usuario
-            if (issueData.containsKey("user") && issueData.get("user") instanceof Map) {
-                Map<String, Object> user = (Map<String, Object>) issueData.get("user");
-                issue.setUserLogin((String) user.get("login"));
-                issue.setUserId(((Number) user.get("id")).longValue());
+    private record RepoCursors(CursorUpdate pullRequests, CursorUpdate issues) {
+        /**
+         * Marca común para GraphQL, que corta PRs e issues cerrados con el mismo valor
+         */
+        OffsetDateTime oldestSince() {
+            OffsetDateTime prs = pullRequests.since();
+            OffsetDateTime iss = issues.since();
+            if (prs == null || iss == null) {
+                return null;
             }
+            return prs.isBefore(iss) ? prs : iss;
+        }
+    }
 
-            // Extraer labels
-            if (issueData.containsKey("labels") && issueData.get("labels") instanceof List) {
-                List<Map<String, Object>> labels = (List<Map<String, Object>>) issueData.get("labels");
-                List<String> labelNames = new ArrayList<>();
-                for (Map<String, Object> label : labels) {
-                    labelNames.add((String) label.get("name"));
-                }
-                issue.setLabels(labelNames);
-            }
+    /**
+     * Avance del cursor de un recurso. Solo se guarda si la sincronización terminó (un
+     * fallo de escritura aborta la transacción del repo); los iguales a la marca se
+     * vuelven a aplicar (>=) por si otro se actualizó en el mismo segundo.
+     * El ETag recibido solo se guarda si la marca no se movió: con otra marca la URL de
+     * la próxima petición ya no es la misma.
+     * Con checkpoint se retoma la sincronización interrumpida: misma marca de partida,
+     * la marca alcanzada hasta entonces y la página siguiente a la última aplicada.
+     */
+    private static final class CursorUpdate {
+        private final SyncCursor cursor;
+        private final OffsetDateTime since;
+        private SyncCheckpoint checkpoint;
+        private OffsetDateTime highWater;
+        private String etag;
+
+        CursorUpdate(SyncCursor cursor, SyncCheckpoint checkpoint) {
+            this.cursor = cursor;
+            this.checkpoint = checkpoint;
+            this.since = checkpoint != null ? checkpoint.getSinceMark() : cursor.getHighWaterMark();
+            this.highWater = checkpoint != null ? checkpoint.getHighWaterMark() : cursor.getHighWaterMark();
+        }
 
-            // Extraer assignees
-            if (issueData.containsKey("assignees") && issueData.get("assignees") instanceof List) {
-                List<Map<String, Object>> assignees = (List<Map<String, Object>>) issueData.get("assignees");
-                List<String> assigneeLogins = new ArrayList<>();
-                for (Map<String, Object> assignee : assignees) {
-                    assigneeLogins.add((String) assignee.get("login"));
-                }
-                issue.setAssignees(assigneeLogins);
-            }
+        SyncCursor cursor() { return cursor; }
+
+        OffsetDateTime since() { return since; }
+
+        String resumeFrom() { return checkpoint != null ? checkpoint.getNextUrl() : null; }
+
+        /**
+         * El recurso ya terminó en la sincronización interrumpida
+         */
+        boolean finished() { return checkpoint != null && checkpoint.getNextUrl() == null; }
+
+        /**
+         * Checkpoint tras aplicar una página cuyo siguiente es next
+         */
+        SyncCheckpoint nextCheckpoint(Repository repo, String next) {
+            SyncCheckpoint target = checkpoint != null ? checkpoint : SyncCheckpoint.builder()
+                    .repo(repo)
+                    .resource(cursor.getResource())
+                    .sinceMark(since)
+                    .pagesDone(0)
+                    .build();
+            target.setHighWaterMark(highWater);
+            target.setNextUrl(next);
+            target.setPagesDone(target.getPagesDone() + 1);
+            return target;
+        }
 
-            issue.setCommentsCount((Integer) issueData.get("comments"));
-            issue.setHtmlUrl((String) issueData.get("html_url"));
+        void checkpointed(SyncCheckpoint saved) { this.checkpoint = saved; }
 
-            githubIssueRepository.save(issue);
-            return true;
+        String storedEtag() { return cursor.getEtag(); }
 
-        } catch (Exception e) {
-            log.error("Error syncing issue: {}", e.getMessage(), e);
-            return false;
+        boolean changed(OffsetDateTime updatedAt) {
+            return updatedAt != null && (since() == null || !updatedAt.isBefore(since()));
         }
-    }
 
-    /**
-     * Verifica si un PR es nuevo
-     */
-    private boolean isNew(Repository repo, Integer number) {
-        return pullRequestRepository.findByRepoIdAndNumber(repo.getId(), number).isEmpty();
-    }
+        void synced(OffsetDateTime updatedAt) {
+            if (updatedAt != null && (highWater == null || updatedAt.isAfter(highWater))) {
+                highWater = updatedAt;
+            }
+        }
 
-    /**
-     * Verifica si un Issue es nuevo
-     */
-    private boolean isNewIssue(Repository repo, Integer number) {
-        return githubIssueRepository.findByRepoIdAndNumber(repo.getId(), number).isEmpty();
+        void receivedEtag(String etag) { this.etag = etag; }
+
+        void applyTo(OffsetDateTime now, long elapsedMs) {
+            cursor.setLastRunMs(elapsedMs);
+            if (!Objects.equals(highWater, cursor.getHighWaterMark())) {
+                cursor.setHighWaterMark(highWater);
+                cursor.setEtag(null);
+            } else if (etag != null) {
+                cursor.setEtag(etag);
+            }
+            cursor.setLastSyncedAt(now);
+        }
     }
 
     /**
-     * Clase para resumir los resultados de la sincronización
+     * Clase para resumir los resultados de la sincronización.
+     * Thread-safe: los workers de cada repositorio acumulan sobre el mismo resumen, y
+     * se puede leer mientras la sincronización avanza.
+     * Los tiempos por fase suman los de todos los repositorios, así que con workers en
+     * paralelo pueden superar la duración total.
      */
     public static class SyncSummary {
-        private Long installationId;
-        private OffsetDateTime startTime;
-        private OffsetDateTime endTime;
-        private boolean success;
+        public static final String PHASE_DISCOVERY = "discovery";
+        public static final String PHASE_CHANGES = "changes";
+        public static final String PHASE_HISTORY = "history";
+        public static final String PHASE_PROBE = "probe";
+        public static final String PHASE_REPAIR = "repair";
+
+        private volatile Long installationId;
+        private volatile OffsetDateTime startTime;
+        private volatile OffsetDateTime endTime;
+        private volatile boolean success;
 
-        private int pullRequestsSynced = 0;
-        private int pullRequestsCreated = 0;
-        private int pullRequestsUpdated = 0;
+        private final AtomicInteger pullRequestsSynced = new AtomicInteger();
+        private final AtomicInteger pullRequestsCreated = new AtomicInteger();
+        private final AtomicInteger pullRequestsUpdated = new AtomicInteger();
 
-        private int issuesSynced = 0;
-        private int issuesCreated = 0;
-        private int issuesUpdated = 0;
+        private final AtomicInteger issuesSynced = new AtomicInteger();
+        private final AtomicInteger issuesCreated = new AtomicInteger();
+        private final AtomicInteger issuesUpdated = new AtomicInteger();
 
-        private int commitsSynced = 0; // TODO DEV A
-        private int branchesSynced = 0; // TODO DEV A
+        private final AtomicInteger commitsSynced = new AtomicInteger();
+        private final AtomicInteger branchesSynced = new AtomicInteger();
 
-        private Map<String, String> errors = new HashMap<>();
+        private volatile int repositoriesTotal = -1;
+        private final AtomicInteger repositoriesDone = new AtomicInteger();
+        private final Map<String, AtomicLong> phaseTimings = new ConcurrentHashMap<>();
+
+        private final Map<String, String> errors = new ConcurrentHashMap<>();
 
         // Getters y Setters
         public Long getInstallationId() { return installationId; }
@@ -394,39 +636,75 @@ public class IncrementalSyncService {
         public boolean isSuccess() { return success; }
         public void setSuccess(boolean success) { this.success = success; }
 
-        public int getPullRequestsSynced() { return pullRequestsSynced; }
-        public void addPullRequestsSynced(int count) { this.pullRequestsSynced += count; }
+        public int getPullRequestsSynced() { return pullRequestsSynced.get(); }
+        public void addPullRequestsSynced(int count) { this.pullRequestsSynced.addAndGet(count); }
+
+        public int getPullRequestsCreated() { return pullRequestsCreated.get(); }
+        public void addPullRequestsCreated(int count) { this.pullRequestsCreated.addAndGet(count); }
 
-        public int getPullRequestsCreated() { return pullRequestsCreated; }
-        public void addPullRequestsCreated(int count) { this.pullRequestsCreated += count; }
+        public int getPullRequestsUpdated() { return pullRequestsUpdated.get(); }
+        public void addPullRequestsUpdated(int count) { this.pullRequestsUpdated.addAndGet(count); }
 
-        public int getPullRequestsUpdated() { return pullRequestsUpdated; }
-        public void addPullRequestsUpdated(int count) { this.pullRequestsUpdated += count; }
+        public int getIssuesSynced() { return issuesSynced.get(); }
+        public void addIssuesSynced(int count) { this.issuesSynced.addAndGet(count); }
 
-        public int getIssuesSynced() { return issuesSynced; }
-        public void addIssuesSynced(int count) { this.issuesSynced += count; }
+        public int getIssuesCreated() { return issuesCreated.get(); }
+        public void addIssuesCreated(int count) { this.issuesCreated.addAndGet(count); }
 
-        public int getIssuesCreated() { return issuesCreated; }
-        public void addIssuesCreated(int count) { this.issuesCreated += count; }
+        public int getIssuesUpdated() { return issuesUpdated.get(); }
+        public void addIssuesUpdated(int count) { this.issuesUpdated.addAndGet(count); }
 
-        public int getIssuesUpdated() { return issuesUpdated; }
-        public void addIssuesUpdated(int count) { this.issuesUpdated += count; }
+        public int getCommitsSynced() { return commitsSynced.get(); }
+        public void addCommitsSynced(int count) { this.commitsSynced.addAndGet(count); }
 
-        public int getCommitsSynced() { return commitsSynced; }
-        public void addCommitsSynced(int count) { this.commitsSynced += count; }
+        public int getBranchesSynced() { return branchesSynced.get(); }
+        public void addBranchesSynced(int count) { this.branchesSynced.addAndGet(count); }
 
-        public int getBranchesSynced() { return branchesSynced; }
-        public void addBranchesSynced(int count) { this.branchesSynced += count; }
+        /**
+         * Repositorios a sincronizar; -1 mientras aún no se conocen
+         */
+        public int getRepositoriesTotal() { return repositoriesTotal; }
+        public void setRepositoriesTotal(int repositoriesTotal) { this.repositoriesTotal = repositoriesTotal; }
+
+        public int getRepositoriesDone() { return repositoriesDone.get(); }
+        public void repositoryDone() { this.repositoriesDone.incrementAndGet(); }
+
+        /**
+         * PRs, issues y commits escritos hasta ahora
+         */
+        public int getItemsSynced() {
+            return getPullRequestsSynced() + getIssuesSynced() + getCommitsSynced();
+        }
+
+        /**
+         * Milisegundos acumulados por fase
+         */
+        public Map<String, Long> getPhaseTimings() {
+            Map<String, Long> timings = new TreeMap<>();
+            phaseTimings.forEach((phase, ms) -> timings.put(phase, ms.get()));
+            return timings;
+        }
+
+        /**
+         * Suma a una fase el tiempo transcurrido desde startNanos (System.nanoTime())
+         */
+        public void addPhaseTime(String phase, long startNanos) {
+            long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+            phaseTimings.computeIfAbsent(phase, p -> new AtomicLong()).addAndGet(elapsedMs);
+        }
 
         public Map<String, String> getErrors() { return errors; }
-        public void addError(String context, String message) { this.errors.put(context, message); }
+        public void addError(String context, String message) {
+            this.errors.put(context, message != null ? message : "unknown error");
+        }
 
         @Override
         public String toString() {
-            return String.format("SyncSummary{installation=%d, PRs=%d(%d new, %d updated), Issues=%d(%d new, %d updated), errors=%d}",
-                    installationId, pullRequestsSynced, pullRequestsCreated, pullRequestsUpdated,
-                    issuesSynced, issuesCreated, issuesUpdated, errors.size());
+            return String.format("SyncSummary{installation=%d, PRs=%d(%d new, %d updated), Issues=%d(%d new, %d updated), " +
+                            "branches=%d, commits=%d, errors=%d}",
+                    installationId, getPullRequestsSynced(), getPullRequestsCreated(), getPullRequestsUpdated(),
+                    getIssuesSynced(), getIssuesCreated(), getIssuesUpdated(),
+                    getBranchesSynced(), getCommitsSynced(), errors.size());
         }
     }
 }
-
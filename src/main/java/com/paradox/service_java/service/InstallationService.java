@@ -1,5 +1,6 @@
 package com.paradox.service_java.service;
 
+import com.paradox.service_java.dto.webhook.InstallationRef;
 import com.paradox.service_java.model.Installation;
 import com.paradox.service_java.repository.InstallationRepository;
 import lombok.RequiredArgsConstructor;
@@ -74,6 +75,46 @@ public class InstallationService {
         return installationRepository.save(installation);
     }
 
+    /**
+     * Crea o actualiza una instalación desde el payload tipado de un webhook
+     */
+    @Transactional
+    public Installation createOrUpdateFromWebhook(InstallationRef installationData) {
+        Long installationId = installationData.id();
+
+        if (installationId == null) {
+            throw new IllegalArgumentException("Installation ID is required");
+        }
+
+        Installation installation = installationRepository.findByInstallationId(installationId)
+                .orElseGet(() -> {
+                    log.info("Creating new installation: {}", installationId);
+                    Installation created = new Installation();
+                    created.setInstallationId(installationId);
+                    return created;
+                });
+
+        if (installationData.account() != null) {
+            installation.setAccountLogin(installationData.account().login());
+            installation.setAccountType(installationData.account().type());
+            installation.setAccountId(installationData.account().id());
+        }
+
+        installation.setTargetType(installationData.targetType());
+        installation.setRepositorySelection(installationData.repositorySelection());
+        installation.setAppId(installationData.appId());
+        installation.setAppSlug(installationData.appSlug());
+
+        if (installationData.permissions() != null) {
+            installation.setPermissions(installationData.permissions());
+        }
+        if (installationData.events() != null) {
+            installation.setEvents(installationData.events());
+        }
+
+        return installationRepository.save(installation);
+    }
+
     /**
      * Busca una instalación por su ID de GitHub
      */
@@ -3,18 +3,16 @@ package com.paradox.service_java.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paradox.service_java.dto.webhook.RepositoryRef;
 import com.paradox.service_java.model.Installation;
-import com.paradox.service_java.model.Repository;
-import com.paradox.service_java.model.WebhookLog;
 import com.paradox.service_java.repository.InstallationRepository;
-import com.paradox.service_java.repository.RepositoryRepository;
 import com.paradox.service_java.repository.WebhookLogRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.OffsetDateTime;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -27,18 +25,21 @@ public class InstallationSyncService {
 
     private final WebhookLogRepository webhookLogRepository;
     private final InstallationRepository installationRepository;
-    private final RepositoryRepository repositoryRepository;
+    private final RepositoryBulkWriter repositoryBulkWriter;
     private final ObjectMapper objectMapper;
 
+    private static final TypeReference<List<RepositoryRef>> REPOSITORY_LIST = new TypeReference<>() {};
+
     /**
-     * Sincroniza repositorios desde los logs de webhooks de tipo installation
+     * Sincroniza repositorios desde los logs de webhooks de tipo installation.
+     * Solo se lee el payload installation/created más reciente de cada instalación.
      */
     @Transactional
     public Map<String, Object> syncRepositoriesFromWebhookLogs() {
         log.info("Starting repository sync from webhook logs");
 
-        List<WebhookLog> installationWebhooks = webhookLogRepository
-                .findByEventTypeOrderByCreatedAtDesc("installation");
+        List<WebhookLogRepository.InstallationPayload> installationWebhooks =
+                webhookLogRepository.findLatestInstallationPayloads();
 
         if (installationWebhooks.isEmpty()) {
             log.warn("No installation webhooks found in logs");
@@ -52,22 +53,9 @@ public class InstallationSyncService {
         int savedRepositories = 0;
         List<String> errors = new ArrayList<>();
 
-        for (WebhookLog webhook : installationWebhooks) {
+        for (WebhookLogRepository.InstallationPayload webhook : installationWebhooks) {
             try {
-                Map<String, Object> payload = webhook.getRequestPayload();
-                String action = extractString(payload, "action");
-
-                if (!"created".equals(action)) {
-                    continue; // Solo procesar instalaciones creadas
-                }
-
-                Map<String, Object> installationData = extractMap(payload, "installation");
-                if (installationData == null) {
-                    log.warn("No installation data in webhook {}", webhook.getId());
-                    continue;
-                }
-
-                Long installationId = extractLong(installationData, "id");
+                Long installationId = webhook.getInstallationId();
                 Optional<Installation> installationOpt = installationRepository.findByInstallationId(installationId);
 
                 if (installationOpt.isEmpty()) {
@@ -78,31 +66,14 @@ public class InstallationSyncService {
                 Installation installation = installationOpt.get();
 
                 // Procesar repositorios del payload
-                Object repositoriesObj = payload.get("repositories");
-                if (repositoriesObj instanceof List) {
-                    List<?> repositories = (List<?>) repositoriesObj;
-
-                    for (Object repoObj : repositories) {
-                        if (repoObj instanceof Map) {
-                            try {
-                                Map<String, Object> repoData = (Map<String, Object>) repoObj;
-                                Long githubRepoId = extractLong(repoData, "id");
-
-                                // Verificar si ya existe
-                                Optional<Repository> existingRepo = repositoryRepository.findByGithubRepoId(githubRepoId);
-
-                                if (existingRepo.isEmpty()) {
-                                    Repository newRepo = createRepositoryFromData(installation, repoData);
-                                    repositoryRepository.save(newRepo);
-                                    savedRepositories++;
-                                    log.info("Saved repository: {} ({})", newRepo.getFullName(), githubRepoId);
-                                }
-                            } catch (Exception e) {
-                                log.error("Error processing repository: {}", e.getMessage());
-                                errors.add("Repository error: " + e.getMessage());
-                            }
-                        }
-                    }
+                List<RepositoryBulkWriter.RepositoryRow> rows = rowsFromPayload(installation, webhook);
+                if (!rows.isEmpty()) {
+                    // Payload antiguo: no reasocia repositorios quitados después
+                    RepositoryBulkWriter.UpsertResult upserted =
+                            repositoryBulkWriter.upsert(installation.getId(), rows, false);
+                    savedRepositories += upserted.created();
+                    log.info("Saved {} repositories from webhook {} ({} already existed)",
+                            upserted.created(), webhook.getId(), upserted.updated());
                 }
 
                 processedWebhooks++;
@@ -144,27 +115,11 @@ public class InstallationSyncService {
 
         Installation installation = installationOpt.get();
 
-        // Buscar el webhook más reciente de esta instalación
-        List<WebhookLog> webhooks = webhookLogRepository.findByEventTypeOrderByCreatedAtDesc("installation");
-
-        WebhookLog targetWebhook = null;
-        for (WebhookLog webhook : webhooks) {
-            try {
-                Map<String, Object> payload = webhook.getRequestPayload();
-                Map<String, Object> installationData = extractMap(payload, "installation");
-                if (installationData != null) {
-                    Long webhookInstallationId = extractLong(installationData, "id");
-                    if (installationId.equals(webhookInstallationId)) {
-                        targetWebhook = webhook;
-                        break;
-                    }
-                }
-            } catch (Exception e) {
-                log.warn("Error checking webhook {}: {}", webhook.getId(), e.getMessage());
-            }
-        }
+        // Webhook installation/created más reciente de esta instalación
+        Optional<WebhookLogRepository.InstallationPayload> targetWebhook =
+                webhookLogRepository.findLatestInstallationPayload(installationId);
 
-        if (targetWebhook == null) {
+        if (targetWebhook.isEmpty()) {
             return Map.of(
                     "status", "no_webhook",
                     "message", "No installation webhook found for installation: " + installationId
@@ -174,31 +129,13 @@ public class InstallationSyncService {
         // Procesar repositorios del webhook encontrado
         int savedCount = 0;
         try {
-            Map<String, Object> payload = targetWebhook.getRequestPayload();
-            Object repositoriesObj = payload.get("repositories");
-
-            if (repositoriesObj instanceof List) {
-                List<?> repositories = (List<?>) repositoriesObj;
-
-                for (Object repoObj : repositories) {
-                    if (repoObj instanceof Map) {
-                        try {
-                            Map<String, Object> repoData = (Map<String, Object>) repoObj;
-                            Long githubRepoId = extractLong(repoData, "id");
-
-                            Optional<Repository> existingRepo = repositoryRepository.findByGithubRepoId(githubRepoId);
-
-                            if (existingRepo.isEmpty()) {
-                                Repository newRepo = createRepositoryFromData(installation, repoData);
-                                repositoryRepository.save(newRepo);
-                                savedCount++;
-                                log.info("Saved repository: {} ({})", newRepo.getFullName(), githubRepoId);
-                            }
-                        } catch (Exception e) {
-                            log.error("Error processing repository: {}", e.getMessage());
-                        }
-                    }
-                }
+            List<RepositoryBulkWriter.RepositoryRow> rows = rowsFromPayload(installation, targetWebhook.get());
+            if (!rows.isEmpty()) {
+                RepositoryBulkWriter.UpsertResult upserted =
+                        repositoryBulkWriter.upsert(installation.getId(), rows, false);
+                savedCount = upserted.created();
+                log.info("Saved {} repositories for installation {} ({} already existed)",
+                        savedCount, installationId, upserted.updated());
             }
 
         } catch (Exception e) {
@@ -218,68 +155,22 @@ public class InstallationSyncService {
     }
 
     /**
-     * Crea un objeto Repository desde los datos del webhook
+     * Filas para el upsert por lotes desde el array repositories del webhook
      */
-    private Repository createRepositoryFromData(Installation installation, Map<String, Object> repoData) {
-        Long githubRepoId = extractLong(repoData, "id");
-        String nodeId = extractString(repoData, "node_id");
-        String name = extractString(repoData, "name");
-        String fullName = extractString(repoData, "full_name");
-        Boolean isPrivate = extractBoolean(repoData, "private");
-
-        String ownerLogin = installation.getAccountLogin();
-        if (fullName != null && fullName.contains("/")) {
-            ownerLogin = fullName.split("/")[0];
+    private List<RepositoryBulkWriter.RepositoryRow> rowsFromPayload(
+            Installation installation, WebhookLogRepository.InstallationPayload webhook) throws IOException {
+        if (webhook.getRepositories() == null) {
+            return List.of();
         }
-
-        return Repository.builder()
-                .installation(installation)
-                .githubRepoId(githubRepoId)
-                .nodeId(nodeId)
-                .name(name)
-                .fullName(fullName)
-                .ownerLogin(ownerLogin)
-                .privateRepo(isPrivate != null ? isPrivate : false)
-                .createdAt(OffsetDateTime.now())
-                .updatedAt(OffsetDateTime.now())
-                .build();
-    }
-
-    // Métodos auxiliares
-    private String extractString(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        return value != null ? String.valueOf(value) : null;
-    }
-
-    private Long extractLong(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) return null;
-        if (value instanceof Number) {
-            return ((Number) value).longValue();
-        }
-        try {
-            return Long.valueOf(String.valueOf(value));
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
-    private Boolean extractBoolean(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) return null;
-        if (value instanceof Boolean) {
-            return (Boolean) value;
+        List<RepositoryRef> repositories = objectMapper.readValue(webhook.getRepositories(), REPOSITORY_LIST);
+        if (repositories == null) {
+            return List.of();
         }
-        return Boolean.valueOf(String.valueOf(value));
-    }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> extractMap(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value instanceof Map) {
-            return (Map<String, Object>) value;
+        List<RepositoryBulkWriter.RepositoryRow> rows = new ArrayList<>(repositories.size());
+        for (RepositoryRef repoRef : repositories) {
+            rows.add(RepositoryBulkWriter.RepositoryRow.of(repoRef, installation.getAccountLogin()));
         }
-        return null;
+        return rows;
     }
 }
-
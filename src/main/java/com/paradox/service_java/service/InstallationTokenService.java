@@ -1,44 +1,243 @@
 package com.paradox.service_java.service;
 
 import com.paradox.service_java.util.GitHubJwtGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Tokens de instalación de GitHub App.
+ *
+ * Los tokens duran una hora (expires_at); se cachean por instalación y se renuevan en
+ * segundo plano antes de caducar, así las llamadas a la API no pagan el POST a
+ * /access_tokens ni la firma RSA del JWT. Varios misses concurrentes de la misma
+ * instalación comparten una única petición.
+ */
+@Slf4j
 @Service
 public class InstallationTokenService {
 
     private final WebClient webClient;
     private final GitHubJwtGenerator jwtGenerator;
+    private final GitHubRateLimiter rateLimiter;
 
-    public InstallationTokenService(WebClient.Builder webClientBuilder, GitHubJwtGenerator jwtGenerator) {
-        this.webClient = webClientBuilder.baseUrl("https://api.github.com").build();
+    private final Duration minRemainingValidity;
+    private final Duration refreshAhead;
+    private final Duration idleEviction;
+
+    private static final ParameterizedTypeReference<Map<String, Object>> MAP_REF = new ParameterizedTypeReference<>() {};
+
+    private final Map<Long, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<CachedToken>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer missFetchTimer;
+    private final Timer proactiveRefreshTimer;
+
+    public InstallationTokenService(@Qualifier("githubWebClient") WebClient githubWebClient,
+                                    GitHubJwtGenerator jwtGenerator,
+                                    GitHubRateLimiter rateLimiter,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${github.token-cache.min-remaining-seconds:60}") long minRemainingSeconds,
+                                    @Value("${github.token-cache.refresh-ahead-seconds:300}") long refreshAheadSeconds,
+                                    @Value("${github.token-cache.idle-eviction-minutes:60}") long idleEvictionMinutes) {
+        this.webClient = githubWebClient;
         this.jwtGenerator = jwtGenerator;
+        this.rateLimiter = rateLimiter;
+        this.minRemainingValidity = Duration.ofSeconds(minRemainingSeconds);
+        this.refreshAhead = Duration.ofSeconds(Math.max(refreshAheadSeconds, minRemainingSeconds));
+        this.idleEviction = Duration.ofMinutes(idleEvictionMinutes);
+
+        this.hits = Counter.builder("github.installation_token.cache")
+                .tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("github.installation_token.cache")
+                .tag("result", "miss").register(meterRegistry);
+        this.missFetchTimer = Timer.builder("github.installation_token.refresh")
+                .tag("trigger", "miss").register(meterRegistry);
+        this.proactiveRefreshTimer = Timer.builder("github.installation_token.refresh")
+                .tag("trigger", "proactive").register(meterRegistry);
+        meterRegistry.gaugeMapSize("github.installation_token.cached", Tags.empty(), tokens);
     }
 
+    /**
+     * Pide siempre un token nuevo a GitHub (sin caché)
+     */
     public String createInstallationToken(Long installationId) {
+        return mintToken(installationId).token();
+    }
+
+    /**
+     * Token de instalación cacheado; solo va a GitHub si no hay uno con validez suficiente
+     */
+    public String getInstallationToken(Long installationId) {
+        CachedToken cached = tokens.get(installationId);
+        Instant now = Instant.now();
+        if (cached != null && cached.isValidAt(now.plus(minRemainingValidity))) {
+            hits.increment();
+            cached.touch(now);
+            return cached.token();
+        }
+
+        misses.increment();
+        return refresh(installationId, missFetchTimer).token();
+    }
+
+    /**
+     * Descarta el token cacheado (p.ej. tras un 401 o al desinstalar la app)
+     */
+    public void invalidate(Long installationId) {
+        tokens.remove(installationId);
+    }
+
+    /**
+     * Renueva en segundo plano los tokens próximos a caducar y olvida los que nadie usa
+     */
+    @Scheduled(fixedDelayString = "${github.token-cache.refresh-check-ms:30000}")
+    public void refreshExpiringTokens() {
+        Instant now = Instant.now();
+        Instant refreshBefore = now.plus(refreshAhead);
+
+        tokens.forEach((installationId, cached) -> {
+            if (cached.lastAccess().plus(idleEviction).isBefore(now)) {
+                tokens.remove(installationId, cached);
+                log.debug("Evicted idle installation token for {}", installationId);
+                return;
+            }
+            if (!cached.isValidAt(refreshBefore) && !inFlight.containsKey(installationId)) {
+                Thread.ofVirtual().name("token-refresh-" + installationId).start(() -> {
+                    try {
+                        refresh(installationId, proactiveRefreshTimer);
+                    } catch (Exception e) {
+                        log.warn("Proactive refresh of installation token {} failed: {}",
+                                installationId, e.getMessage());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Single-flight: el primer hilo hace la petición y el resto espera el mismo resultado
+     */
+    private CachedToken refresh(Long installationId, Timer timer) {
+        CompletableFuture<CachedToken> mine = new CompletableFuture<>();
+        CompletableFuture<CachedToken> existing = inFlight.putIfAbsent(installationId, mine);
+        if (existing != null) {
+            return join(existing);
+        }
+
+        try {
+            CachedToken fresh = timer.record(() -> mintToken(installationId));
+            CachedToken previous = tokens.get(installationId);
+            if (previous != null) {
+                fresh.touch(previous.lastAccess());
+            }
+            tokens.put(installationId, fresh);
+            mine.complete(fresh);
+            return fresh;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(installationId, mine);
+        }
+    }
+
+    private CachedToken join(CompletableFuture<CachedToken> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private CachedToken mintToken(Long installationId) {
         String jwt = jwtGenerator.generateJwt();
-        Map<String, Object> response = this.webClient.post()
-                .uri(uriBuilder -> uriBuilder.path("/app/installations/{id}/access_tokens").build(installationId))
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwt)
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve()
-                .bodyToMono(Map.class)
+        // Los tokens se piden como la app (JWT): cuentan contra el bucket de la app
+        Map<String, Object> response = rateLimiter.acquire(GitHubRateLimiter.APP_BUCKET, GitHubRateLimiter.Priority.INTERACTIVE)
+                .then(this.webClient.post()
+                        .uri(uriBuilder -> uriBuilder.path("/app/installations/{id}/access_tokens").build(installationId))
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwt)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .retrieve()
+                        .toEntity(MAP_REF))
+                .doOnNext(entity -> rateLimiter.onResponse(GitHubRateLimiter.APP_BUCKET,
+                        entity.getStatusCode().value(), entity.getHeaders()))
+                .doOnError(WebClientResponseException.class, ex -> rateLimiter.onError(
+                        GitHubRateLimiter.APP_BUCKET, ex))
+                .map(entity -> entity.getBody())
                 .block();
 
         if (response == null || !response.containsKey("token")) {
             throw new IllegalStateException("Failed to create installation token");
         }
-        return (String) response.get("token");
+
+        Instant expiresAt = parseExpiresAt(response.get("expires_at"));
+        log.debug("Minted installation token for {} (expires at {})", installationId, expiresAt);
+        return new CachedToken((String) response.get("token"), expiresAt);
+    }
+
+    private Instant parseExpiresAt(Object expiresAt) {
+        if (expiresAt instanceof String value && !value.isEmpty()) {
+            try {
+                return Instant.parse(value);
+            } catch (Exception e) {
+                log.warn("Could not parse installation token expires_at '{}': {}", value, e.getMessage());
+            }
+        }
+        // GitHub emite tokens de 1 hora; sin expires_at se asume algo menos
+        return Instant.now().plus(Duration.ofMinutes(55));
     }
 
     /**
-     * Alias para createInstallationToken - obtiene token de instalación
+     * Token con su expiración; lastAccess permite olvidar instalaciones inactivas
      */
-    public String getInstallationToken(Long installationId) {
-        return createInstallationToken(installationId);
+    private static final class CachedToken {
+        private final String token;
+        private final Instant expiresAt;
+        private volatile Instant lastAccess = Instant.now();
+
+        CachedToken(String token, Instant expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        String token() {
+            return token;
+        }
+
+        Instant lastAccess() {
+            return lastAccess;
+        }
+
+        void touch(Instant at) {
+            lastAccess = at;
+        }
+
+        boolean isValidAt(Instant instant) {
+            return expiresAt.isAfter(instant);
+        }
     }
 }
@@ -2,16 +2,16 @@ package com.paradox.service_java.service;
 
 import com.paradox.service_java.dto.PullRequestReviewResponse;
 import com.paradox.service_java.dto.PullRequestSimpleResponse;
+import com.paradox.service_java.dto.github.GitHubReview;
 import com.paradox.service_java.model.PullRequest;
 import com.paradox.service_java.repository.PullRequestRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
-import java.time.OffsetDateTime;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -26,7 +26,7 @@ public class PullRequestAdvancedService {
 
     private final PullRequestRepository pullRequestRepository;
     private final GitHubApiService gitHubApiService;
-    private final InstallationTokenService installationTokenService;
+    private final GitHubGraphQlService gitHubGraphQlService;
 
     /**
      * Obtener solo PRs abiertos de un repositorio
@@ -43,43 +43,38 @@ public class PullRequestAdvancedService {
     }
 
     /**
-     * Obtener reviews de un Pull Request desde GitHub API
+     * Obtener reviews de un Pull Request desde GitHub API.
+     * La llamada a GitHub no bloquea: el hilo de la petición se libera mientras espera.
      */
-    public List<PullRequestReviewResponse> getPullRequestReviews(UUID repoId, Integer prNumber, Long installationId) {
+    public Mono<List<PullRequestReviewResponse>> getPullRequestReviews(UUID repoId, Integer prNumber, Long installationId) {
         log.info("Getting reviews for PR #{} in repo: {}", prNumber, repoId);
 
         PullRequest pr = pullRequestRepository.findByRepoIdAndNumber(repoId, prNumber)
                 .orElseThrow(() -> new RuntimeException("Pull Request not found: " + prNumber));
 
-        try {
-            String token = installationTokenService.getInstallationToken(installationId);
-            String owner = pr.getRepo().getOwnerLogin();
-            String repoName = pr.getRepo().getName();
+        String owner = pr.getRepo().getOwnerLogin();
+        String repoName = pr.getRepo().getName();
 
-            List<Map<String, Object>> reviews = gitHubApiService.getPullRequestReviews(
-                    owner, repoName, prNumber, token
-            );
+        Mono<List<GitHubReview>> reviews = gitHubGraphQlService.isEnabledFor(installationId)
+                ? gitHubGraphQlService.fetchPullRequestReviews(owner, repoName, prNumber, installationId)
+                : gitHubApiService.fetchPullRequestReviews(owner, repoName, prNumber, installationId);
 
-            return reviews.stream()
-                    .map(review -> PullRequestReviewResponse.builder()
-                            .id(review.containsKey("id") ? ((Number) review.get("id")).longValue() : null)
-                            .reviewer(review.containsKey("user") && review.get("user") != null
-                                    ? (String) ((Map<String, Object>) review.get("user")).get("login")
-                                    : "unknown")
-                            .state((String) review.get("state"))
-                            .body((String) review.get("body"))
-                            .commentsCount(0) // GitHub API no devuelve esto directamente
-                            .submittedAt(review.containsKey("submitted_at") && review.get("submitted_at") != null
-                                    ? OffsetDateTime.parse((String) review.get("submitted_at"))
-                                    : null)
-                            .htmlUrl((String) review.get("html_url"))
-                            .build())
-                    .collect(Collectors.toList());
-
-        } catch (Exception e) {
-            log.error("Error fetching PR reviews from GitHub API: {}", e.getMessage());
-            throw new RuntimeException("Could not fetch PR reviews: " + e.getMessage());
-        }
+        return reviews
+                .map(list -> list.stream()
+                        .map(review -> PullRequestReviewResponse.builder()
+                                .id(review.id())
+                                .reviewer(review.user() != null ? review.user().login() : "unknown")
+                                .state(review.state())
+                                .body(review.body())
+                                .commentsCount(0) // GitHub API no devuelve esto directamente
+                                .submittedAt(review.submittedAt())
+                                .htmlUrl(review.htmlUrl())
+                                .build())
+                        .collect(Collectors.toList()))
+                .onErrorMap(e -> {
+                    log.error("Error fetching PR reviews from GitHub API: {}", e.getMessage());
+                    return new RuntimeException("Could not fetch PR reviews: " + e.getMessage());
+                });
     }
 
     /**
@@ -0,0 +1,59 @@
+package com.paradox.service_java.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Actividad reciente de webhooks por repositorio (github_repo_id).
+ *
+ * Cada evento suma 1 a una puntuación que decae exponencialmente con vida media
+ * github.sync.scheduler.activity-half-life-minutes: un repo con tráfico constante se
+ * mantiene alto y uno que deja de recibir eventos vuelve a 0 solo. Solo memoria: tras
+ * un reinicio todos empiezan fríos y el scheduler se guía por pushedAt y la última sync.
+ */
+@Service
+public class RepoActivityTracker {
+
+    private static final double FORGET_BELOW = 0.01;
+
+    private final Map<Long, Activity> activity = new ConcurrentHashMap<>();
+    private final double decayPerMs;
+
+    public RepoActivityTracker(@Value("${github.sync.scheduler.activity-half-life-minutes:60}") long halfLifeMinutes) {
+        this.decayPerMs = Math.log(2) / (Math.max(1, halfLifeMinutes) * 60_000.0);
+    }
+
+    /**
+     * Registra un evento recibido para el repositorio
+     */
+    public void record(long githubRepoId) {
+        long now = System.currentTimeMillis();
+        activity.compute(githubRepoId, (id, current) -> new Activity(
+                (current != null ? current.decayedAt(now, decayPerMs) : 0) + 1, now));
+    }
+
+    /**
+     * Puntuación actual (≈ eventos en la última vida media); 0 si no hubo actividad
+     */
+    public double score(Long githubRepoId) {
+        Activity current = githubRepoId != null ? activity.get(githubRepoId) : null;
+        return current != null ? current.decayedAt(System.currentTimeMillis(), decayPerMs) : 0;
+    }
+
+    /**
+     * Olvida los repos cuya puntuación ya es despreciable
+     */
+    public void prune() {
+        long now = System.currentTimeMillis();
+        activity.entrySet().removeIf(e -> e.getValue().decayedAt(now, decayPerMs) < FORGET_BELOW);
+    }
+
+    private record Activity(double score, long atMs) {
+        double decayedAt(long nowMs, double decayPerMs) {
+            return score * Math.exp(-decayPerMs * Math.max(0, nowMs - atMs));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.paradox.service_java.service;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Digest de un repositorio para la reconciliación: por recurso, cuántos elementos hay y
+ * el updatedAt más reciente; y la cabeza de cada branch.
+ *
+ * Es un agregado barato, no una prueba de igualdad (un elemento viejo atrasado mientras
+ * otro más nuevo está al día deja el digest igual; eso lo cubre la sync por cursor).
+ * Cuando difiere, la reconciliación baja, estilo Merkle, por ventanas de updatedAt (años,
+ * meses, días) hasta las que no coinciden, donde compara elemento a elemento
+ * (number, updatedAt).
+ */
+public record RepoDigest(ResourceDigest pullRequests, ResourceDigest issues, Map<String, String> branchHeads) {
+
+    public enum Kind { PULL_REQUESTS, ISSUES }
+
+    public ResourceDigest of(Kind kind) {
+        return kind == Kind.PULL_REQUESTS ? pullRequests : issues;
+    }
+
+    /**
+     * Digest de los elementos de un recurso (en todo el repo o en una ventana)
+     */
+    public record ResourceDigest(long count, OffsetDateTime newest) {
+        public static final ResourceDigest EMPTY = new ResourceDigest(0, null);
+
+        /**
+         * Iguales a nivel de segundo, que es la precisión de GitHub
+         */
+        public boolean matches(ResourceDigest other) {
+            return other != null && count == other.count && Objects.equals(seconds(newest), seconds(other.newest));
+        }
+
+        private static OffsetDateTime seconds(OffsetDateTime value) {
+            return value != null ? value.withOffsetSameInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS) : null;
+        }
+    }
+
+    /**
+     * El updatedAt local está al día con el de GitHub (a nivel de segundo)
+     */
+    static boolean upToDate(OffsetDateTime local, OffsetDateTime remote) {
+        return local != null && remote != null && local.toEpochSecond() >= remote.toEpochSecond();
+    }
+
+    /**
+     * Ventana de updatedAt [from, to) de una unidad (año, mes o día); to = null es abierta
+     * hacia el futuro (la última ventana, donde caen los cambios nuevos)
+     */
+    public record TimeWindow(OffsetDateTime from, OffsetDateTime to, ChronoUnit unit) {
+
+        /**
+         * Un año por ventana desde firstYear hasta el actual
+         */
+        public static List<TimeWindow> years(int firstYear, OffsetDateTime now) {
+            OffsetDateTime start = OffsetDateTime.of(firstYear, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+            return new TimeWindow(start, null, ChronoUnit.FOREVER).children(ChronoUnit.YEARS, now);
+        }
+
+        public boolean splittable() {
+            return unit != ChronoUnit.DAYS;
+        }
+
+        /**
+         * Ventanas de la unidad siguiente (año → meses → días) que cubren esta
+         */
+        public List<TimeWindow> split(OffsetDateTime now) {
+            return children(unit == ChronoUnit.YEARS ? ChronoUnit.MONTHS : ChronoUnit.DAYS, now);
+        }
+
+        private List<TimeWindow> children(ChronoUnit childUnit, OffsetDateTime now) {
+            OffsetDateTime end = to != null ? to : now.withOffsetSameInstant(ZoneOffset.UTC);
+            List<TimeWindow> children = new ArrayList<>();
+            OffsetDateTime cursor = from;
+            while (cursor.isBefore(end) || children.isEmpty()) {
+                OffsetDateTime next = cursor.plus(1, childUnit);
+                boolean last = !next.isBefore(end);
+                children.add(new TimeWindow(cursor, last ? to : next, childUnit));
+                cursor = next;
+            }
+            return children;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.paradox.service_java.service;
+
+import com.paradox.service_java.dto.github.GitHubRepository;
+import com.paradox.service_java.dto.webhook.RepositoryRef;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Escritura masiva de repositorios de una instalación (webhooks de instalación,
+ * sincronización inicial y resincronización desde los logs).
+ *
+ * Un lote entero va en un INSERT ... ON CONFLICT (github_repo_id) DO UPDATE ... RETURNING
+ * por cada CHUNK_SIZE filas, en vez de findByGithubRepoId + save por repositorio. Los
+ * campos que no vienen (los payloads de webhook solo traen lo básico) no pisan lo guardado.
+ */
+@Slf4j
+@Service
+public class RepositoryBulkWriter {
+
+    // 20 parámetros por fila: muy por debajo del límite de 65535 de Postgres
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String INSERT =
+            "INSERT INTO repositories (id, installation_id, github_repo_id, node_id, name, full_name, owner_login, " +
+            "owner_type, private, description, fork, html_url, clone_url, ssh_url, default_branch, language, " +
+            "topics, archived, disabled, pushed_at, created_at, updated_at) VALUES ";
+
+    private static final String ROW =
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now(), now())";
+
+    private static final String RELINK = " ON CONFLICT (github_repo_id) DO UPDATE SET installation_id = EXCLUDED.installation_id, ";
+
+    private static final String KEEP_LINK = " ON CONFLICT (github_repo_id) DO UPDATE SET ";
+
+    private static final String UPSERT =
+            "node_id = COALESCE(EXCLUDED.node_id, repositories.node_id), " +
+            "name = EXCLUDED.name, full_name = EXCLUDED.full_name, owner_login = EXCLUDED.owner_login, " +
+            "owner_type = COALESCE(EXCLUDED.owner_type, repositories.owner_type), " +
+            "private = COALESCE(EXCLUDED.private, repositories.private), " +
+            "description = COALESCE(EXCLUDED.description, repositories.description), " +
+            "fork = COALESCE(EXCLUDED.fork, repositories.fork), " +
+            "html_url = COALESCE(EXCLUDED.html_url, repositories.html_url), " +
+            "clone_url = COALESCE(EXCLUDED.clone_url, repositories.clone_url), " +
+            "ssh_url = COALESCE(EXCLUDED.ssh_url, repositories.ssh_url), " +
+            "default_branch = COALESCE(EXCLUDED.default_branch, repositories.default_branch), " +
+            "language = COALESCE(EXCLUDED.language, repositories.language), " +
+            "topics = COALESCE(EXCLUDED.topics, repositories.topics), " +
+            "archived = COALESCE(EXCLUDED.archived, repositories.archived), " +
+            "disabled = COALESCE(EXCLUDED.disabled, repositories.disabled), " +
+            "pushed_at = COALESCE(EXCLUDED.pushed_at, repositories.pushed_at), updated_at = now() " +
+            "RETURNING github_repo_id, id, (xmax = 0) AS inserted";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RepositoryBulkWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Fila a escribir; null = no viene en el origen (se conserva lo guardado)
+     */
+    public record RepositoryRow(
+            Long githubRepoId, String nodeId, String name, String fullName,
+            String ownerLogin, String ownerType, Boolean privateRepo, String description, Boolean fork,
+            String htmlUrl, String cloneUrl, String sshUrl, String defaultBranch, String language,
+            List<String> topics, Boolean archived, Boolean disabled, OffsetDateTime pushedAt
+    ) {
+        /**
+         * Desde la API REST (GET /installation/repositories)
+         */
+        public static RepositoryRow of(GitHubRepository repo) {
+            return new RepositoryRow(repo.id(), repo.nodeId(), repo.name(), repo.fullName(),
+                    repo.owner() != null ? repo.owner().login() : ownerFrom(repo.fullName(), null),
+                    repo.owner() != null ? repo.owner().type() : null,
+                    repo.privateRepo(), repo.description(), repo.fork(),
+                    repo.htmlUrl(), repo.cloneUrl(), repo.sshUrl(), repo.defaultBranch(), repo.language(),
+                    repo.topics(), repo.archived(), repo.disabled(), repo.pushedAt());
+        }
+
+        /**
+         * Desde el repositorio embebido en un webhook; el owner sale de full_name
+         */
+        public static RepositoryRow of(RepositoryRef ref, String fallbackOwner) {
+            return basic(ref.id(), ref.nodeId(), ref.name(), ref.fullName(),
+                    Boolean.TRUE.equals(ref.privateRepo()), fallbackOwner);
+        }
+
+        /**
+         * Solo los datos básicos que traen los payloads de instalación
+         */
+        public static RepositoryRow basic(Long githubRepoId, String nodeId, String name, String fullName,
+                                          Boolean privateRepo, String fallbackOwner) {
+            return new RepositoryRow(githubRepoId, nodeId, name, fullName, ownerFrom(fullName, fallbackOwner),
+                    null, privateRepo, null, null, null, null, null, null, null, null, null, null, null);
+        }
+
+        private static String ownerFrom(String fullName, String fallback) {
+            return fullName != null && fullName.contains("/") ? fullName.split("/")[0] : fallback;
+        }
+    }
+
+    /**
+     * Resultado de un upsert: id de cada repositorio por github_repo_id
+     */
+    public record UpsertResult(Map<Long, UUID> ids, int created, int updated) {
+        public static final UpsertResult EMPTY = new UpsertResult(Map.of(), 0, 0);
+    }
+
+    /**
+     * Crea o actualiza los repositorios de una instalación, asociando a ella los que ya
+     * existían. Las filas sin id, nombre o full_name se descartan; con github_repo_id
+     * repetido se queda la última.
+     * @param installationId id interno (installations.id) de la instalación
+     */
+    @Transactional
+    public UpsertResult upsert(UUID installationId, Collection<RepositoryRow> repositories) {
+        return upsert(installationId, repositories, true);
+    }
+
+    /**
+     * Igual que upsert(UUID, Collection), pero con relink = false los que ya existían
+     * conservan su installation_id: al reprocesar un payload antiguo no se vuelven a
+     * asociar repositorios quitados después de la instalación.
+     */
+    @Transactional
+    public UpsertResult upsert(UUID installationId, Collection<RepositoryRow> repositories, boolean relink) {
+        Map<Long, RepositoryRow> byGithubId = new LinkedHashMap<>();
+        for (RepositoryRow row : repositories) {
+            if (row.githubRepoId() != null && row.name() != null && row.fullName() != null) {
+                byGithubId.put(row.githubRepoId(), row);
+            } else {
+                log.warn("Skipping repository without id or name: {}", row.fullName());
+            }
+        }
+        if (byGithubId.isEmpty()) {
+            return UpsertResult.EMPTY;
+        }
+
+        List<RepositoryRow> rows = new ArrayList<>(byGithubId.values());
+        Map<Long, UUID> ids = new LinkedHashMap<>();
+        int[] counts = new int[2];
+        for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+            List<RepositoryRow> chunk = rows.subList(from, Math.min(rows.size(), from + CHUNK_SIZE));
+            String sql = INSERT + String.join(", ", Collections.nCopies(chunk.size(), ROW))
+                    + (relink ? RELINK : KEEP_LINK) + UPSERT;
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                int i = 1;
+                for (RepositoryRow row : chunk) {
+                    ps.setObject(i++, UUID.randomUUID());
+                    ps.setObject(i++, installationId);
+                    ps.setLong(i++, row.githubRepoId());
+                    ps.setString(i++, row.nodeId());
+                    ps.setString(i++, row.name());
+                    ps.setString(i++, row.fullName());
+                    ps.setString(i++, row.ownerLogin());
+                    ps.setString(i++, row.ownerType());
+                    setNullableBoolean(ps, i++, row.privateRepo());
+                    ps.setString(i++, row.description());
+                    setNullableBoolean(ps, i++, row.fork());
+                    ps.setString(i++, row.htmlUrl());
+                    ps.setString(i++, row.cloneUrl());
+                    ps.setString(i++, row.sshUrl());
+                    ps.setString(i++, row.defaultBranch());
+                    ps.setString(i++, row.language());
+                    if (row.topics() != null) {
+                        ps.setArray(i++, con.createArrayOf("text", row.topics().toArray()));
+                    } else {
+                        ps.setNull(i++, Types.ARRAY);
+                    }
+                    setNullableBoolean(ps, i++, row.archived());
+                    setNullableBoolean(ps, i++, row.disabled());
+                    if (row.pushedAt() != null) {
+                        ps.setObject(i++, row.pushedAt());
+                    } else {
+                        ps.setNull(i++, Types.TIMESTAMP_WITH_TIMEZONE);
+                    }
+                }
+                return ps;
+            }, rs -> {
+                ids.put(rs.getLong("github_repo_id"), rs.getObject("id", UUID.class));
+                counts[rs.getBoolean("inserted") ? 0 : 1]++;
+            });
+        }
+
+        log.debug("Bulk repository upsert for installation {}: {} created, {} updated",
+                installationId, counts[0], counts[1]);
+        return new UpsertResult(ids, counts[0], counts[1]);
+    }
+
+    /**
+     * Desasocia de su instalación los repositorios quitados en un solo UPDATE
+     * @return repositorios afectados
+     */
+    @Transactional
+    public int unlink(Collection<Long> githubRepoIds) {
+        if (githubRepoIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "UPDATE repositories SET installation_id = NULL, updated_at = now() WHERE github_repo_id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("bigint", githubRepoIds.toArray()));
+            return ps;
+        });
+    }
+
+    private static void setNullableBoolean(PreparedStatement ps, int index, Boolean value) throws SQLException {
+        if (value != null) {
+            ps.setBoolean(index, value);
+        } else {
+            ps.setNull(index, Types.BOOLEAN);
+        }
+    }
+}
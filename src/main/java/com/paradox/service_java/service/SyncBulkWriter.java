@@ -0,0 +1,259 @@
+package com.paradox.service_java.service;
+
+import com.paradox.service_java.dto.github.GitHubIssue;
+import com.paradox.service_java.dto.github.GitHubPullRequest;
+import com.paradox.service_java.dto.github.GitHubUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Escritura masiva de PRs e issues sincronizados.
+ *
+ * Una página entera va en un único INSERT ... VALUES (...), (...) ON CONFLICT (repo_id, number)
+ * DO UPDATE ... RETURNING (xmax = 0): un round trip por página en vez de lookup + save por
+ * elemento. xmax = 0 solo en las filas recién insertadas, así que el mismo resultado da
+ * los contadores de creados y actualizados.
+ */
+@Slf4j
+@Service
+public class SyncBulkWriter {
+
+    private static final String PULL_REQUEST_INSERT =
+            "INSERT INTO pull_requests (id, repo_id, github_pr_id, number, state, title, body, user_login, user_id, " +
+            "head_ref, head_sha, base_ref, base_sha, draft, merged, html_url, github_updated_at, created_at, updated_at) VALUES ";
+
+    private static final String PULL_REQUEST_ROW =
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now(), now())";
+
+    private static final String PULL_REQUEST_UPSERT =
+            " ON CONFLICT (repo_id, number) DO UPDATE SET github_pr_id = EXCLUDED.github_pr_id, " +
+            "state = EXCLUDED.state, title = EXCLUDED.title, body = EXCLUDED.body, " +
+            "user_login = EXCLUDED.user_login, user_id = EXCLUDED.user_id, " +
+            "head_ref = EXCLUDED.head_ref, head_sha = EXCLUDED.head_sha, " +
+            "base_ref = EXCLUDED.base_ref, base_sha = EXCLUDED.base_sha, " +
+            "draft = EXCLUDED.draft, merged = EXCLUDED.merged, html_url = EXCLUDED.html_url, " +
+            "github_updated_at = EXCLUDED.github_updated_at, updated_at = now() " +
+            "RETURNING (xmax = 0) AS inserted";
+
+    private static final String ISSUE_INSERT =
+            "INSERT INTO github_issues (id, repo_id, github_issue_id, number, state, title, body, user_login, user_id, " +
+            "labels, assignees, comments_count, html_url, github_updated_at, created_at, updated_at) VALUES ";
+
+    private static final String ISSUE_ROW =
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now(), now())";
+
+    private static final String ISSUE_UPSERT =
+            " ON CONFLICT (repo_id, number) DO UPDATE SET github_issue_id = EXCLUDED.github_issue_id, " +
+            "state = EXCLUDED.state, title = EXCLUDED.title, body = EXCLUDED.body, " +
+            "user_login = EXCLUDED.user_login, user_id = EXCLUDED.user_id, " +
+            "labels = EXCLUDED.labels, assignees = EXCLUDED.assignees, " +
+            "comments_count = EXCLUDED.comments_count, html_url = EXCLUDED.html_url, " +
+            "github_updated_at = EXCLUDED.github_updated_at, updated_at = now() " +
+            "RETURNING (xmax = 0) AS inserted";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SyncBulkWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Resultado de un upsert por lotes
+     */
+    public record UpsertResult(int created, int updated) {
+        public static final UpsertResult EMPTY = new UpsertResult(0, 0);
+
+        public int total() {
+            return created + updated;
+        }
+    }
+
+    /**
+     * Crea o actualiza una página de PRs de un repositorio
+     */
+    @Transactional
+    public UpsertResult upsertPullRequests(UUID repoId, List<GitHubPullRequest> pullRequests) {
+        // Una misma fila no puede tocarse dos veces en un ON CONFLICT: se queda la primera
+        // aparición, que en los listados por updated desc es la más reciente
+        Map<Integer, GitHubPullRequest> byNumber = new LinkedHashMap<>();
+        for (GitHubPullRequest pr : pullRequests) {
+            if (pr.number() != null && pr.id() != null) {
+                byNumber.putIfAbsent(pr.number(), pr);
+            }
+        }
+        if (byNumber.isEmpty()) {
+            return UpsertResult.EMPTY;
+        }
+
+        List<GitHubPullRequest> rows = new ArrayList<>(byNumber.values());
+        String sql = PULL_REQUEST_INSERT + String.join(", ", Collections.nCopies(rows.size(), PULL_REQUEST_ROW))
+                + PULL_REQUEST_UPSERT;
+
+        UpsertResult result = execute(sql, ps -> {
+            int i = 1;
+            for (GitHubPullRequest pr : rows) {
+                GitHubUser user = pr.user();
+                ps.setObject(i++, UUID.randomUUID());
+                ps.setObject(i++, repoId);
+                ps.setLong(i++, pr.id());
+                ps.setInt(i++, pr.number());
+                ps.setString(i++, pr.state());
+                ps.setString(i++, pr.title() != null ? pr.title() : "");
+                ps.setString(i++, pr.body());
+                ps.setString(i++, user != null ? user.login() : null);
+                setNullableLong(ps, i++, user != null ? user.id() : null);
+                ps.setString(i++, pr.head() != null ? pr.head().ref() : null);
+                ps.setString(i++, pr.head() != null ? pr.head().sha() : null);
+                ps.setString(i++, pr.base() != null ? pr.base().ref() : null);
+                ps.setString(i++, pr.base() != null ? pr.base().sha() : null);
+                setNullableBoolean(ps, i++, pr.draft());
+                setNullableBoolean(ps, i++, pr.merged());
+                ps.setString(i++, pr.htmlUrl());
+                setNullableTimestamp(ps, i++, pr.updatedAt());
+            }
+        });
+
+        log.debug("Bulk PR upsert for repo {}: {} created, {} updated", repoId, result.created(), result.updated());
+        return result;
+    }
+
+    /**
+     * Crea o actualiza una página de issues de un repositorio (sin PRs)
+     */
+    @Transactional
+    public UpsertResult upsertIssues(UUID repoId, List<GitHubIssue> issues) {
+        Map<Integer, GitHubIssue> byNumber = new LinkedHashMap<>();
+        for (GitHubIssue issue : issues) {
+            if (issue.number() != null && issue.id() != null && !issue.isPullRequest()) {
+                byNumber.putIfAbsent(issue.number(), issue);
+            }
+        }
+        if (byNumber.isEmpty()) {
+            return UpsertResult.EMPTY;
+        }
+
+        List<GitHubIssue> rows = new ArrayList<>(byNumber.values());
+        String sql = ISSUE_INSERT + String.join(", ", Collections.nCopies(rows.size(), ISSUE_ROW)) + ISSUE_UPSERT;
+
+        UpsertResult result = execute(sql, ps -> {
+            int i = 1;
+            for (GitHubIssue issue : rows) {
+                GitHubUser user = issue.user();
+                ps.setObject(i++, UUID.randomUUID());
+                ps.setObject(i++, repoId);
+                ps.setLong(i++, issue.id());
+                ps.setInt(i++, issue.number());
+                ps.setString(i++, issue.state());
+                ps.setString(i++, issue.title() != null ? issue.title() : "");
+                ps.setString(i++, issue.body());
+                ps.setString(i++, user != null ? user.login() : null);
+                setNullableLong(ps, i++, user != null ? user.id() : null);
+                ps.setArray(i++, ps.getConnection().createArrayOf("text",
+                        issue.labels().stream().map(GitHubIssue.Label::name).toArray()));
+                ps.setArray(i++, ps.getConnection().createArrayOf("text",
+                        issue.assignees().stream().map(GitHubUser::login).toArray()));
+                setNullableInt(ps, i++, issue.comments());
+                ps.setString(i++, issue.htmlUrl());
+                setNullableTimestamp(ps, i++, issue.updatedAt());
+            }
+        });
+
+        log.debug("Bulk issue upsert for repo {}: {} created, {} updated", repoId, result.created(), result.updated());
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    private UpsertResult execute(String sql, Binder binder) {
+        int[] counts = new int[2];
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            binder.bind(ps);
+            return ps;
+        }, rs -> {
+            counts[rs.getBoolean("inserted") ? 0 : 1]++;
+        });
+        return new UpsertResult(counts[0], counts[1]);
+    }
+
+    /**
+     * Borra PRs que ya no existen en GitHub; solo filas guardadas antes de createdBefore,
+     * para no tocar lo que otra sync acaba de traer
+     */
+    @Transactional
+    public int deletePullRequests(UUID repoId, Collection<Integer> numbers, OffsetDateTime createdBefore) {
+        return delete("pull_requests", repoId, numbers, createdBefore);
+    }
+
+    /**
+     * Borra issues borrados o transferidos en GitHub, igual que deletePullRequests
+     */
+    @Transactional
+    public int deleteIssues(UUID repoId, Collection<Integer> numbers, OffsetDateTime createdBefore) {
+        return delete("github_issues", repoId, numbers, createdBefore);
+    }
+
+    private int delete(String table, UUID repoId, Collection<Integer> numbers, OffsetDateTime createdBefore) {
+        if (numbers.isEmpty()) {
+            return 0;
+        }
+        Integer[] values = numbers.toArray(Integer[]::new);
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("DELETE FROM " + table +
+                    " WHERE repo_id = ? AND number = ANY(?) AND created_at < ?");
+            ps.setObject(1, repoId);
+            ps.setArray(2, con.createArrayOf("integer", values));
+            ps.setObject(3, createdBefore);
+            return ps;
+        });
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private static void setNullableTimestamp(PreparedStatement ps, int index, OffsetDateTime value) throws SQLException {
+        if (value != null) {
+            ps.setObject(index, value);
+        } else {
+            ps.setNull(index, Types.TIMESTAMP_WITH_TIMEZONE);
+        }
+    }
+
+    private static void setNullableBoolean(PreparedStatement ps, int index, Boolean value) throws SQLException {
+        if (value != null) {
+            ps.setBoolean(index, value);
+        } else {
+            ps.setNull(index, Types.BOOLEAN);
+        }
+    }
+}
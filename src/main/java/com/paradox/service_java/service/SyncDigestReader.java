@@ -0,0 +1,137 @@
+package com.paradox.service_java.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Digests locales para la reconciliación, calculados con agregados sobre
+ * github_updated_at (indexado por repo): siempre coinciden con lo guardado y no hace
+ * falta mantenerlos aparte.
+ */
+@Service
+public class SyncDigestReader {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SyncDigestReader(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Digest de PRs, issues y branches de varios repositorios en tres consultas
+     */
+    public Map<UUID, RepoDigest> rootDigests(Collection<UUID> repoIds) {
+        if (repoIds.isEmpty()) {
+            return Map.of();
+        }
+        UUID[] ids = repoIds.toArray(UUID[]::new);
+        Map<UUID, RepoDigest.ResourceDigest> pullRequests = resourceDigests(RepoDigest.Kind.PULL_REQUESTS, ids);
+        Map<UUID, RepoDigest.ResourceDigest> issues = resourceDigests(RepoDigest.Kind.ISSUES, ids);
+
+        Map<UUID, Map<String, String>> heads = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT repo_id, name, sha FROM branches WHERE repo_id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            return ps;
+        }, rs -> {
+            heads.computeIfAbsent(rs.getObject("repo_id", UUID.class), id -> new TreeMap<>())
+                    .put(rs.getString("name"), rs.getString("sha"));
+        });
+
+        Map<UUID, RepoDigest> digests = new HashMap<>();
+        for (UUID id : ids) {
+            digests.put(id, new RepoDigest(
+                    pullRequests.getOrDefault(id, RepoDigest.ResourceDigest.EMPTY),
+                    issues.getOrDefault(id, RepoDigest.ResourceDigest.EMPTY),
+                    heads.getOrDefault(id, Map.of())));
+        }
+        return digests;
+    }
+
+    /**
+     * Digest de un recurso de un repositorio en cada ventana, en el mismo orden, con una
+     * sola consulta
+     */
+    public List<RepoDigest.ResourceDigest> windowDigests(UUID repoId, RepoDigest.Kind kind,
+                                                         List<RepoDigest.TimeWindow> windows) {
+        if (windows.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT count(x.number) AS items, max(x.github_updated_at) AS newest " +
+                "FROM unnest(?::timestamptz[], ?::timestamptz[]) WITH ORDINALITY AS w(f, t, i) " +
+                "LEFT JOIN " + table(kind) + " x ON x.repo_id = ? " +
+                "AND x.github_updated_at >= coalesce(w.f, '-infinity'::timestamptz) " +
+                "AND x.github_updated_at < coalesce(w.t, 'infinity'::timestamptz) " +
+                "GROUP BY w.i ORDER BY w.i";
+
+        Timestamp[] from = new Timestamp[windows.size()];
+        Timestamp[] to = new Timestamp[windows.size()];
+        for (int i = 0; i < windows.size(); i++) {
+            from[i] = timestamp(windows.get(i).from());
+            to[i] = timestamp(windows.get(i).to());
+        }
+
+        List<RepoDigest.ResourceDigest> digests = new ArrayList<>(windows.size());
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            Array fromArray = con.createArrayOf("timestamptz", from);
+            Array toArray = con.createArrayOf("timestamptz", to);
+            ps.setArray(1, fromArray);
+            ps.setArray(2, toArray);
+            ps.setObject(3, repoId);
+            return ps;
+        }, rs -> {
+            digests.add(new RepoDigest.ResourceDigest(rs.getLong("items"), rs.getObject("newest", OffsetDateTime.class)));
+        });
+        return digests;
+    }
+
+    /**
+     * updatedAt de GitHub por number de los elementos de un recurso dentro de una ventana
+     */
+    public Map<Integer, OffsetDateTime> windowStamps(UUID repoId, RepoDigest.Kind kind, RepoDigest.TimeWindow window) {
+        Map<Integer, OffsetDateTime> stamps = new HashMap<>();
+        jdbcTemplate.query("SELECT number, github_updated_at FROM " + table(kind) + " WHERE repo_id = ? " +
+                        "AND github_updated_at >= coalesce(?::timestamptz, '-infinity'::timestamptz) " +
+                        "AND github_updated_at < coalesce(?::timestamptz, 'infinity'::timestamptz)",
+                rs -> {
+                    stamps.put(rs.getInt("number"), rs.getObject("github_updated_at", OffsetDateTime.class));
+                }, repoId, timestamp(window.from()), timestamp(window.to()));
+        return stamps;
+    }
+
+    private Map<UUID, RepoDigest.ResourceDigest> resourceDigests(RepoDigest.Kind kind, UUID[] ids) {
+        Map<UUID, RepoDigest.ResourceDigest> digests = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT repo_id, count(*) AS items, max(github_updated_at) AS newest FROM " + table(kind) +
+                    " WHERE repo_id = ANY(?) GROUP BY repo_id");
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            return ps;
+        }, rs -> {
+            digests.put(rs.getObject("repo_id", UUID.class),
+                    new RepoDigest.ResourceDigest(rs.getLong("items"), rs.getObject("newest", OffsetDateTime.class)));
+        });
+        return digests;
+    }
+
+    private static String table(RepoDigest.Kind kind) {
+        return kind == RepoDigest.Kind.PULL_REQUESTS ? "pull_requests" : "github_issues";
+    }
+
+    private static Timestamp timestamp(OffsetDateTime value) {
+        return value != null ? Timestamp.from(value.toInstant()) : null;
+    }
+}
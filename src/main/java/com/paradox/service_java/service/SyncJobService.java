@@ -0,0 +1,285 @@
+package com.paradox.service_java.service;
+
+import com.paradox.service_java.model.SyncHistory;
+import com.paradox.service_java.repository.InstallationRepository;
+import com.paradox.service_java.repository.SyncHistoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Jobs de sincronización completa de una instalación.
+ *
+ * submit() devuelve el job al momento y la sincronización corre en un executor propio
+ * (github.sync.jobs.max-concurrent hilos; el resto espera en cola), así que ninguna
+ * petición HTTP queda retenida durante la sync. El progreso se lee del SyncSummary vivo
+ * del job; al terminar, el resumen va a sync_history. Una instalación con un job en
+ * cola o en curso devuelve ese mismo job en vez de lanzar otro.
+ */
+@Slf4j
+@Service
+public class SyncJobService {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    /**
+     * FULL: sync incremental de todos los repos; RECONCILE: solo los que difieren por digest
+     */
+    public enum Mode { FULL, RECONCILE }
+
+    private final IncrementalSyncService incrementalSyncService;
+    private final DigestReconciliationService digestReconciliationService;
+    private final InstallationRepository installationRepository;
+    private final SyncHistoryRepository syncHistoryRepository;
+    private final Duration progressInterval;
+    private final Duration retention;
+    private final Duration manualHistoryRetention;
+    private final Duration scheduledHistoryRetention;
+
+    private final ExecutorService jobExecutor;
+    private final Map<UUID, SyncJob> jobs = new ConcurrentHashMap<>();
+    private final Map<Long, SyncJob> activeByInstallation = new ConcurrentHashMap<>();
+
+    public SyncJobService(IncrementalSyncService incrementalSyncService,
+                          DigestReconciliationService digestReconciliationService,
+                          InstallationRepository installationRepository,
+                          SyncHistoryRepository syncHistoryRepository,
+                          @Value("${github.sync.jobs.max-concurrent:2}") int maxConcurrent,
+                          @Value("${github.sync.jobs.progress-interval-ms:1000}") long progressIntervalMs,
+                          @Value("${github.sync.jobs.retention-minutes:60}") long retentionMinutes,
+                          @Value("${github.sync.history.retention-days:90}") long manualHistoryRetentionDays,
+                          @Value("${github.sync.history.scheduled-retention-days:7}") long scheduledHistoryRetentionDays) {
+        this.incrementalSyncService = incrementalSyncService;
+        this.digestReconciliationService = digestReconciliationService;
+        this.installationRepository = installationRepository;
+        this.syncHistoryRepository = syncHistoryRepository;
+        this.progressInterval = Duration.ofMillis(Math.max(100, progressIntervalMs));
+        this.retention = Duration.ofMinutes(Math.max(1, retentionMinutes));
+        this.manualHistoryRetention = Duration.ofDays(Math.max(1, manualHistoryRetentionDays));
+        this.scheduledHistoryRetention = Duration.ofDays(Math.max(1, scheduledHistoryRetentionDays));
+        this.jobExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrent),
+                Thread.ofPlatform().name("sync-job-", 0).daemon(true).factory());
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Progreso de un job en un instante. itemsPerSecond cuenta PRs, issues y commits;
+     * etaSeconds se estima con el ritmo de repositorios terminados (null sin datos).
+     */
+    public record SyncJobProgress(
+            UUID jobId,
+            Long installationId,
+            Mode mode,
+            Status status,
+            OffsetDateTime submittedAt,
+            OffsetDateTime startedAt,
+            OffsetDateTime finishedAt,
+            int repositoriesDone,
+            int repositoriesTotal,
+            int itemsSynced,
+            double itemsPerSecond,
+            int errors,
+            Long etaSeconds,
+            UUID historyId
+    ) {
+        public boolean finished() {
+            return status == Status.COMPLETED || status == Status.FAILED;
+        }
+    }
+
+    /**
+     * Encola la sincronización completa de una instalación.
+     * @return el job, o vacío si la instalación no existe
+     */
+    public Optional<SyncJobProgress> submit(Long githubInstallationId) {
+        return submit(githubInstallationId, Mode.FULL);
+    }
+
+    /**
+     * Encola una sincronización de una instalación en el modo indicado. Si ya tiene un
+     * job activo se devuelve ese, sea cual sea su modo.
+     * @return el job, o vacío si la instalación no existe
+     */
+    public Optional<SyncJobProgress> submit(Long githubInstallationId, Mode mode) {
+        if (installationRepository.findByInstallationId(githubInstallationId).isEmpty()) {
+            return Optional.empty();
+        }
+        pruneFinished();
+
+        SyncJob created = new SyncJob(githubInstallationId, mode);
+        SyncJob job = activeByInstallation.putIfAbsent(githubInstallationId, created);
+        if (job != null) {
+            log.info("Sync job {} already active for installation {}", job.id, githubInstallationId);
+            return Optional.of(job.progress());
+        }
+
+        jobs.put(created.id, created);
+        jobExecutor.execute(() -> run(created));
+        log.info("Queued {} sync job {} for installation {}", mode, created.id, githubInstallationId);
+        return Optional.of(created.progress());
+    }
+
+    public Optional<SyncJobProgress> getProgress(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(SyncJob::progress);
+    }
+
+    /**
+     * Progreso del job cada github.sync.jobs.progress-interval-ms, hasta el estado final
+     * (incluido). Vacío si el job no existe o ya se descartó.
+     */
+    public Flux<SyncJobProgress> streamProgress(UUID jobId) {
+        SyncJob job = jobs.get(jobId);
+        if (job == null) {
+            return Flux.empty();
+        }
+        return Flux.interval(Duration.ZERO, progressInterval)
+                .map(tick -> job.progress())
+                .takeUntil(SyncJobProgress::finished);
+    }
+
+    /**
+     * Guarda en sync_history el resumen de una sincronización terminada
+     */
+    public SyncHistory recordHistory(IncrementalSyncService.SyncSummary summary, String origin, UUID jobId, Mode mode) {
+        OffsetDateTime started = summary.getStartTime();
+        OffsetDateTime finished = summary.getEndTime();
+        SyncHistory history = SyncHistory.builder()
+                .installationId(summary.getInstallationId())
+                .jobId(jobId)
+                .origin(origin)
+                .mode(mode.name().toLowerCase())
+                .success(summary.isSuccess())
+                .startedAt(started != null ? started : OffsetDateTime.now())
+                .finishedAt(finished)
+                .durationMs(started != null && finished != null ? Duration.between(started, finished).toMillis() : null)
+                .repositoriesTotal(Math.max(0, summary.getRepositoriesTotal()))
+                .repositoriesDone(summary.getRepositoriesDone())
+                .pullRequestsSynced(summary.getPullRequestsSynced())
+                .pullRequestsCreated(summary.getPullRequestsCreated())
+                .pullRequestsUpdated(summary.getPullRequestsUpdated())
+                .issuesSynced(summary.getIssuesSynced())
+                .issuesCreated(summary.getIssuesCreated())
+                .issuesUpdated(summary.getIssuesUpdated())
+                .branchesSynced(summary.getBranchesSynced())
+                .commitsSynced(summary.getCommitsSynced())
+                .errors(new HashMap<>(summary.getErrors()))
+                .phaseTimings(summary.getPhaseTimings())
+                .build();
+        return syncHistoryRepository.save(history);
+    }
+
+    /**
+     * Retención de sync_history: el scheduler deja una fila por lote, así que lo suyo se
+     * guarda menos tiempo que las sincronizaciones manuales
+     */
+    @Scheduled(fixedDelayString = "${github.sync.history.prune-interval-ms:3600000}",
+               initialDelayString = "${github.sync.history.prune-initial-delay-ms:300000}")
+    public void pruneHistory() {
+        OffsetDateTime now = OffsetDateTime.now();
+        try {
+            int scheduled = syncHistoryRepository.deleteByOriginAndStartedAtBefore(
+                    SyncHistory.SCHEDULED, now.minus(scheduledHistoryRetention));
+            int manual = syncHistoryRepository.deleteByOriginAndStartedAtBefore(
+                    SyncHistory.MANUAL, now.minus(manualHistoryRetention));
+            if (scheduled > 0 || manual > 0) {
+                log.info("Pruned sync history: {} scheduled, {} manual entries", scheduled, manual);
+            }
+        } catch (Exception e) {
+            log.error("Error pruning sync history: {}", e.getMessage(), e);
+        }
+    }
+
+    private void run(SyncJob job) {
+        job.status = Status.RUNNING;
+        Status result = Status.FAILED;
+        try {
+            if (job.mode == Mode.RECONCILE) {
+                digestReconciliationService.reconcile(job.installationId, job.summary);
+            } else {
+                incrementalSyncService.syncFull(job.installationId, job.summary);
+            }
+            try {
+                job.historyId = recordHistory(job.summary, SyncHistory.MANUAL, job.id, job.mode).getId();
+            } catch (Exception e) {
+                // El job no falla por el historial: los datos ya están sincronizados
+                log.error("Could not record sync history for job {}: {}", job.id, e.getMessage(), e);
+            }
+            result = job.summary.isSuccess() ? Status.COMPLETED : Status.FAILED;
+        } catch (Exception e) {
+            log.error("Sync job {} failed: {}", job.id, e.getMessage(), e);
+            job.summary.addError("GLOBAL", e.getMessage());
+        } finally {
+            // finishedAt antes que el estado: quien vea el estado final ve también la hora
+            job.finishedAt = OffsetDateTime.now();
+            job.status = result;
+            activeByInstallation.remove(job.installationId, job);
+            log.info("Sync job {} for installation {} finished: {}", job.id, job.installationId, result);
+        }
+    }
+
+    /**
+     * Olvida los jobs terminados hace más de github.sync.jobs.retention-minutes
+     */
+    private void pruneFinished() {
+        OffsetDateTime limit = OffsetDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(limit));
+    }
+
+    /**
+     * Estado de un job; el resumen lo escriben los workers y lo leen los streams de progreso
+     */
+    private static final class SyncJob {
+        private final UUID id = UUID.randomUUID();
+        private final Long installationId;
+        private final Mode mode;
+        private final OffsetDateTime submittedAt = OffsetDateTime.now();
+        private final IncrementalSyncService.SyncSummary summary = new IncrementalSyncService.SyncSummary();
+        private volatile Status status = Status.QUEUED;
+        private volatile OffsetDateTime finishedAt;
+        private volatile UUID historyId;
+
+        SyncJob(Long installationId, Mode mode) {
+            this.installationId = installationId;
+            this.mode = mode;
+            summary.setInstallationId(installationId);
+        }
+
+        SyncJobProgress progress() {
+            OffsetDateTime started = summary.getStartTime();
+            OffsetDateTime end = finishedAt != null ? finishedAt : OffsetDateTime.now();
+            double elapsedSeconds = started != null ? Duration.between(started, end).toMillis() / 1000.0 : 0;
+
+            int done = summary.getRepositoriesDone();
+            int total = summary.getRepositoriesTotal();
+            int items = summary.getItemsSynced();
+            double rate = elapsedSeconds > 0 ? items / elapsedSeconds : 0;
+
+            Long eta = null;
+            if (finishedAt != null) {
+                eta = 0L;
+            } else if (done > 0 && total >= done) {
+                eta = Math.round(elapsedSeconds / done * (total - done));
+            }
+
+            return new SyncJobProgress(id, installationId, mode, status, submittedAt, started, finishedAt,
+                    done, total, items, rate, summary.getErrors().size(), eta, historyId);
+        }
+    }
+}
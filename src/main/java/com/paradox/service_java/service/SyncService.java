@@ -1,22 +1,17 @@
 package com.paradox.service_java.service;
 
+import com.paradox.service_java.dto.github.GitHubRepository;
 import com.paradox.service_java.model.Installation;
 import com.paradox.service_java.model.Repository;
 import com.paradox.service_java.repository.RepositoryRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 
-import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Servicio para sincronización inicial y gestión de repositorios
@@ -25,51 +20,49 @@ import java.util.Optional;
 @Service
 public class SyncService {
 
-    private final WebClient webClient;
-    private final InstallationTokenService installationTokenService;
     private final RepositoryRepository repositoryRepository;
+    private final RepositoryBulkWriter repositoryBulkWriter;
+    private final GitHubApiService gitHubApiService;
 
-    // Constructor que configura WebClient con base URL correcta
-    public SyncService(WebClient.Builder webClientBuilder,
-                       InstallationTokenService installationTokenService,
-                       RepositoryRepository repositoryRepository) {
-        this.webClient = webClientBuilder.baseUrl("https://api.github.com").build();
-        this.installationTokenService = installationTokenService;
+    public SyncService(RepositoryRepository repositoryRepository,
+                       RepositoryBulkWriter repositoryBulkWriter,
+                       GitHubApiService gitHubApiService) {
         this.repositoryRepository = repositoryRepository;
+        this.repositoryBulkWriter = repositoryBulkWriter;
+        this.gitHubApiService = gitHubApiService;
     }
 
-    private static final ParameterizedTypeReference<Map<String, Object>> MAP_REF =
-        new ParameterizedTypeReference<>() {};
-
     /**
-     * Sincronización inicial: obtiene y guarda todos los repositorios de una instalación
+     * Sincronización inicial: obtiene y guarda todos los repositorios de una instalación.
+     * Cada página se escribe con un solo upsert por lotes
      */
     @Transactional
     public List<Repository> syncInitial(Long installationId, Installation installation) {
         log.info("Starting initial sync for installation: {}", installationId);
 
         try {
-            // Obtener token de instalación
-            String token = installationTokenService.getInstallationToken(installationId);
-
-            // Obtener repositorios de la instalación
-            List<Map<String, Object>> reposData = fetchInstallationRepositories(token);
-
-            log.info("Found {} repositories for installation {}", reposData.size(), installationId);
-
-            // Guardar o actualizar cada repositorio
-            List<Repository> savedRepos = new ArrayList<>();
-            for (Map<String, Object> repoData : reposData) {
-                try {
-                    Repository repo = createOrUpdateRepository(repoData, installation);
-                    savedRepos.add(repo);
-                } catch (Exception e) {
-                    log.error("Error processing repository: {}", repoData.get("full_name"), e);
+            // Obtener repositorios de la instalación página a página (se guarda una
+            // página mientras la siguiente está en vuelo)
+            List<UUID> savedIds = new ArrayList<>();
+            int found = 0;
+            int created = 0;
+            for (List<GitHubRepository> page : fetchInstallationRepositories(installationId).toIterable(2)) {
+                found += page.size();
+
+                List<RepositoryBulkWriter.RepositoryRow> rows = new ArrayList<>(page.size());
+                for (GitHubRepository repoData : page) {
+                    rows.add(RepositoryBulkWriter.RepositoryRow.of(repoData));
                 }
+                RepositoryBulkWriter.UpsertResult result = repositoryBulkWriter.upsert(installation.getId(), rows);
+                savedIds.addAll(result.ids().values());
+                created += result.created();
             }
 
-            log.info("Successfully synced {} repositories for installation {}",
-                    savedRepos.size(), installationId);
+            log.info("Found {} repositories for installation {}", found, installationId);
+
+            List<Repository> savedRepos = repositoryRepository.findAllById(savedIds);
+            log.info("Successfully synced {} repositories for installation {} ({} new)",
+                    savedRepos.size(), installationId, created);
 
             return savedRepos;
 
@@ -80,156 +73,11 @@ public class SyncService {
     }
 
     /**
-     * Obtiene la lista de repositorios accesibles por la instalación
-     */
-    private List<Map<String, Object>> fetchInstallationRepositories(String token) {
-        try {
-            Map<String, Object> response = webClient.get()
-                    .uri("/installation/repositories")
-                    .headers(h -> h.addAll(createAuthHeaders(token)))
-                    .retrieve()
-                    .bodyToMono(MAP_REF)
-                    .block();
-
-            if (response != null && response.containsKey("repositories")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> repos = (List<Map<String, Object>>) response.get("repositories");
-                return repos != null ? repos : new ArrayList<>();
-            }
-
-            return new ArrayList<>();
-        } catch (Exception e) {
-            log.error("Error fetching installation repositories: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to fetch repositories", e);
-        }
-    }
-
-    /**
-     * Crea o actualiza un repositorio desde los datos de GitHub
-     */
-    @Transactional
-    public Repository createOrUpdateRepository(Map<String, Object> repoData, Installation installation) {
-        Long githubRepoId = extractLong(repoData, "id");
-
-        if (githubRepoId == null) {
-            throw new IllegalArgumentException("Repository ID is required");
-        }
-
-        Optional<Repository> existing = repositoryRepository.findByGithubRepoId(githubRepoId);
-
-        Repository repository;
-        if (existing.isPresent()) {
-            repository = existing.get();
-            log.debug("Updating existing repository: {}", githubRepoId);
-        } else {
-            repository = new Repository();
-            repository.setGithubRepoId(githubRepoId);
-            repository.setInstallation(installation);
-            log.debug("Creating new repository: {}", githubRepoId);
-        }
-
-        // Datos básicos
-        repository.setNodeId(extractString(repoData, "node_id"));
-        repository.setName(extractString(repoData, "name"));
-        repository.setFullName(extractString(repoData, "full_name"));
-        repository.setDescription(extractString(repoData, "description"));
-        repository.setPrivateRepo(extractBoolean(repoData, "private"));
-        repository.setFork(extractBoolean(repoData, "fork"));
-        repository.setArchived(extractBoolean(repoData, "archived"));
-        repository.setDisabled(extractBoolean(repoData, "disabled"));
-
-        // Owner
-        Map<String, Object> owner = extractMap(repoData, "owner");
-        if (owner != null) {
-            repository.setOwnerLogin(extractString(owner, "login"));
-            repository.setOwnerType(extractString(owner, "type"));
-        }
-
-        // URLs
-        repository.setHtmlUrl(extractString(repoData, "html_url"));
-        repository.setCloneUrl(extractString(repoData, "clone_url"));
-        repository.setSshUrl(extractString(repoData, "ssh_url"));
-
-        // Metadata
-        repository.setDefaultBranch(extractString(repoData, "default_branch"));
-        repository.setLanguage(extractString(repoData, "language"));
-
-        List<String> topics = extractStringList(repoData, "topics");
-        if (topics != null) {
-            repository.setTopics(topics);
-        }
-
-        // Timestamps
-        String pushedAtStr = extractString(repoData, "pushed_at");
-        if (pushedAtStr != null) {
-            try {
-                repository.setPushedAt(OffsetDateTime.parse(pushedAtStr));
-            } catch (Exception e) {
-                log.warn("Could not parse pushed_at: {}", pushedAtStr);
-            }
-        }
-
-        return repositoryRepository.save(repository);
-    }
-
-    /**
-     * Crea headers de autenticación para llamadas a GitHub API
+     * Obtiene los repositorios accesibles por la instalación, siguiendo la paginación
      */
-    private HttpHeaders createAuthHeaders(String token) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-        headers.set(HttpHeaders.ACCEPT, "application/vnd.github+json");
-        headers.set(HttpHeaders.USER_AGENT, "paradoxboard-service");
-        headers.set("X-GitHub-Api-Version", "2022-11-28");
-        return headers;
-    }
-
-    // ===== Métodos auxiliares de extracción =====
-
-    private String extractString(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        return value != null ? String.valueOf(value) : null;
-    }
-
-    private Long extractLong(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) return null;
-        if (value instanceof Number) {
-            return ((Number) value).longValue();
-        }
-        try {
-            return Long.valueOf(String.valueOf(value));
-        } catch (NumberFormatException e) {
-            log.warn("Could not parse long from key {}: {}", key, value);
-            return null;
-        }
-    }
-
-    private Boolean extractBoolean(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) return null;
-        if (value instanceof Boolean) {
-            return (Boolean) value;
-        }
-        return Boolean.valueOf(String.valueOf(value));
-    }
-
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> extractMap(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value instanceof Map) {
-            return (Map<String, Object>) value;
-        }
-        return null;
-    }
-
-    @SuppressWarnings("unchecked")
-    private List<String> extractStringList(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value instanceof List) {
-            return (List<String>) value;
-        }
-        return null;
+    private Flux<List<GitHubRepository>> fetchInstallationRepositories(Long installationId) {
+        return gitHubApiService.streamInstallationRepositoryPages(installationId)
+                .doOnError(e -> log.error("Error fetching installation repositories: {}", e.getMessage(), e))
+                .onErrorMap(e -> new RuntimeException("Failed to fetch repositories", e));
     }
 }
-
@@ -0,0 +1,363 @@
+package com.paradox.service_java.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paradox.service_java.model.WebhookLog;
+import com.paradox.service_java.repository.WebhookLogRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ingesta asíncrona de webhooks.
+ *
+ * El controller valida la firma y persiste la delivery en webhook_logs; aquí solo se
+ * encola para procesarla en segundo plano. Las deliveries se reparten en N carriles
+ * seriales según repository.id (o installation.id para eventos installation*): eventos
+ * de repos distintos corren en paralelo y los de un mismo repo conservan su orden.
+ * Cuando un carril está lleno la delivery queda pendiente en BD y el poller de backlog
+ * la drena después, en orden de llegada.
+ */
+@Slf4j
+@Service
+public class WebhookIngestionService {
+
+    private final WebhookService webhookService;
+    private final WebhookLogRepository webhookLogRepository;
+    private final ObjectMapper objectMapper;
+    private final RepoActivityTracker activityTracker;
+
+    private final boolean async;
+    private final int backlogBatchSize;
+    private final long drainTimeoutSeconds;
+
+    private final Lane[] lanes;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean accepting = true;
+
+    public WebhookIngestionService(WebhookService webhookService,
+                                   WebhookLogRepository webhookLogRepository,
+                                   ObjectMapper objectMapper,
+                                   RepoActivityTracker activityTracker,
+                                   @Value("${webhook.ingestion.mode:async}") String mode,
+                                   @Value("${webhook.ingestion.lanes:8}") int laneCount,
+                                   @Value("${webhook.ingestion.queue-capacity:1000}") int queueCapacity,
+                                   @Value("${webhook.ingestion.backlog-batch-size:100}") int backlogBatchSize,
+                                   @Value("${webhook.ingestion.drain-timeout-seconds:30}") long drainTimeoutSeconds) {
+        this.webhookService = webhookService;
+        this.webhookLogRepository = webhookLogRepository;
+        this.objectMapper = objectMapper;
+        this.activityTracker = activityTracker;
+        this.async = !"sync".equalsIgnoreCase(mode);
+        this.backlogBatchSize = Math.max(1, backlogBatchSize);
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+
+        int count = Math.max(1, laneCount);
+        int laneCapacity = Math.max(1, (queueCapacity + count - 1) / count);
+        this.lanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new Lane(i, laneCapacity);
+            if (async) {
+                lanes[i].start();
+            }
+        }
+        log.info("Webhook ingestion mode: {} (lanes={}, laneCapacity={})",
+                async ? "async" : "sync", count, laneCapacity);
+    }
+
+    /**
+     * Indica si el controller debe responder 202 y delegar el procesamiento
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Encola una delivery recién recibida.
+     * @return false si su carril está lleno o el servicio se está apagando (queda en el backlog)
+     */
+    public boolean enqueue(WebhookLog webhookLog, byte[] payload) {
+        if (Boolean.TRUE.equals(webhookLog.getProcessed())) {
+            return true;
+        }
+        return offer(webhookLog.getId(), webhookLog.getEventType(), webhookLog.getDeliveryId(), payload, null);
+    }
+
+    /**
+     * Anota la delivery como actividad de su repositorio para el scheduler de sync.
+     * El camino asíncrono lo hace solo al encolar; el síncrono lo llama el controller.
+     */
+    public void recordActivity(String eventType, byte[] payload) {
+        recordActivity(eventType, shardKey(eventType, payload));
+    }
+
+    private void recordActivity(String eventType, long shardKey) {
+        if (shardKey != 0 && !isInstallationEvent(eventType)) {
+            activityTracker.record(shardKey);
+        }
+    }
+
+    /**
+     * blockedLanes es null en el camino directo; desde el backlog lleva los carriles que ya
+     * rechazaron en este lote, cuyo resto espera al siguiente para no adelantarse
+     */
+    private boolean offer(Long id, String eventType, String deliveryId, byte[] payload, Set<Integer> blockedLanes) {
+        if (!accepting) {
+            return false;
+        }
+
+        boolean fromBacklog = blockedLanes != null;
+        long key = shardKey(eventType, payload);
+        if (!fromBacklog) {
+            recordActivity(eventType, key);
+        }
+        Lane lane = laneFor(key, id);
+        if (fromBacklog && blockedLanes.contains(lane.index)) {
+            return false;
+        }
+
+        // Si el carril ya desbordó, lo nuevo espera en BD detrás de lo anterior para no romper el orden
+        if (lane.deferred && !fromBacklog) {
+            lane.rejected.incrementAndGet();
+            return false;
+        }
+        if (!inFlight.add(id)) {
+            return true; // ya encolada (p.ej. por el poller de backlog)
+        }
+
+        pending.incrementAndGet();
+        if (!lane.queue.offer(new Task(id, eventType, payload))) {
+            pending.decrementAndGet();
+            inFlight.remove(id);
+            lane.deferred = true;
+            lane.rejected.incrementAndGet();
+            if (fromBacklog) {
+                blockedLanes.add(lane.index);
+            }
+            log.warn("Webhook lane {} full, delivery {} deferred to backlog", lane.index, deliveryId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drena deliveries pendientes en BD: las que no cupieron en su carril y las que
+     * quedaron sin procesar por un reinicio.
+     */
+    @Scheduled(fixedDelayString = "${webhook.ingestion.backlog-poll-ms:5000}")
+    public void drainBacklog() {
+        if (!async || !accepting) {
+            return;
+        }
+
+        // Rechazos por carril antes de leer: si cambian, hay deliveries que el lote no vio
+        int[] rejectedBefore = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            rejectedBefore[i] = lanes[i].rejected.get();
+        }
+
+        // Las que ya están en un carril siguen con processed = false: no cuentan como backlog
+        List<Long> excluded = List.copyOf(inFlight);
+        List<WebhookLogRepository.PendingDelivery> backlog = excluded.isEmpty()
+                ? webhookLogRepository.findPendingDeliveries(backlogBatchSize)
+                : webhookLogRepository.findPendingDeliveriesExcluding(excluded, backlogBatchSize);
+
+        int queued = 0;
+        Set<Integer> blockedLanes = new HashSet<>();
+        for (WebhookLogRepository.PendingDelivery delivery : backlog) {
+            if (inFlight.contains(delivery.getId())) {
+                continue;
+            }
+            try {
+                byte[] payload = delivery.getPayload().getBytes(StandardCharsets.UTF_8);
+                if (offer(delivery.getId(), delivery.getEventType(), delivery.getDeliveryId(), payload, blockedLanes)) {
+                    queued++;
+                }
+            } catch (Exception e) {
+                log.error("Error re-queuing webhook log {}: {}", delivery.getId(), e.getMessage(), e);
+                webhookService.markFailed(delivery.getId(), rootMessage(e));
+            }
+        }
+
+        // Con el lote incompleto se vio todo el backlog: un carril vuelve al camino directo
+        // cuando todo lo suyo quedó encolado y no rechazó nada nuevo mientras tanto
+        if (backlog.size() < backlogBatchSize) {
+            for (int i = 0; i < lanes.length; i++) {
+                if (lanes[i].deferred && lanes[i].rejected.get() == rejectedBefore[i]) {
+                    lanes[i].deferred = false;
+                    log.info("Webhook lane {} caught up with its backlog", i);
+                }
+            }
+        }
+
+        if (queued > 0) {
+            log.info("Re-queued {} pending webhook deliveries from backlog", queued);
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Deja de aceptar deliveries y espera a que los carriles se vacíen.
+     * Lo que no termine a tiempo sigue sin procesar en BD y se retoma al arrancar.
+     */
+    @PreDestroy
+    public void shutdown() {
+        accepting = false;
+        if (!async) {
+            return;
+        }
+        log.info("Draining {} pending webhook deliveries (timeout {}s)", pending.get(), drainTimeoutSeconds);
+
+        for (Lane lane : lanes) {
+            lane.stopping = true;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        try {
+            for (Lane lane : lanes) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs > 0) {
+                    lane.thread.join(remainingMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (pending.get() > 0) {
+            log.warn("Webhook drain timed out with {} deliveries pending; they will be retried on startup", pending.get());
+        }
+    }
+
+    /**
+     * Elige el carril según el repo (o la instalación); eventos sin ninguno de los dos
+     * se reparten por id de log.
+     */
+    private Lane laneFor(long shardKey, Long webhookLogId) {
+        long key = shardKey;
+        if (key == 0) {
+            key = webhookLogId != null ? webhookLogId : 0;
+        }
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return lanes[(int) Math.floorMod(mixed ^ (mixed >>> 32), (long) lanes.length)];
+    }
+
+    /**
+     * Lee solo repository.id / installation.id del payload con el parser de streaming,
+     * saltando el resto de campos sin construir el árbol.
+     */
+    private long shardKey(String eventType, byte[] payload) {
+        boolean byInstallation = isInstallationEvent(eventType);
+        String target = byInstallation ? "installation" : "repository";
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (target.equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String inner = parser.currentName();
+                        JsonToken innerValue = parser.nextToken();
+                        if ("id".equals(inner) && innerValue == JsonToken.VALUE_NUMBER_INT) {
+                            return parser.getLongValue();
+                        }
+                        parser.skipChildren();
+                    }
+                    return 0;
+                }
+                parser.skipChildren();
+            }
+        } catch (Exception e) {
+            log.debug("Could not extract shard key from {} payload: {}", eventType, e.getMessage());
+        }
+        return 0;
+    }
+
+    private static boolean isInstallationEvent(String eventType) {
+        return eventType != null && eventType.startsWith("installation");
+    }
+
+    private void process(Task task) {
+        try {
+            webhookService.processDelivery(task.webhookLogId(), task.eventType(), task.payload());
+        } catch (Exception e) {
+            log.error("Error processing webhook log {}: {}", task.webhookLogId(), e.getMessage(), e);
+            webhookService.markFailed(task.webhookLogId(), rootMessage(e));
+        } finally {
+            pending.decrementAndGet();
+            inFlight.remove(task.webhookLogId());
+        }
+    }
+
+    private String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : e.getMessage();
+    }
+
+    private record Task(Long webhookLogId, String eventType, byte[] payload) {}
+
+    /**
+     * Carril serial: un virtual thread consume su cola en orden
+     */
+    private final class Lane implements Runnable {
+        private final int index;
+        private final BlockingQueue<Task> queue;
+        private Thread thread;
+        private volatile boolean deferred;
+        private final AtomicInteger rejected = new AtomicInteger();
+        private volatile boolean stopping;
+
+        Lane(int index, int capacity) {
+            this.index = index;
+            this.queue = new LinkedBlockingQueue<>(capacity);
+        }
+
+        void start() {
+            thread = Thread.ofVirtual().name("webhook-lane-" + index).start(this);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                try {
+                    task = queue.poll(500, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (task == null) {
+                    if (stopping) {
+                        return; // cola vacía durante el shutdown
+                    }
+                    continue;
+                }
+                process(task);
+            }
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.paradox.service_java.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.paradox.service_java.model.Branch;
-import com.paradox.service_java.dto.webhook.IssueEventDTO;
-import com.paradox.service_java.dto.webhook.PullRequestEventDTO;
+import com.paradox.service_java.dto.webhook.InstallationEvent;
+import com.paradox.service_java.dto.webhook.InstallationRepositoriesEvent;
+import com.paradox.service_java.dto.webhook.IssuesEvent;
+import com.paradox.service_java.dto.webhook.PingEvent;
+import com.paradox.service_java.dto.webhook.PullRequestEvent;
+import com.paradox.service_java.dto.webhook.PushEvent;
+import com.paradox.service_java.dto.webhook.RefEvent;
+import com.paradox.service_java.dto.webhook.RepositoryRef;
 import com.paradox.service_java.mapper.IssueMapper;
 import com.paradox.service_java.mapper.PullRequestMapper;
 import com.paradox.service_java.model.GithubIssue;
@@ -24,18 +27,25 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.HexFormat;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Service to handle GitHub webhook events
+ *
+ * El payload llega como byte[]: la firma se calcula sobre esos bytes, el log guarda el
+ * JSON crudo (Postgres lo convierte a jsonb) y cada evento se deserializa una sola vez,
+ * en streaming, a su record tipado.
  */
 @Slf4j
 @Service
@@ -47,13 +57,14 @@ public class WebhookService {
     private final InstallationService installationService;
     private final com.paradox.service_java.repository.InstallationRepository installationRepository;
     private final RepositoryRepository repositoryRepository;
+    private final RepositoryBulkWriter repositoryBulkWriter;
     private final PullRequestRepository pullRequestRepository;
     private final GithubIssueRepository githubIssueRepository;
     private final BranchService branchService;
-    private final CommitService commitService;
+    private final CommitBulkWriter commitBulkWriter;
     private final CSharpNotificationService csharpNotificationService;
 
-    // Mappers para conversión de DTOs (DEV B)
+    // Mappers para conversión de eventos (DEV B)
     private final PullRequestMapper pullRequestMapper;
     private final IssueMapper issueMapper;
 
@@ -62,10 +73,13 @@ public class WebhookService {
 
     private static final String HMAC_SHA256 = "HmacSHA256";
 
+    // La clave no cambia en runtime; Mac no es thread-safe, así que se crea uno por llamada
+    private volatile SecretKeySpec signingKey;
+
     /**
-     * Validates the GitHub webhook signature
+     * Validates the GitHub webhook signature over the raw request bytes
      */
-    public boolean validateSignature(String payload, String signatureHeader) {
+    public boolean validateSignature(byte[] payload, String signatureHeader) {
         if (webhookSecret == null || webhookSecret.isEmpty()) {
             log.warn("Webhook secret not configured - skipping signature validation");
             return true; // Allow webhooks in dev if secret is not configured
@@ -78,12 +92,14 @@ public class WebhookService {
 
         try {
             String expectedSignature = signatureHeader.substring(7); // Remove "sha256=" prefix
-            String actualSignature = calculateHmacSHA256(payload, webhookSecret);
+            byte[] actualSignature = calculateHmacSHA256(payload);
 
-            boolean isValid = expectedSignature.equalsIgnoreCase(actualSignature);
+            // Comparación en tiempo constante sobre los bytes del digest
+            boolean isValid = MessageDigest.isEqual(HexFormat.of().parseHex(expectedSignature), actualSignature);
 
             if (!isValid) {
-                log.warn("Signature mismatch - Expected: {}, Actual: {}", expectedSignature, actualSignature);
+                log.warn("Signature mismatch - Expected: {}, Actual: {}",
+                        expectedSignature, HexFormat.of().formatHex(actualSignature));
             }
 
             return isValid;
@@ -96,56 +112,44 @@ public class WebhookService {
     /**
      * Calculates HMAC SHA256 signature
      */
-    private String calculateHmacSHA256(String data, String secret) throws NoSuchAlgorithmException, InvalidKeyException {
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256);
+    private byte[] calculateHmacSHA256(byte[] data) throws NoSuchAlgorithmException, InvalidKeyException {
+        SecretKeySpec key = signingKey;
+        if (key == null) {
+            key = new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256);
+            signingKey = key;
+        }
         Mac mac = Mac.getInstance(HMAC_SHA256);
-        mac.init(secretKeySpec);
-        byte[] hmacBytes = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-        return HexFormat.of().formatHex(hmacBytes);
+        mac.init(key);
+        return mac.doFinal(data);
     }
 
     /**
      * Process webhook event based on type
      */
     @Transactional
-    public void processWebhook(String eventType, String payload, String signature, String deliveryId) {
-        WebhookLog webhookLog = null;
+    public void processWebhook(String eventType, byte[] payload, String signature, String deliveryId) {
+        Long webhookLogId = null;
 
         try {
             // 1. Guardar log del webhook
-            webhookLog = saveWebhookLog(eventType, payload, signature, deliveryId);
-
-            // 2. Parsear JSON
-            JsonNode json = objectMapper.readTree(payload);
-
-            // 3. Procesar según el tipo de evento
-            switch (eventType) {
-                case "installation" -> handleInstallationEvent(json);
-                case "installation_repositories" -> handleInstallationRepositoriesEvent(json);
-                case "push" -> handlePushEvent(json);
-                case "create" -> handleCreateEvent(json);
-                case "delete" -> handleDeleteEvent(json);
-                case "pull_request" -> handlePullRequestEvent(json);
-                case "issues" -> handleIssuesEvent(json);
-                case "ping" -> handlePingEvent(json);
-                default -> log.info("Unhandled webhook event type: {}", eventType);
+            webhookLogId = saveWebhookLog(eventType, payload, signature, deliveryId);
+            if (webhookLogId == null) {
+                log.info("Duplicate webhook delivery {}, already stored", deliveryId);
+                return;
             }
 
-            // 4. Marcar como procesado
-            if (webhookLog != null) {
-                webhookLog.setProcessed(true);
-                webhookLog.setProcessedAt(OffsetDateTime.now());
-                webhookLogRepository.save(webhookLog);
-            }
+            // 2. Parsear y procesar según el tipo de evento
+            dispatchEvent(eventType, payload);
+
+            // 3. Marcar como procesado
+            webhookLogRepository.markProcessed(webhookLogId, OffsetDateTime.now());
 
         } catch (Exception e) {
             log.error("Error processing webhook payload: {}", e.getMessage(), e);
 
             // Guardar error en el log
-            if (webhookLog != null) {
-                webhookLog.setProcessed(false);
-                webhookLog.setErrorMessage(e.getMessage());
-                webhookLogRepository.save(webhookLog);
+            if (webhookLogId != null) {
+                webhookLogRepository.markFailed(webhookLogId, e.getMessage());
             }
 
             throw new RuntimeException("Failed to process webhook", e);
@@ -153,25 +157,110 @@ public class WebhookService {
     }
 
     /**
-     * Guarda el webhook en la base de datos
+     * Persiste la delivery en webhook_logs sin procesarla (modo de ingesta asíncrona).
+     * Si GitHub re-entrega el mismo X-GitHub-Delivery se devuelve el log existente.
+     * El WebhookLog devuelto solo lleva los campos que necesita la cola (sin payload).
      */
-    private WebhookLog saveWebhookLog(String eventType, String payload, String signature, String deliveryId) {
+    @Transactional
+    public WebhookLog recordDelivery(String eventType, byte[] payload, String signature, String deliveryId) {
+        if (deliveryId != null) {
+            Optional<Long> existingId = webhookLogRepository.findIdByDeliveryId(deliveryId);
+            if (existingId.isPresent()) {
+                return duplicateDelivery(eventType, deliveryId, existingId.get());
+            }
+        }
+
+        Long id = saveWebhookLog(eventType, payload, signature, deliveryId);
+        if (id == null) {
+            // Otra petición con la misma delivery insertó entre la consulta y el INSERT
+            Long existingId = webhookLogRepository.findIdByDeliveryId(deliveryId)
+                    .orElseThrow(() -> new IllegalStateException("Webhook delivery vanished: " + deliveryId));
+            return duplicateDelivery(eventType, deliveryId, existingId);
+        }
+
+        return WebhookLog.builder()
+                .id(id)
+                .eventType(eventType)
+                .deliveryId(deliveryId)
+                .processed(false)
+                .build();
+    }
+
+    private WebhookLog duplicateDelivery(String eventType, String deliveryId, Long existingId) {
+        log.info("Duplicate webhook delivery {}, reusing stored log {}", deliveryId, existingId);
+        return WebhookLog.builder()
+                .id(existingId)
+                .eventType(eventType)
+                .deliveryId(deliveryId)
+                .processed(webhookLogRepository.findProcessedById(existingId).orElse(false))
+                .build();
+    }
+
+    /**
+     * Procesa una delivery ya persistida (usado por los workers de ingesta asíncrona).
+     * Los errores se propagan para que el llamador los registre en una transacción aparte.
+     */
+    @Transactional
+    public void processDelivery(Long webhookLogId, String eventType, byte[] payload) {
+        Boolean processed = webhookLogRepository.findProcessedById(webhookLogId)
+                .orElseThrow(() -> new IllegalStateException("Webhook log not found: " + webhookLogId));
+
+        if (Boolean.TRUE.equals(processed)) {
+            log.debug("Webhook log {} already processed, skipping", webhookLogId);
+            return;
+        }
+
         try {
-            // Convertir payload a Map
-            Map<String, Object> payloadMap = objectMapper.readValue(
-                payload,
-                new TypeReference<Map<String, Object>>() {}
-            );
+            dispatchEvent(eventType, payload);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to process webhook " + webhookLogId, e);
+        }
+
+        webhookLogRepository.markProcessed(webhookLogId, OffsetDateTime.now());
+    }
+
+    /**
+     * Registra el error de una delivery que falló en un worker
+     */
+    @Transactional
+    public void markFailed(Long webhookLogId, String errorMessage) {
+        webhookLogRepository.markFailed(webhookLogId, errorMessage != null ? errorMessage : "unknown error");
+    }
 
-            WebhookLog log = WebhookLog.builder()
-                    .eventType(eventType)
-                    .deliveryId(deliveryId)
-                    .requestPayload(payloadMap)
-                    .signature(signature)
-                    .processed(false)
-                    .build();
+    /**
+     * Deserializa el payload al record del evento (una sola pasada) y lo despacha.
+     * Los eventos no soportados no se llegan a parsear.
+     */
+    private void dispatchEvent(String eventType, byte[] payload) {
+        switch (eventType) {
+            case "installation" -> handleInstallationEvent(readEvent(payload, InstallationEvent.class));
+            case "installation_repositories" ->
+                    handleInstallationRepositoriesEvent(readEvent(payload, InstallationRepositoriesEvent.class));
+            case "push" -> handlePushEvent(readEvent(payload, PushEvent.class));
+            case "create" -> handleCreateEvent(readEvent(payload, RefEvent.class));
+            case "delete" -> handleDeleteEvent(readEvent(payload, RefEvent.class));
+            case "pull_request" -> handlePullRequestEvent(readEvent(payload, PullRequestEvent.class));
+            case "issues" -> handleIssuesEvent(readEvent(payload, IssuesEvent.class));
+            case "ping" -> handlePingEvent(readEvent(payload, PingEvent.class));
+            default -> log.info("Unhandled webhook event type: {}", eventType);
+        }
+    }
+
+    private <T> T readEvent(byte[] payload, Class<T> eventClass) {
+        try {
+            return objectMapper.readValue(payload, eventClass);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid " + eventClass.getSimpleName() + " payload", e);
+        }
+    }
 
-            return webhookLogRepository.save(log);
+    /**
+     * Guarda el webhook en la base de datos con el JSON tal cual llegó
+     */
+    private Long saveWebhookLog(String eventType, byte[] payload, String signature, String deliveryId) {
+        try {
+            return webhookLogRepository.insertRawDelivery(
+                    eventType, deliveryId, new String(payload, StandardCharsets.UTF_8), signature);
         } catch (Exception e) {
             log.error("Error saving webhook log: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to save webhook log", e);
@@ -181,73 +270,36 @@ public class WebhookService {
     /**
      * Handle installation events (created/deleted)
      */
-    private void handleInstallationEvent(JsonNode json) {
-        String action = json.path("action").asText();
-        JsonNode installationNode = json.path("installation");
-
-        long installationId = installationNode.path("id").asLong();
-        String accountLogin = installationNode.path("account").path("login").asText();
+    private void handleInstallationEvent(InstallationEvent event) {
+        String action = event.action();
+        long installationId = event.installation().id();
+        String accountLogin = event.installation().account() != null
+                ? event.installation().account().login() : null;
 
         log.info("Installation event - Action: {}, InstallationId: {}, Account: {}",
                 action, installationId, accountLogin);
 
         try {
             if ("created".equals(action)) {
-                // Convertir JsonNode a Map
-                Map<String, Object> installationData = objectMapper.convertValue(
-                    installationNode,
-                    new TypeReference<Map<String, Object>>() {}
-                );
-
                 // Crear o actualizar instalación en BD
                 com.paradox.service_java.model.Installation installation =
-                        installationService.createOrUpdateFromGitHub(installationData);
+                        installationService.createOrUpdateFromWebhook(event.installation());
                 log.info("Installation saved: {} for account: {}", installationId, accountLogin);
 
                 // IMPORTANTE: Procesar repositorios que vienen en el payload de instalación
-                JsonNode repositoriesNode = json.path("repositories");
-                if (repositoriesNode.isArray() && repositoriesNode.size() > 0) {
-                    log.info("Processing {} repositories from installation event", repositoriesNode.size());
-                    int savedCount = 0;
-
-                    for (JsonNode repoNode : repositoriesNode) {
-                        try {
-                            long githubRepoId = repoNode.path("id").asLong();
-                            String nodeId = repoNode.path("node_id").asText();
-                            String name = repoNode.path("name").asText();
-                            String fullName = repoNode.path("full_name").asText();
-                            boolean isPrivate = repoNode.path("private").asBoolean(false);
-
-                            // Verificar si el repo ya existe
-                            Optional<Repository> existingRepo = repositoryRepository.findByGithubRepoId(githubRepoId);
-
-                            if (existingRepo.isEmpty()) {
-                                // Crear nuevo repositorio
-                                Repository newRepo = Repository.builder()
-                                        .installation(installation)
-                                        .githubRepoId(githubRepoId)
-                                        .nodeId(nodeId)
-                                        .name(name)
-                                        .fullName(fullName)
-                                        .ownerLogin(fullName.contains("/") ? fullName.split("/")[0] : accountLogin)
-                                        .privateRepo(isPrivate)
-                                        .createdAt(OffsetDateTime.now())
-                                        .updatedAt(OffsetDateTime.now())
-                                        .build();
-
-                                repositoryRepository.save(newRepo);
-                                savedCount++;
-                                log.info("Repository saved from installation: {} ({})", fullName, githubRepoId);
-                            } else {
-                                log.debug("Repository already exists: {}, skipping", fullName);
-                            }
-
-                        } catch (Exception e) {
-                            log.error("Error processing repository from installation: {}", e.getMessage(), e);
-                        }
+                List<RepositoryRef> repositories = event.repositories();
+                if (repositories != null && !repositories.isEmpty()) {
+                    log.info("Processing {} repositories from installation event", repositories.size());
+
+                    // Un solo upsert: los que ya existían se vuelven a asociar a la instalación
+                    List<RepositoryBulkWriter.RepositoryRow> rows = new ArrayList<>(repositories.size());
+                    for (RepositoryRef repoRef : repositories) {
+                        rows.add(RepositoryBulkWriter.RepositoryRow.of(repoRef, accountLogin));
                     }
+                    RepositoryBulkWriter.UpsertResult result = repositoryBulkWriter.upsert(installation.getId(), rows);
 
-                    log.info("Saved {} repositories from installation event", savedCount);
+                    log.info("Saved {} repositories from installation event ({} already existed)",
+                            result.created(), result.updated());
                 } else {
                     log.warn("No repositories found in installation event payload");
                 }
@@ -272,19 +324,19 @@ public class WebhookService {
      * Handle installation_repositories events (added/removed)
      * DEV A - Implementación completa
      */
-    private void handleInstallationRepositoriesEvent(JsonNode json) {
+    private void handleInstallationRepositoriesEvent(InstallationRepositoriesEvent event) {
         try {
-            String action = json.path("action").asText();
-            long installationId = json.path("installation").path("id").asLong();
-            String repositorySelection = json.path("repository_selection").asText();
+            String action = event.action();
+            long installationId = event.installation().id();
+            String repositorySelection = event.repositorySelection();
 
             log.info("Installation repositories event - Action: {}, InstallationId: {}, Selection: {}",
                     action, installationId, repositorySelection);
 
             if ("added".equals(action)) {
                 // Procesar repositorios agregados
-                JsonNode addedRepos = json.path("repositories_added");
-                int addedCount = 0;
+                List<RepositoryRef> addedRepos = event.repositoriesAdded() != null
+                        ? event.repositoriesAdded() : List.of();
 
                 // Buscar la instalación en BD
                 Optional<com.paradox.service_java.model.Installation> installationOpt =
@@ -297,83 +349,33 @@ public class WebhookService {
 
                 com.paradox.service_java.model.Installation installation = installationOpt.get();
 
-                for (JsonNode repoNode : addedRepos) {
-                    try {
-                        long githubRepoId = repoNode.path("id").asLong();
-                        String nodeId = repoNode.path("node_id").asText();
-                        String name = repoNode.path("name").asText();
-                        String fullName = repoNode.path("full_name").asText();
-                        boolean isPrivate = repoNode.path("private").asBoolean();
-
-                        // Verificar si el repo ya existe
-                        Optional<Repository> existingRepo = repositoryRepository.findByGithubRepoId(githubRepoId);
-
-                        if (existingRepo.isEmpty()) {
-                            // Crear nuevo repositorio
-                            Repository newRepo = Repository.builder()
-                                    .installation(installation)
-                                    .githubRepoId(githubRepoId)
-                                    .nodeId(nodeId)
-                                    .name(name)
-                                    .fullName(fullName)
-                                    .ownerLogin(fullName.split("/")[0])
-                                    .privateRepo(isPrivate)
-                                    .createdAt(OffsetDateTime.now())
-                                    .updatedAt(OffsetDateTime.now())
-                                    .build();
-
-                            repositoryRepository.save(newRepo);
-                            addedCount++;
-                            log.info("Repository added to installation: {} ({})", fullName, githubRepoId);
-
-                            // Trigger sincronización inicial del repo (opcional, puede ser costoso)
-                            // installationService.syncSingleRepository(installationId, githubRepoId);
-                        } else {
-                            log.debug("Repository already exists: {}, skipping", fullName);
-                        }
-
-                    } catch (Exception e) {
-                        log.error("Error processing added repository: {}", e.getMessage(), e);
-                    }
+                List<RepositoryBulkWriter.RepositoryRow> rows = new ArrayList<>(addedRepos.size());
+                for (RepositoryRef repoRef : addedRepos) {
+                    rows.add(RepositoryBulkWriter.RepositoryRow.of(repoRef, installation.getAccountLogin()));
                 }
+                RepositoryBulkWriter.UpsertResult result = repositoryBulkWriter.upsert(installation.getId(), rows);
 
-                log.info("Installation repositories added: {} new repos synchronized", addedCount);
+                log.info("Installation repositories added: {} new repos synchronized, {} relinked",
+                        result.created(), result.updated());
 
             } else if ("removed".equals(action)) {
                 // Procesar repositorios removidos
-                JsonNode removedRepos = json.path("repositories_removed");
-                int removedCount = 0;
-
-                for (JsonNode repoNode : removedRepos) {
-                    try {
-                        long githubRepoId = repoNode.path("id").asLong();
-                        String fullName = repoNode.path("full_name").asText();
-
-                        // Buscar y eliminar (o marcar como inactivo) el repositorio
-                        Optional<Repository> repoOpt = repositoryRepository.findByGithubRepoId(githubRepoId);
-
-                        if (repoOpt.isPresent()) {
-                            Repository repo = repoOpt.get();
-
-                            // Opción A: Eliminar completamente (puede causar problemas de integridad)
-                            // repositoryRepository.delete(repo);
-
-                            // Opción B: Marcar como inactivo (recomendado)
-                            repo.setInstallation(null); // Desasociar de la instalación
-                            repo.setUpdatedAt(OffsetDateTime.now());
-                            repositoryRepository.save(repo);
-
-                            removedCount++;
-                            log.info("Repository removed from installation: {} ({})", fullName, githubRepoId);
-                        } else {
-                            log.warn("Repository to remove not found in DB: {} ({})", fullName, githubRepoId);
-                        }
-
-                    } catch (Exception e) {
-                        log.error("Error processing removed repository: {}", e.getMessage(), e);
+                List<RepositoryRef> removedRepos = event.repositoriesRemoved() != null
+                        ? event.repositoriesRemoved() : List.of();
+                List<Long> removedIds = new ArrayList<>(removedRepos.size());
+                for (RepositoryRef repoRef : removedRepos) {
+                    if (repoRef.id() != null) {
+                        removedIds.add(repoRef.id());
                     }
                 }
 
+                // Se desasocian de la instalación en vez de borrarlos (integridad con PRs/issues)
+                int removedCount = repositoryBulkWriter.unlink(removedIds);
+                if (removedCount < removedIds.size()) {
+                    log.warn("{} of {} removed repositories were not found in DB",
+                            removedIds.size() - removedCount, removedIds.size());
+                }
+
                 log.info("Installation repositories removed: {} repos unlinked", removedCount);
             }
 
@@ -386,12 +388,12 @@ public class WebhookService {
     /**
      * Handle push events
      */
-    private void handlePushEvent(JsonNode json) {
+    private void handlePushEvent(PushEvent event) {
         try {
-            String ref = json.path("ref").asText(); // refs/heads/main
-            String repoFullName = json.path("repository").path("full_name").asText();
-            Long githubRepoId = json.path("repository").path("id").asLong();
-            JsonNode commits = json.path("commits");
+            String ref = event.ref(); // refs/heads/main
+            String repoFullName = event.repository().fullName();
+            Long githubRepoId = event.repository().id();
+            List<PushEvent.Commit> commits = event.commits() != null ? event.commits() : List.of();
             int commitCount = commits.size();
 
             log.info("Push event - Repo: {}, Ref: {}, Commits: {}", repoFullName, ref, commitCount);
@@ -408,78 +410,70 @@ public class WebhookService {
 
             Repository repository = repoOpt.get();
 
+            // El scheduler decide cada cuánto sincronizar el repo según pushed_at
+            OffsetDateTime pushedAt = event.repository().pushedAt() != null
+                    ? event.repository().pushedAt() : OffsetDateTime.now();
+            repositoryRepository.advancePushedAt(repository.getId(), pushedAt);
+
             // 2. Obtener o crear branch
-            JsonNode headCommitNode = json.path("head_commit");
-            String headSha = headCommitNode.path("id").asText();
-            String headMessage = headCommitNode.path("message").asText();
-            String headAuthor = headCommitNode.path("author").path("name").asText();
-            OffsetDateTime headDate = parseTimestamp(headCommitNode.path("timestamp").asText());
+            PushEvent.Commit headCommit = event.headCommit();
+            String headSha = headCommit != null ? headCommit.id() : event.after();
+            String headMessage = headCommit != null ? headCommit.message() : null;
+            String headAuthor = headCommit != null && headCommit.author() != null ? headCommit.author().name() : null;
+            OffsetDateTime headDate = timestampOrNow(headCommit != null ? headCommit.timestamp() : null);
 
-            Branch branch = branchService.createOrUpdate(
+            UUID branchId = branchService.upsertHead(
                     repository, branchName, headSha, headMessage, headAuthor, headDate
             );
 
-            // 3. Procesar cada commit del push
-            int savedCount = 0;
-            for (JsonNode commitNode : commits) {
-                try {
-                    String sha = commitNode.path("id").asText();
-                    String message = commitNode.path("message").asText();
-                    String treeSha = commitNode.path("tree_id").asText();
-                    String url = commitNode.path("url").asText();
-
-                    // Author info
-                    JsonNode authorNode = commitNode.path("author");
-                    String authorName = authorNode.path("name").asText();
-                    String authorEmail = authorNode.path("email").asText();
-                    String authorLogin = authorNode.path("username").asText();
-                    OffsetDateTime authorDate = parseTimestamp(commitNode.path("timestamp").asText());
-
-                    // Stats (pueden no estar disponibles en push webhook)
-                    Integer additions = commitNode.has("added") ? commitNode.path("added").size() : null;
-                    Integer deletions = commitNode.has("removed") ? commitNode.path("removed").size() : null;
-                    Integer modified = commitNode.has("modified") ? commitNode.path("modified").size() : null;
-
-                    Integer changedFiles = 0;
-                    if (additions != null) changedFiles += additions;
-                    if (deletions != null) changedFiles += deletions;
-                    if (modified != null) changedFiles += modified;
-
-                    // Parent commits
-                    List<String> parentShas = new ArrayList<>();
-                    if (commitNode.has("parents")) {
-                        commitNode.path("parents").forEach(parent ->
-                                parentShas.add(parent.asText()));
-                    }
+            // 3. Convertir los commits del push y escribirlos en bloque
+            List<CommitBulkWriter.CommitRow> rows = new ArrayList<>(commitCount);
+            for (PushEvent.Commit commit : commits) {
+                // Author info
+                PushEvent.Author author = commit.author();
+                String authorName = author != null ? author.name() : null;
+                String authorEmail = author != null ? author.email() : null;
+                String authorLogin = author != null ? author.username() : null;
+                OffsetDateTime authorDate = timestampOrNow(commit.timestamp());
+
+                // Stats (pueden no estar disponibles en push webhook)
+                Integer additions = commit.added() != null ? commit.added().size() : null;
+                Integer deletions = commit.removed() != null ? commit.removed().size() : null;
+                Integer modified = commit.modified() != null ? commit.modified().size() : null;
+
+                Integer changedFiles = 0;
+                if (additions != null) changedFiles += additions;
+                if (deletions != null) changedFiles += deletions;
+                if (modified != null) changedFiles += modified;
+
+                rows.add(new CommitBulkWriter.CommitRow(
+                        commit.id(), commit.message(),
+                        authorName, authorEmail, authorLogin, authorDate,
+                        authorName, authorEmail, authorDate, // Por defecto, committer = author
+                        commit.treeId(), commit.parents() != null ? commit.parents() : List.of(),
+                        additions, deletions, changedFiles,
+                        commit.url()
+                ));
+            }
 
-                    // Crear commit si no existe
-                    commitService.createIfNotExists(
-                            repository, branch,
-                            sha, message,
-                            authorName, authorEmail, authorLogin,
-                            authorDate,
-                            treeSha, parentShas,
-                            additions, deletions, changedFiles,
-                            url
-                    );
+            List<CommitBulkWriter.CommitRow> inserted = commitBulkWriter.insertMissing(repository.getId(), branchId, rows);
 
-                    // Notificar a C# Service
+            // 4. Notificar a C# Service solo los commits nuevos (re-pushes no se notifican de nuevo)
+            for (CommitBulkWriter.CommitRow commit : inserted) {
+                try {
                     csharpNotificationService.notifyCommitCreated(
                             repository.getId().toString(),
-                            sha,
-                            message,
-                            authorLogin != null ? authorLogin : authorName
+                            commit.sha(),
+                            commit.message(),
+                            commit.authorLogin() != null ? commit.authorLogin() : commit.authorName()
                     );
-
-                    savedCount++;
-
                 } catch (Exception e) {
-                    log.error("Error processing individual commit: {}", e.getMessage(), e);
+                    log.error("Error notifying commit {}: {}", commit.sha(), e.getMessage(), e);
                 }
             }
 
-            log.info("Push event processed: {} commits saved/updated in branch {} of repo {}",
-                    savedCount, branchName, repoFullName);
+            log.info("Push event processed: {} new commits ({} received) in branch {} of repo {}",
+                    inserted.size(), commitCount, branchName, repoFullName);
 
         } catch (Exception e) {
             log.error("Error handling push event: {}", e.getMessage(), e);
@@ -488,29 +482,21 @@ public class WebhookService {
     }
 
     /**
-     * Parse timestamp from GitHub ISO 8601 format
+     * GitHub envía timestamps ISO 8601 (ya parseados por Jackson); si falta, se usa la hora actual
      */
-    private OffsetDateTime parseTimestamp(String timestamp) {
-        try {
-            if (timestamp == null || timestamp.isEmpty()) {
-                return OffsetDateTime.now();
-            }
-            return OffsetDateTime.parse(timestamp);
-        } catch (Exception e) {
-            log.warn("Failed to parse timestamp: {}, using current time", timestamp);
-            return OffsetDateTime.now();
-        }
+    private OffsetDateTime timestampOrNow(OffsetDateTime timestamp) {
+        return timestamp != null ? timestamp : OffsetDateTime.now();
     }
 
     /**
      * Handle create events (branch/tag creation)
      */
-    private void handleCreateEvent(JsonNode json) {
+    private void handleCreateEvent(RefEvent event) {
         try {
-            String refType = json.path("ref_type").asText(); // "branch" or "tag"
-            String ref = json.path("ref").asText(); // branch/tag name
-            String repoFullName = json.path("repository").path("full_name").asText();
-            Long githubRepoId = json.path("repository").path("id").asLong();
+            String refType = event.refType(); // "branch" or "tag"
+            String ref = event.ref(); // branch/tag name
+            String repoFullName = event.repository().fullName();
+            Long githubRepoId = event.repository().id();
 
             log.info("Create event - Repo: {}, Type: {}, Ref: {}", repoFullName, refType, ref);
 
@@ -530,11 +516,10 @@ public class WebhookService {
             Repository repository = repoOpt.get();
 
             // Obtener info del sender (quien creó el branch)
-            JsonNode senderNode = json.path("sender");
-            String senderLogin = senderNode.path("login").asText();
+            String senderLogin = event.sender() != null ? event.sender().login() : null;
 
             // Crear branch en BD
-            String masterHeadSha = json.path("master_branch").asText();
+            String masterHeadSha = event.masterBranch();
             branchService.createOrUpdate(
                     repository,
                     ref,
@@ -562,12 +547,12 @@ public class WebhookService {
     /**
      * Handle delete events (branch/tag deletion)
      */
-    private void handleDeleteEvent(JsonNode json) {
+    private void handleDeleteEvent(RefEvent event) {
         try {
-            String refType = json.path("ref_type").asText(); // "branch" or "tag"
-            String ref = json.path("ref").asText(); // branch/tag name
-            String repoFullName = json.path("repository").path("full_name").asText();
-            Long githubRepoId = json.path("repository").path("id").asLong();
+            String refType = event.refType(); // "branch" or "tag"
+            String ref = event.ref(); // branch/tag name
+            String repoFullName = event.repository().fullName();
+            Long githubRepoId = event.repository().id();
 
             log.info("Delete event - Repo: {}, Type: {}, Ref: {}", repoFullName, refType, ref);
 
@@ -600,57 +585,31 @@ public class WebhookService {
     /**
      * Handle pull request events
      */
-    private void handlePullRequestEvent(JsonNode json) {
-        String action = json.path("action").asText();
-        int prNumber = json.path("number").asInt();
-        String repoFullName = json.path("repository").path("full_name").asText();
-        String prTitle = json.path("pull_request").path("title").asText();
+    private void handlePullRequestEvent(PullRequestEvent event) {
+        String action = event.action();
+        int prNumber = event.number();
+        String repoFullName = event.repository().fullName();
+        PullRequestEvent.PullRequest prData = event.pullRequest();
 
         log.info("Pull request event - Repo: {}, PR: #{}, Action: {}, Title: {}",
-                repoFullName, prNumber, action, prTitle);
+                repoFullName, prNumber, action, prData.title());
 
         try {
             // Buscar el repositorio en BD
             Repository repository = repositoryRepository.findByFullName(repoFullName)
                     .orElseThrow(() -> new RuntimeException("Repository not found: " + repoFullName));
 
-            // Opción 1: Usar mapper con JsonNode (más directo)
             PullRequest pullRequest = pullRequestRepository.findByRepoIdAndNumber(repository.getId(), prNumber)
                     .orElse(null);
 
             if (pullRequest == null) {
                 // Crear nuevo PR usando el mapper
-                pullRequest = pullRequestMapper.fromJsonNode(json, repository);
+                pullRequest = pullRequestMapper.fromEvent(prData, repository);
                 log.info("Creating new Pull Request #{} in repo {}", prNumber, repoFullName);
             } else {
-                // Actualizar PR existente - Convertir a DTO y usar mapper
-                try {
-                    PullRequestEventDTO dto = objectMapper.treeToValue(json, PullRequestEventDTO.class);
-                    pullRequestMapper.updateEntity(pullRequest, dto);
-                    log.info("Updating existing Pull Request #{} in repo {}", prNumber, repoFullName);
-                } catch (Exception e) {
-                    // Fallback: usar método directo con JsonNode
-                    log.warn("Failed to convert to DTO, using direct mapping: {}", e.getMessage());
-                    PullRequest updatedPr = pullRequestMapper.fromJsonNode(json, repository);
-                    pullRequest.setGithubPrId(updatedPr.getGithubPrId());
-                    pullRequest.setNodeId(updatedPr.getNodeId());
-                    pullRequest.setState(updatedPr.getState());
-                    pullRequest.setTitle(updatedPr.getTitle());
-                    pullRequest.setBody(updatedPr.getBody());
-                    pullRequest.setUserLogin(updatedPr.getUserLogin());
-                    pullRequest.setUserId(updatedPr.getUserId());
-                    pullRequest.setHeadRef(updatedPr.getHeadRef());
-                    pullRequest.setHeadSha(updatedPr.getHeadSha());
-                    pullRequest.setBaseRef(updatedPr.getBaseRef());
-                    pullRequest.setBaseSha(updatedPr.getBaseSha());
-                    pullRequest.setDraft(updatedPr.getDraft());
-                    pullRequest.setMerged(updatedPr.getMerged());
-                    pullRequest.setMergeable(updatedPr.getMergeable());
-                    pullRequest.setMergedBy(updatedPr.getMergedBy());
-                    pullRequest.setMergedAt(updatedPr.getMergedAt());
-                    pullRequest.setClosedAt(updatedPr.getClosedAt());
-                    pullRequest.setHtmlUrl(updatedPr.getHtmlUrl());
-                }
+                // Actualizar PR existente
+                pullRequestMapper.updateEntity(pullRequest, prData);
+                log.info("Updating existing Pull Request #{} in repo {}", prNumber, repoFullName);
             }
 
             // Guardar en BD
@@ -675,14 +634,14 @@ public class WebhookService {
     /**
      * Handle issues events
      */
-    private void handleIssuesEvent(JsonNode json) {
-        String action = json.path("action").asText();
-        int issueNumber = json.path("issue").path("number").asInt();
-        String repoFullName = json.path("repository").path("full_name").asText();
-        String issueTitle = json.path("issue").path("title").asText();
+    private void handleIssuesEvent(IssuesEvent event) {
+        String action = event.action();
+        IssuesEvent.Issue issueData = event.issue();
+        int issueNumber = issueData.number();
+        String repoFullName = event.repository().fullName();
 
         log.info("Issues event - Repo: {}, Issue: #{}, Action: {}, Title: {}",
-                repoFullName, issueNumber, action, issueTitle);
+                repoFullName, issueNumber, action, issueData.title());
 
         try {
             // Buscar el repositorio en BD
@@ -695,34 +654,13 @@ public class WebhookService {
 
             if (githubIssue == null) {
                 // Crear nuevo issue usando el mapper
-                githubIssue = issueMapper.fromJsonNode(json, repository);
+                githubIssue = issueMapper.fromEvent(issueData, repository);
                 log.info("Creating new GitHub Issue #{} in repo {}", issueNumber, repoFullName);
             } else {
-                // Actualizar issue existente - Convertir a DTO y usar mapper
-                try {
-                    IssueEventDTO dto = objectMapper.treeToValue(json, IssueEventDTO.class);
-                    issueMapper.updateEntity(githubIssue, dto);
-                    log.info("Updating existing GitHub Issue #{} in repo {} - Action: {}",
-                            issueNumber, repoFullName, action);
-                } catch (Exception e) {
-                    // Fallback: usar método directo con JsonNode
-                    log.warn("Failed to convert to DTO, using direct mapping: {}", e.getMessage());
-                    GithubIssue updatedIssue = issueMapper.fromJsonNode(json, repository);
-                    githubIssue.setGithubIssueId(updatedIssue.getGithubIssueId());
-                    githubIssue.setNodeId(updatedIssue.getNodeId());
-                    githubIssue.setState(updatedIssue.getState());
-                    githubIssue.setTitle(updatedIssue.getTitle());
-                    githubIssue.setBody(updatedIssue.getBody());
-                    githubIssue.setUserLogin(updatedIssue.getUserLogin());
-                    githubIssue.setUserId(updatedIssue.getUserId());
-                    githubIssue.setLabels(updatedIssue.getLabels());
-                    githubIssue.setAssignees(updatedIssue.getAssignees());
-                    githubIssue.setMilestone(updatedIssue.getMilestone());
-                    githubIssue.setLocked(updatedIssue.getLocked());
-                    githubIssue.setCommentsCount(updatedIssue.getCommentsCount());
-                    githubIssue.setClosedAt(updatedIssue.getClosedAt());
-                    githubIssue.setHtmlUrl(updatedIssue.getHtmlUrl());
-                }
+                // Actualizar issue existente
+                issueMapper.updateEntity(githubIssue, issueData);
+                log.info("Updating existing GitHub Issue #{} in repo {} - Action: {}",
+                        issueNumber, repoFullName, action);
             }
 
             // Guardar en BD
@@ -747,11 +685,7 @@ public class WebhookService {
     /**
      * Handle ping events (GitHub sends this when webhook is created)
      */
-    private void handlePingEvent(JsonNode json) {
-        String zen = json.path("zen").asText();
-        int hookId = json.path("hook_id").asInt();
-
-        log.info("Ping event received - HookId: {}, Zen: {}", hookId, zen);
+    private void handlePingEvent(PingEvent event) {
+        log.info("Ping event received - HookId: {}, Zen: {}", event.hookId(), event.zen());
     }
 }
-
@@ -15,18 +15,29 @@ import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 public class GitHubJwtGenerator {
 
     private static final Logger log = LoggerFactory.getLogger(GitHubJwtGenerator.class);
 
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(60);
+    private static final Duration JWT_TTL = Duration.ofMinutes(9);
+    private static final Duration REFRESH_MARGIN = Duration.ofSeconds(60);
+
     private final RSAPrivateKey privateKey;
     private final String appId;
 
+    // Último JWT firmado; se publica con set() y se lee sin locks
+    private final AtomicReference<SignedJwt> cachedJwt = new AtomicReference<>();
+    private final AtomicBoolean signing = new AtomicBoolean();
+
     public GitHubJwtGenerator(ResourceLoader resourceLoader,
                               @Value("${github.app.id:}") String appId,
                               @Value("${github.app.private-key-path:}") String pemPath) {
@@ -60,20 +71,53 @@ public class GitHubJwtGenerator {
         this.privateKey = pk;
     }
 
+    /**
+     * Devuelve el JWT de la app, reutilizando el último firmado mientras le quede margen.
+     * Solo un hilo re-firma; el resto sigue usando el token vigente hasta que se publica el nuevo.
+     */
     public String generateJwt() {
         if (this.privateKey == null || this.appId == null || this.appId.isEmpty()) {
             throw new IllegalStateException("GitHub App private key or app id not configured; cannot generate JWT");
         }
+
         Instant now = Instant.now();
-        Date iat = Date.from(now);
-        Date exp = Date.from(now.plusSeconds(600));
+        SignedJwt current = cachedJwt.get();
+        if (current != null && current.usableAt(now)) {
+            return current.token();
+        }
+
+        // Si otro hilo ya está firmando y el token actual sigue siendo válido, no firmamos dos veces.
+        // Sin token válido cada hilo firma por su cuenta (solo pasa al arrancar o tras inactividad).
+        boolean owner = signing.compareAndSet(false, true);
+        if (!owner && current != null && current.validAt(now)) {
+            return current.token();
+        }
 
-        return Jwts.builder()
+        try {
+            SignedJwt fresh = sign(now);
+            cachedJwt.set(fresh);
+            return fresh.token();
+        } finally {
+            if (owner) {
+                signing.set(false);
+            }
+        }
+    }
+
+    private SignedJwt sign(Instant now) {
+        // iat en el pasado para tolerar desfases de reloj con GitHub (máx. 10 min de vida total)
+        Instant issuedAt = now.minus(CLOCK_SKEW);
+        Instant expiresAt = now.plus(JWT_TTL);
+
+        String token = Jwts.builder()
                 .setIssuer(appId)
-                .setIssuedAt(iat)
-                .setExpiration(exp)
+                .setIssuedAt(Date.from(issuedAt))
+                .setExpiration(Date.from(expiresAt))
                 .signWith(privateKey, SignatureAlgorithm.RS256)
                 .compact();
+
+        log.debug("Signed new GitHub App JWT (expires at {})", expiresAt);
+        return new SignedJwt(token, expiresAt);
     }
 
     // Check without generating the JWT
@@ -85,4 +129,16 @@ public class GitHubJwtGenerator {
     public String getAppId() {
         return this.appId;
     }
+
+    private record SignedJwt(String token, Instant expiresAt) {
+
+        // Se reutiliza mientras quede más de REFRESH_MARGIN de vida
+        boolean usableAt(Instant now) {
+            return expiresAt.minus(REFRESH_MARGIN).isAfter(now);
+        }
+
+        boolean validAt(Instant now) {
+            return expiresAt.minusSeconds(5).isAfter(now);
+        }
+    }
 }
@@ -0,0 +1,109 @@
+package com.paradox.service_java.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom para SHAs de git.
+ *
+ * Un resultado negativo es exacto (el SHA nunca se añadió); uno positivo es solo "quizá"
+ * y debe confirmarse contra la BD. Como los SHAs ya son hashes uniformes, los índices
+ * salen directamente de sus bits (doble hashing h1 + i*h2) sin rehashear.
+ * Thread-safe sin locks.
+ */
+public class ShaBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+    private final int expectedInsertions;
+    private final AtomicInteger insertions = new AtomicInteger();
+
+    /**
+     * @param expectedInsertions número de SHAs esperado antes de saturarse
+     * @param falsePositiveRate  tasa de falsos positivos objetivo (p.ej. 0.01)
+     */
+    public ShaBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        double p = Math.min(Math.max(falsePositiveRate, 1e-6), 0.5);
+
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.expectedInsertions = n;
+        this.bits = new AtomicLongArray((bitCount + 63) >>> 6);
+    }
+
+    public boolean mightContain(String sha) {
+        long h1 = hash1(sha);
+        long h2 = hash2(sha);
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1, h2, i);
+            if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(String sha) {
+        long h1 = hash1(sha);
+        long h2 = hash2(sha);
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1, h2, i);
+            long mask = 1L << index;
+            int word = index >>> 6;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * Pasado el número esperado de inserciones la tasa de falsos positivos crece;
+     * el llamador puede descartar el filtro y empezar uno nuevo.
+     */
+    public boolean isSaturated() {
+        return insertions.get() >= expectedInsertions;
+    }
+
+    private int index(long h1, long h2, int i) {
+        return (int) Math.floorMod(h1 + i * h2, (long) bitCount);
+    }
+
+    private static long hash1(String sha) {
+        return isHexSha(sha) ? Long.parseUnsignedLong(sha, 0, 16, 16) : fnv1a(sha, 0xcbf29ce484222325L);
+    }
+
+    private static long hash2(String sha) {
+        // h2 impar para recorrer todas las posiciones
+        long h = isHexSha(sha) ? Long.parseUnsignedLong(sha, 16, 32, 16) : fnv1a(sha, 0x84222325cbf29ce4L);
+        return h | 1L;
+    }
+
+    private static boolean isHexSha(String sha) {
+        if (sha.length() < 32) {
+            return false;
+        }
+        for (int i = 0; i < 32; i++) {
+            if (Character.digit(sha.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long fnv1a(String value, long seed) {
+        long h = seed;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
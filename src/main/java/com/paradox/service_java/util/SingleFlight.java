@@ -0,0 +1,66 @@
+package com.paradox.service_java.util;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalescencia de peticiones idénticas concurrentes ("single-flight").
+ *
+ * Mientras hay una petición en vuelo para una clave, los llamadores con la misma clave
+ * se enganchan al mismo resultado (valor o error) en vez de lanzar otra. Al terminar se
+ * olvida la clave: no es una caché, la siguiente llamada vuelve a salir.
+ * Thread-safe.
+ */
+public class SingleFlight<K> {
+
+    private final Map<K, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+
+    /**
+     * Ejecuta la petición de supplier, o se une a la que ya está en vuelo para key.
+     * El supplier solo se invoca si no había ninguna.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> execute(K key, Supplier<Mono<T>> supplier) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<T>> created = new AtomicReference<>();
+            Mono<T> shared = (Mono<T>) inFlight.computeIfAbsent(key, k -> {
+                Mono<T> call = Mono.defer(supplier)
+                        .doFinally(signal -> inFlight.remove(k, created.get()))
+                        .cache();
+                created.set(call);
+                return call;
+            });
+            if (shared == created.get()) {
+                leaders.incrementAndGet();
+            } else {
+                joined.incrementAndGet();
+            }
+            return shared;
+        });
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Peticiones que salieron realmente
+     */
+    public long leaders() {
+        return leaders.get();
+    }
+
+    /**
+     * Peticiones que se ahorraron uniéndose a una en vuelo
+     */
+    public long joined() {
+        return joined.get();
+    }
+}